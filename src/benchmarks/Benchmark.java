@@ -0,0 +1,206 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import primitives.Util;
+
+/**
+ * Micro-benchmark harness: each benchmark is run for several warmup iterations
+ * (for letting the JIT compiler optimize the code), and then for several
+ * measured iterations. Each iteration runs the benchmarked operation
+ * repeatedly for a fixed time, and its score is the average time of an
+ * operation. The random numbers generator is seeded with a fixed seed before
+ * each benchmark, so the benchmarked work is reproducible.<br>
+ * The results of the operations are consumed, so the JIT compiler cannot
+ * eliminate their computation. The results of the benchmarks are written in
+ * CSV or JSON format.
+ */
+public final class Benchmark {
+	/**
+	 * Result of a benchmark
+	 *
+	 * @param name       benchmark name
+	 * @param iterations amount of measured iterations
+	 * @param operations total amount of operations in the measured iterations
+	 * @param mean       average time of an operation in nanoseconds
+	 * @param error      standard deviation of the iterations scores in
+	 *                   nanoseconds
+	 * @param min        the best iteration score in nanoseconds
+	 */
+	public record Result(String name, int iterations, long operations, double mean, double error, double min) {
+	}
+
+	/** Minimal ratio of the iteration time to the time of a batch of operations */
+	private static final int BATCH_RATIO = 100;
+	/** The seed of the random numbers generator */
+	public static final long SEED = 5785L;
+	/**
+	 * Object which is never returned by an operation - the operations results are
+	 * compared with it (as a volatile field it cannot be assumed by the JIT
+	 * compiler)
+	 */
+	private static volatile Object sentinel = new Object();
+	/** Sink of the operations results (written only if a result is the sentinel) */
+	@SuppressWarnings("unused")
+	private static Object sink;
+
+	/** Amount of warmup iterations */
+	private final int warmups;
+	/** Amount of measured iterations */
+	private final int iterations;
+	/** Time of an iteration in nanoseconds */
+	private final long iterationTime;
+	/** Filter of the benchmarks names, null for all the benchmarks */
+	private final Pattern filter;
+	/** The results of the benchmarks which have been run */
+	private final List<Result> results = new ArrayList<>();
+
+	/**
+	 * Constructs benchmark harness
+	 *
+	 * @param warmups       amount of warmup iterations
+	 * @param iterations    amount of measured iterations
+	 * @param iterationTime time of an iteration in seconds
+	 * @param filter        regular expression of the names of the benchmarks to
+	 *                      run, null for all the benchmarks
+	 */
+	public Benchmark(int warmups, int iterations, double iterationTime, String filter) {
+		if (warmups < 0 || iterations < 1 || iterationTime <= 0)
+			throw new IllegalArgumentException("Illegal benchmark iterations setting");
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationTime = (long) (iterationTime * 1e9);
+		this.filter = filter == null ? null : Pattern.compile(filter);
+	}
+
+	/**
+	 * Run a benchmark (if its name matches the filter) and print its result
+	 *
+	 * @param name      benchmark name
+	 * @param operation the benchmarked operation, its result is consumed
+	 * @return the harness itself
+	 */
+	public Benchmark run(String name, Supplier<?> operation) {
+		if (!matches(name))
+			return this;
+		Util.setRandomSeed(SEED);
+		for (int i = 0; i < warmups; ++i)
+			iteration(operation);
+		double[] scores = new double[iterations];
+		long operations = 0;
+		for (int i = 0; i < iterations; ++i) {
+			long[] measure = iteration(operation);
+			operations += measure[0];
+			scores[i] = (double) measure[1] / measure[0];
+		}
+		double mean = 0, min = Double.POSITIVE_INFINITY;
+		for (double score : scores) {
+			mean += score;
+			min = Math.min(min, score);
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double score : scores)
+			variance += (score - mean) * (score - mean);
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+		Result result = new Result(name, iterations, operations, mean, error, min);
+		results.add(result);
+		System.out.printf(Locale.ROOT, "%-40s %14.1f +- %10.1f ns/op%n", name, mean, error);
+		return this;
+	}
+
+	/**
+	 * Check whether a benchmark name matches the filter (e.g. for skipping
+	 * preparation of benchmarks which are not run)
+	 *
+	 * @param name benchmark name
+	 * @return true if the name matches
+	 */
+	public boolean matches(String name) {
+		return filter == null || filter.matcher(name).find();
+	}
+
+	/**
+	 * Run an iteration: the operation is run repeatedly until the iteration time
+	 * is over. The time is checked after batches of operations, the batch grows
+	 * while it is short relatively to the iteration time, so the overhead of the
+	 * timer is negligible even for the shortest operations
+	 *
+	 * @param operation the benchmarked operation
+	 * @return amount of operations and the elapsed time in nanoseconds
+	 */
+	private long[] iteration(Supplier<?> operation) {
+		long count = 0;
+		long batch = 1;
+		long start = System.nanoTime();
+		long elapsed = 0;
+		do {
+			long batchStart = elapsed;
+			for (long i = batch; i > 0; --i) {
+				Object result = operation.get();
+				if (result == sentinel)
+					sink = result;
+			}
+			count += batch;
+			elapsed = System.nanoTime() - start;
+			if ((elapsed - batchStart) * BATCH_RATIO < iterationTime)
+				batch <<= 1;
+		} while (elapsed < iterationTime);
+		return new long[] { count, elapsed };
+	}
+
+	/**
+	 * The results of the benchmarks which have been run
+	 *
+	 * @return unmodifiable list of the results
+	 */
+	public List<Result> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Write the results into CSV file
+	 *
+	 * @param file the file
+	 */
+	public void writeCsv(Path file) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+			out.println("name,iterations,operations,mean_ns,error_ns,min_ns");
+			for (Result r : results)
+				out.printf(Locale.ROOT, "%s,%d,%d,%.3f,%.3f,%.3f%n", r.name(), r.iterations(), r.operations(),
+						r.mean(), r.error(), r.min());
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write benchmark results " + file, e);
+		}
+	}
+
+	/**
+	 * Write the results into JSON file
+	 *
+	 * @param file the file
+	 */
+	public void writeJson(Path file) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+			out.println("[");
+			for (int i = 0; i < results.size(); ++i) {
+				Result r = results.get(i);
+				out.printf(Locale.ROOT,
+						"  {\"name\": \"%s\", \"iterations\": %d, \"operations\": %d, \"mean_ns\": %.3f, \"error_ns\": %.3f, \"min_ns\": %.3f}%s%n",
+						r.name(), r.iterations(), r.operations(), r.mean(), r.error(), r.min(),
+						i < results.size() - 1 ? "," : "");
+			}
+			out.println("]");
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write benchmark results " + file, e);
+		}
+	}
+}
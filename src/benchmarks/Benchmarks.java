@@ -0,0 +1,280 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import geometries.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.Grid;
+import renderer.GridRayTracer;
+import renderer.RayTracerBase;
+import renderer.RayTracerType;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+import scene.SceneGenerator;
+
+/**
+ * The benchmarks suite of the ray tracer hot paths: primitives math, ray
+ * intersections of each geometry, grid construction and traversal, ray tracing
+ * of canonical scenes and end-to-end image rendering, and optionally the
+ * scaling of grid construction and ray tracing by the amount of primitives of
+ * generated scenes (see {@link SceneGenerator}).<br>
+ * Usage: {@code java benchmarks.Benchmarks [options]}, options:
+ * <ul>
+ * <li>{@code -w <n>} - amount of warmup iterations (default 3)</li>
+ * <li>{@code -i <n>} - amount of measured iterations (default 5)</li>
+ * <li>{@code -t <seconds>} - time of an iteration (default 1)</li>
+ * <li>{@code -f <regex>} - run only the benchmarks whose names match</li>
+ * <li>{@code -scale <n>} - run also the scaling benchmarks up to n primitives
+ * (e.g. 10000000)</li>
+ * <li>{@code -csv <file>} - write the results into CSV file</li>
+ * <li>{@code -json <file>} - write the results into JSON file</li>
+ * </ul>
+ */
+public final class Benchmarks {
+	/** Amount of rays in the rays sets of the benchmarks */
+	private static final int RAYS = 4096;
+	/** Amount of spheres in the grid scene */
+	private static final int SPHERES = 1000;
+
+	/** Don't let anyone instantiate this class. */
+	private Benchmarks() {
+	}
+
+	/**
+	 * Run the benchmarks
+	 *
+	 * @param args the options (see the class documentation)
+	 */
+	public static void main(String[] args) {
+		int warmups = 3, iterations = 5;
+		double time = 1;
+		long scale = 0;
+		String filter = null, csv = null, json = null;
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value of option " + args[i]);
+			switch (args[i]) {
+			case "-w" -> warmups = Integer.parseInt(args[i + 1]);
+			case "-i" -> iterations = Integer.parseInt(args[i + 1]);
+			case "-t" -> time = Double.parseDouble(args[i + 1]);
+			case "-f" -> filter = args[i + 1];
+			case "-scale" -> scale = Long.parseLong(args[i + 1]);
+			case "-csv" -> csv = args[i + 1];
+			case "-json" -> json = args[i + 1];
+			default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		Benchmark benchmark = new Benchmark(warmups, iterations, time, filter);
+		primitives(benchmark);
+		intersections(benchmark);
+		grid(benchmark);
+		rendering(benchmark);
+		if (scale > 0)
+			scaling(benchmark, scale);
+		if (csv != null)
+			benchmark.writeCsv(Path.of(csv));
+		if (json != null)
+			benchmark.writeJson(Path.of(json));
+	}
+
+	/**
+	 * Benchmarks of Vector and Double3 math, including the checked and the trusted
+	 * (see {@link Vector#trusted(double, double, double)}) vector construction
+	 *
+	 * @param benchmark the benchmark harness
+	 */
+	private static void primitives(Benchmark benchmark) {
+		Vector v1 = new Vector(1, 2, 3);
+		Vector v2 = new Vector(-2, 0.5, 4);
+		Point p = new Point(3, -1, 2);
+		Double3 d1 = new Double3(0.2, 0.4, 0.6);
+		Double3 d2 = new Double3(0.9, 0.7, 0.5);
+		benchmark //
+				.run("vector.add", () -> v1.add(v2)) //
+				.run("vector.scale", () -> v1.scale(2.5)) //
+				.run("vector.dotProduct", () -> v1.dotProduct(v2)) //
+				.run("vector.crossProduct", () -> v1.crossProduct(v2)) //
+				.run("vector.length", () -> v1.length()) //
+				.run("vector.normalize", () -> v1.normalize()) //
+				.run("vector.new", () -> new Vector(v1.getX(), v1.getY(), v1.getZ())) //
+				.run("vector.trusted", () -> Vector.trusted(v1.getX(), v1.getY(), v1.getZ())) //
+				.run("point.subtract", () -> p.subtract(Point.ZERO)) //
+				.run("point.distance", () -> p.distance(v1)) //
+				.run("double3.add", () -> d1.add(d2)) //
+				.run("double3.scale", () -> d1.scale(2.5)) //
+				.run("double3.product", () -> d1.product(d2));
+	}
+
+	/**
+	 * Benchmarks of the ray intersections of each geometry type - the rays are
+	 * shot from the origin towards the geometry, part of them miss it
+	 *
+	 * @param benchmark the benchmark harness
+	 */
+	private static void intersections(Benchmark benchmark) {
+		Point center = new Point(0, 0, -100);
+		Ray axis = new Ray(new Point(0, -50, -100), Vector.AXIS_Y);
+		List<Ray> rays = rays(new Random(Benchmark.SEED), 0.6);
+		intersections(benchmark, "sphere", new Sphere(center, 30d), rays);
+		intersections(benchmark, "plane", new Plane(center, new Vector(0, 1, 1)), rays);
+		intersections(benchmark, "triangle",
+				new Triangle(new Point(-40, -30, -100), new Point(40, -30, -100), new Point(0, 40, -100)), rays);
+		intersections(benchmark, "polygon", new Polygon(new Point(-30, -30, -100), new Point(30, -30, -100),
+				new Point(30, 30, -100), new Point(-30, 30, -100)), rays);
+		intersections(benchmark, "tube", new Tube(20, axis), rays);
+		intersections(benchmark, "cylinder", new Cylinder(20, axis, 100), rays);
+		intersections(benchmark, "geometries", spheres(100).geometries, rays);
+		intersections(benchmark, "instance",
+				new Instance(new Sphere(Point.ZERO, 30d), Transform.translation(new Vector(0, 0, -100))), rays);
+	}
+
+	/**
+	 * Benchmark of the ray intersections of a geometry
+	 *
+	 * @param benchmark the benchmark harness
+	 * @param name      geometry name
+	 * @param geometry  the geometry
+	 * @param rays      the rays
+	 */
+	private static void intersections(Benchmark benchmark, String name, Intersectable geometry, List<Ray> rays) {
+		benchmark.run("intersections." + name, cycle(rays, geometry::calculateIntersections));
+	}
+
+	/**
+	 * Benchmarks of grid construction and traversal, of the bounding volume
+	 * hierarchy construction, and of the ray/box slab test
+	 *
+	 * @param benchmark the benchmark harness
+	 */
+	private static void grid(Benchmark benchmark) {
+		Scene scene = spheres(SPHERES);
+		Grid grid = new Grid(scene.geometries);
+		benchmark //
+				.run("grid.build", () -> new Grid(scene.geometries)) //
+				.run("ray.intersectBox", cycle(rays(new Random(Benchmark.SEED), 1), //
+						ray -> ray.intersectBox(-50, -50, -150, 50, 50, -50, Double.POSITIVE_INFINITY))) //
+				.run("grid.traverse", cycle(rays(new Random(Benchmark.SEED), 1), //
+						ray -> grid.traverse(ray, Double.POSITIVE_INFINITY)));
+		for (Bvh.Split split : Bvh.Split.values())
+			benchmark.run("bvh.build." + split.name().toLowerCase(), () -> Bvh.build(scene.geometries, split));
+	}
+
+	/**
+	 * Benchmarks of ray tracing and rendering of the canonical scenes
+	 *
+	 * @param benchmark the benchmark harness
+	 */
+	private static void rendering(Benchmark benchmark) {
+		Scene scene = spheres(SPHERES);
+		List<Ray> rays = rays(new Random(Benchmark.SEED), 1);
+		RayTracerBase simple = new SimpleRayTracer(scene);
+		RayTracerBase grid = new GridRayTracer(scene);
+		benchmark //
+				.run("traceRay.simple", cycle(rays, simple::traceRay)) //
+				.run("traceRay.grid", cycle(rays, grid::traceRay));
+
+		for (RayTracerType type : RayTracerType.values()) {
+			Camera camera = Camera.getBuilder() //
+					.setLocation(Point.ZERO).setDirection(new Point(0, 0, -1), Vector.AXIS_Y) //
+					.setVpDistance(100).setVpSize(200, 200) //
+					.setResolution(128, 128) //
+					.setRayTracer(scene, type) //
+					.build();
+			benchmark.run("renderImage." + type.name().toLowerCase(), camera::renderImage);
+		}
+		for (Bvh.Split split : Bvh.Split.values()) {
+			Camera camera = Camera.getBuilder() //
+					.setLocation(Point.ZERO).setDirection(new Point(0, 0, -1), Vector.AXIS_Y) //
+					.setVpDistance(100).setVpSize(200, 200) //
+					.setResolution(128, 128) //
+					.setRayTracer(scene, RayTracerType.SIMPLE).setBvh(split) //
+					.build();
+			benchmark.run("renderImage.bvh." + split.name().toLowerCase(), camera::renderImage);
+		}
+	}
+
+	/**
+	 * Operation that applies a function on the next element of a list each time
+	 * (cyclically)
+	 *
+	 * @param <T>      the type of the list elements
+	 * @param list     the list
+	 * @param function the function
+	 * @return the operation
+	 */
+	private static <T> Supplier<Object> cycle(List<T> list, Function<T, ?> function) {
+		int[] next = { 0 };
+		return () -> {
+			T item = list.get(next[0]);
+			next[0] = (next[0] + 1) % list.size();
+			return function.apply(item);
+		};
+	}
+
+	/**
+	 * Generate rays from the origin towards -Z in a random cone
+	 *
+	 * @param random the random numbers generator
+	 * @param spread the tangent of the cone half angle
+	 * @return the rays
+	 */
+	private static List<Ray> rays(Random random, double spread) {
+		Ray[] rays = new Ray[RAYS];
+		for (int i = 0; i < RAYS; ++i)
+			rays[i] = new Ray(Point.ZERO, new Vector((random.nextDouble() * 2 - 1) * spread,
+					(random.nextDouble() * 2 - 1) * spread, -1).normalize());
+		return List.of(rays);
+	}
+
+	/**
+	 * Benchmarks of scaling of grid construction and ray tracing by the amount
+	 * of primitives - from 10 primitives up to the maximal amount in powers of 10,
+	 * for spheres in uniform and in clustered layouts and for tessellated
+	 * surfaces. The primitives size is inversely proportional to the cubic root of
+	 * their amount, so the scene density is kept.
+	 *
+	 * @param benchmark the benchmark harness
+	 * @param max       the maximal amount of primitives
+	 */
+	private static void scaling(Benchmark benchmark, long max) {
+		List<Ray> rays = rays(new Random(Benchmark.SEED), 1);
+		for (int count = 10; count <= max; count *= 10) {
+			double size = 50 / Math.cbrt(count);
+			var generators = new LinkedHashMap<String, SceneGenerator>();
+			generators.put("uniform", new SceneGenerator(Benchmark.SEED).setSpheres(count));
+			generators.put("clustered", new SceneGenerator(Benchmark.SEED).setSpheres(count).setClustered(8, 0.1));
+			generators.put("triangles", new SceneGenerator(Benchmark.SEED).setTriangles(count));
+			for (var entry : generators.entrySet()) {
+				String name = "scale." + entry.getKey() + "." + count;
+				if (!benchmark.matches(name + ".grid.build") && !benchmark.matches(name + ".traceRay.grid"))
+					continue;
+				Scene scene = entry.getValue().setSize(size / 2, size).generate(name);
+				RayTracerBase tracer = new GridRayTracer(scene);
+				benchmark //
+						.run(name + ".grid.build", () -> new Grid(scene.geometries)) //
+						.run(name + ".traceRay.grid", cycle(rays, tracer::traceRay));
+			}
+			if (count > Integer.MAX_VALUE / 10)
+				break;
+		}
+	}
+
+	/**
+	 * Generate canonical scene of random spheres on a floor plane, lit by a point
+	 * light
+	 *
+	 * @param count amount of spheres
+	 * @return the scene
+	 */
+	private static Scene spheres(int count) {
+		return new SceneGenerator(Benchmark.SEED).setSpheres(count).setSize(2, 6).setFloor(true)
+				.generate("Benchmark spheres");
+	}
+}
@@ -0,0 +1,604 @@
+package geometries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+import primitives.Double3;
+
+/**
+ * Bounding volume hierarchy (BVH) builder: it rebuilds a collection of
+ * geometries into a balanced binary hierarchy of nested collections, each one
+ * culling the rays by its bounding box (see {@link Geometries#setCbr(boolean)}).
+ * A ray is then tested only against the geometries whose boxes it crosses, so
+ * the cost of intersecting a scene grows logarithmically with the amount of its
+ * geometries.<br>
+ * Nested collections of the source are flattened into the hierarchy, and
+ * unbounded geometries (e.g. planes) are kept beside the hierarchy root. The
+ * source collection is not changed.<br>
+ * The build is parallel on the common fork-join pool: the bounding boxes of the
+ * geometries are calculated in parallel, and the subtrees of large nodes are
+ * built (including their split selection) as separate tasks.
+ */
+public final class Bvh {
+	/** Strategy of splitting the geometries of a node between its two children */
+	public enum Split {
+		/**
+		 * Halve the geometries by the median of their box centers along the longest
+		 * axis of the centers - fast build, balanced hierarchy
+		 */
+		MEDIAN,
+		/**
+		 * Split by the minimal surface area heuristic cost (binned) - slower build,
+		 * cheaper traversal for unevenly distributed geometries
+		 */
+		SAH,
+		/**
+		 * Linear BVH: sort the geometries by the Morton codes of their box centers
+		 * (parallel radix sort) and split by the highest differing code bit - nearly
+		 * instant build in linear time, somewhat slower traversal; it suits scenes of
+		 * millions of geometries and animation frames rebuilt every frame
+		 */
+		LBVH
+	}
+
+	/** The maximal amount of geometries in a leaf */
+	private static final int LEAF_SIZE = 4;
+	/** Amount of bins of the surface area heuristic */
+	private static final int BINS = 16;
+	/**
+	 * Cost of testing a box relative to the cost of intersecting a geometry (for
+	 * the surface area heuristic)
+	 */
+	private static final double TRAVERSAL_COST = 0.5;
+	/** Amount of geometries at which the build of a node is a parallel task */
+	private static final int PARALLEL_THRESHOLD = 1024;
+	/**
+	 * Amount of geometries from which the Morton codes are 63 bits long (21 bits
+	 * per axis) instead of 30 bits (10 bits per axis)
+	 */
+	private static final int LONG_CODES = 1 << 20;
+	/** Amount of bits of a digit of the radix sort */
+	private static final int RADIX_BITS = 8;
+
+	/** The split strategy */
+	private final Split split;
+	/** The bounded geometries */
+	private final Intersectable[] items;
+	/** Bounding boxes of the geometries (min x, y, z and max x, y, z of each one) */
+	private final double[] boxes;
+	/** Centers of the bounding boxes of the geometries (x, y, z of each one) */
+	private final double[] centers;
+	/** Indices of the geometries in the initial order of the build */
+	private final int[] order;
+	/**
+	 * Morton codes of the geometries in the initial order (sorted), null unless the
+	 * strategy is {@link Split#LBVH}
+	 */
+	private final long[] codes;
+
+	/**
+	 * Constructs a builder of a hierarchy of bounded geometries
+	 *
+	 * @param split the split strategy
+	 * @param items the bounded geometries
+	 */
+	private Bvh(Split split, List<Intersectable> items) {
+		this.split = split;
+		this.items = items.toArray(new Intersectable[0]);
+		this.boxes = new double[this.items.length * 6];
+		this.centers = new double[this.items.length * 3];
+		IntStream indices = IntStream.range(0, this.items.length);
+		if (this.items.length >= PARALLEL_THRESHOLD)
+			indices = indices.parallel();
+		indices.forEach(i -> {
+			List<Double3> edges = this.items[i].getEdges();
+			Double3 min = edges.get(0), max = edges.get(1);
+			boxes[i * 6] = min.d1();
+			boxes[i * 6 + 1] = min.d2();
+			boxes[i * 6 + 2] = min.d3();
+			boxes[i * 6 + 3] = max.d1();
+			boxes[i * 6 + 4] = max.d2();
+			boxes[i * 6 + 5] = max.d3();
+			for (int axis = 0; axis < 3; ++axis)
+				centers[i * 3 + axis] = (boxes[i * 6 + axis] + boxes[i * 6 + axis + 3]) / 2;
+		});
+
+		this.order = new int[this.items.length];
+		for (int i = 0; i < order.length; ++i)
+			order[i] = i;
+		if (split == Split.LBVH) {
+			codes = mortonCodes();
+			radixSort(codes, order, this.items.length <= LONG_CODES ? 30 : 63);
+		} else
+			codes = null;
+	}
+
+	/**
+	 * Build a bounding volume hierarchy of geometries
+	 *
+	 * @param geometries the geometries (they are not changed)
+	 * @param split      the split strategy
+	 * @return new collection of the hierarchy root and the unbounded geometries
+	 */
+	public static Geometries build(Geometries geometries, Split split) {
+		if (split == null)
+			throw new IllegalArgumentException("Split strategy must not be null");
+		List<Intersectable> bounded = new ArrayList<>();
+		List<Intersectable> unbounded = new ArrayList<>();
+		flatten(geometries, bounded, unbounded);
+
+		Geometries result = new Geometries().setCbr(true);
+		if (!bounded.isEmpty()) {
+			Bvh bvh = new Bvh(split, bounded);
+			int count = bvh.order.length;
+			result.add(count >= PARALLEL_THRESHOLD //
+					? ForkJoinPool.commonPool().invoke(bvh.new Node(bvh.order, 0, count))
+					: bvh.build(bvh.order, 0, count));
+		}
+		result.add(unbounded.toArray(new Intersectable[0]));
+		return result;
+	}
+
+	/**
+	 * Collect the geometries of a collection and of its nested collections
+	 *
+	 * @param geometries the collection
+	 * @param bounded    the bounded geometries collected
+	 * @param unbounded  the unbounded geometries collected
+	 */
+	private static void flatten(Geometries geometries, List<Intersectable> bounded, List<Intersectable> unbounded) {
+		for (Intersectable geometry : geometries.getGeometries()) {
+			if (geometry instanceof Geometries nested) {
+				flatten(nested, bounded, unbounded);
+				continue;
+			}
+			List<Double3> edges = geometry.getEdges();
+			Double3 min = edges.get(0), max = edges.get(1);
+			if (Geometries.bounded(new double[] { min.d1(), min.d2(), min.d3(), max.d1(), max.d2(), max.d3() }))
+				bounded.add(geometry);
+			else
+				unbounded.add(geometry);
+		}
+	}
+
+	/**
+	 * Build the hierarchy node of a range of geometries
+	 *
+	 * @param order indices of the geometries, the range is reordered by the split
+	 * @param from  the first index of the range
+	 * @param to    the index after the last one of the range
+	 * @return the node - a geometry if the range has a single one, otherwise a
+	 *         culling collection
+	 */
+	private Intersectable build(int[] order, int from, int to) {
+		int count = to - from;
+		if (count == 1)
+			return items[order[from]];
+
+		int middle = switch (split) {
+		case SAH -> sahSplit(order, from, to);
+		case LBVH -> mortonSplit(from, to);
+		default -> medianSplit(order, from, to);
+		};
+		if (middle < 0) {
+			Geometries leaf = new Geometries().setCbr(true);
+			for (int i = from; i < to; ++i)
+				leaf.add(items[order[i]]);
+			return leaf;
+		}
+		if (count < PARALLEL_THRESHOLD)
+			return new Geometries(build(order, from, middle), build(order, middle, to)).setCbr(true);
+		Node left = new Node(order, from, middle);
+		left.fork();
+		Intersectable right = new Node(order, middle, to).compute();
+		return new Geometries(left.join(), right).setCbr(true);
+	}
+
+	/** Task of building the hierarchy node of a range of geometries */
+	private final class Node extends RecursiveTask<Intersectable> {
+		/** Serialization version */
+		private static final long serialVersionUID = 1L;
+		/** indices of the geometries */
+		private final int[] order;
+		/** the first index of the range */
+		private final int from;
+		/** the index after the last one of the range */
+		private final int to;
+
+		/**
+		 * Constructs the task of building a node
+		 *
+		 * @param order indices of the geometries, the range is reordered by the
+		 *              split
+		 * @param from  the first index of the range
+		 * @param to    the index after the last one of the range
+		 */
+		private Node(int[] order, int from, int to) {
+			this.order = order;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Intersectable compute() {
+			return build(order, from, to);
+		}
+	}
+
+	/**
+	 * Split a range of geometries by the median of their centers along the
+	 * longest axis of the centers
+	 *
+	 * @param order indices of the geometries, the range is reordered
+	 * @param from  the first index of the range
+	 * @param to    the index after the last one of the range
+	 * @return the index of the split, or -1 if the range is a leaf
+	 */
+	private int medianSplit(int[] order, int from, int to) {
+		if (to - from <= LEAF_SIZE)
+			return -1;
+		double[] bounds = centerBounds(order, from, to);
+		sortByCenter(order, from, to, longestAxis(bounds), bounds);
+		return (from + to) >>> 1;
+	}
+
+	/**
+	 * Split a range of geometries sorted by their Morton codes at the highest bit
+	 * which differs in the range - the first geometry with the bit set starts the
+	 * second part
+	 *
+	 * @param from the first index of the range
+	 * @param to   the index after the last one of the range
+	 * @return the index of the split, or -1 if the range is a leaf
+	 */
+	private int mortonSplit(int from, int to) {
+		if (to - from <= LEAF_SIZE)
+			return -1;
+		long first = codes[from];
+		long bit = Long.highestOneBit(first ^ codes[to - 1]);
+		if (bit == 0) // all the codes are equal
+			return (from + to) >>> 1;
+		int low = from + 1, high = to - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (((first ^ codes[middle]) & bit) != 0)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Calculate the Morton codes of the box centers of the geometries, quantized
+	 * within the bounds of all the geometries boxes
+	 *
+	 * @return the codes
+	 */
+	private long[] mortonCodes() {
+		double[] bounds = new double[6];
+		emptyBox(bounds, 0);
+		for (int i = 0; i < items.length; ++i)
+			growBox(bounds, 0, boxes, i * 6);
+		int bits = items.length <= LONG_CODES ? 10 : 21;
+		double cells = (1 << bits) - 1;
+		double[] scale = new double[3];
+		for (int axis = 0; axis < 3; ++axis) {
+			double extent = bounds[axis + 3] - bounds[axis];
+			scale[axis] = extent > 0 ? cells / extent : 0;
+		}
+
+		long[] result = new long[items.length];
+		IntStream indices = IntStream.range(0, items.length);
+		if (items.length >= PARALLEL_THRESHOLD)
+			indices = indices.parallel();
+		indices.forEach(i -> {
+			long code = 0;
+			for (int axis = 0; axis < 3; ++axis)
+				code |= spreadBits((long) ((centers[i * 3 + axis] - bounds[axis]) * scale[axis])) << (2 - axis);
+			result[i] = code;
+		});
+		return result;
+	}
+
+	/**
+	 * Spread the low 21 bits of a number so that there are two zero bits between
+	 * each two of them
+	 *
+	 * @param x the number
+	 * @return the spread bits
+	 */
+	private static long spreadBits(long x) {
+		x &= 0x1fffffL;
+		x = (x | x << 32) & 0x1f00000000ffffL;
+		x = (x | x << 16) & 0x1f0000ff0000ffL;
+		x = (x | x << 8) & 0x100f00f00f00f00fL;
+		x = (x | x << 4) & 0x10c30c30c30c30c3L;
+		x = (x | x << 2) & 0x1249249249249249L;
+		return x;
+	}
+
+	/**
+	 * Stable parallel LSD radix sort of keys with their values: each pass counts
+	 * the digits of the key chunks in parallel, sums them into the target ranges
+	 * of each digit and chunk, and scatters the chunks in parallel
+	 *
+	 * @param keys   the non-negative keys, sorted in place
+	 * @param values the values of the keys, reordered in place with them
+	 * @param bits   amount of the low bits of the keys
+	 */
+	private static void radixSort(long[] keys, int[] values, int bits) {
+		int n = keys.length;
+		int radix = 1 << RADIX_BITS;
+		int chunks = n < PARALLEL_THRESHOLD ? 1
+				: Math.min(n / PARALLEL_THRESHOLD, ForkJoinPool.getCommonPoolParallelism() * 4);
+		int chunkSize = (n + chunks - 1) / chunks;
+		long[] sourceKeys = keys, targetKeys = new long[n];
+		int[] sourceValues = values, targetValues = new int[n];
+		int[][] counts = new int[chunks][radix];
+
+		for (int shift = 0; shift < bits; shift += RADIX_BITS) {
+			final int digitShift = shift;
+			final long[] fromKeys = sourceKeys, toKeys = targetKeys;
+			final int[] fromValues = sourceValues, toValues = targetValues;
+			IntStream parts = IntStream.range(0, chunks);
+			if (chunks > 1)
+				parts = parts.parallel();
+			parts.forEach(c -> {
+				Arrays.fill(counts[c], 0);
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; ++i)
+					++counts[c][(int) (fromKeys[i] >>> digitShift) & (radix - 1)];
+			});
+			int sum = 0;
+			for (int d = 0; d < radix; ++d)
+				for (int c = 0; c < chunks; ++c) {
+					int count = counts[c][d];
+					counts[c][d] = sum;
+					sum += count;
+				}
+			parts = IntStream.range(0, chunks);
+			if (chunks > 1)
+				parts = parts.parallel();
+			parts.forEach(c -> {
+				for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; ++i) {
+					int position = counts[c][(int) (fromKeys[i] >>> digitShift) & (radix - 1)]++;
+					toKeys[position] = fromKeys[i];
+					toValues[position] = fromValues[i];
+				}
+			});
+			sourceKeys = toKeys;
+			targetKeys = fromKeys;
+			sourceValues = toValues;
+			targetValues = fromValues;
+		}
+		if (sourceKeys != keys) {
+			System.arraycopy(sourceKeys, 0, keys, 0, n);
+			System.arraycopy(sourceValues, 0, values, 0, n);
+		}
+	}
+
+	/**
+	 * Split a range of geometries by the minimal binned surface area heuristic
+	 * cost over the three axes
+	 *
+	 * @param order indices of the geometries, the range is reordered
+	 * @param from  the first index of the range
+	 * @param to    the index after the last one of the range
+	 * @return the index of the split, or -1 if the range is a leaf
+	 */
+	private int sahSplit(int[] order, int from, int to) {
+		int count = to - from;
+		double[] bounds = centerBounds(order, from, to);
+		double bestCost = Double.POSITIVE_INFINITY;
+		int bestAxis = -1, bestBin = -1;
+
+		int[] binCounts = new int[BINS];
+		double[] binBoxes = new double[BINS * 6];
+		double[] rightAreas = new double[BINS];
+		for (int axis = 0; axis < 3; ++axis) {
+			double extent = bounds[axis + 3] - bounds[axis];
+			if (extent <= 0)
+				continue;
+			Arrays.fill(binCounts, 0);
+			for (int b = 0; b < BINS; ++b)
+				emptyBox(binBoxes, b * 6);
+			for (int i = from; i < to; ++i) {
+				int b = bin(order[i], axis, bounds[axis], extent);
+				++binCounts[b];
+				growBox(binBoxes, b * 6, boxes, order[i] * 6);
+			}
+
+			// sweep from the right to collect the areas of the right sides
+			double[] box = new double[6];
+			emptyBox(box, 0);
+			for (int b = BINS - 1; b > 0; --b) {
+				growBox(box, 0, binBoxes, b * 6);
+				rightAreas[b] = area(box);
+			}
+			// sweep from the left and evaluate the split after each bin
+			emptyBox(box, 0);
+			int left = 0;
+			for (int b = 0; b < BINS - 1; ++b) {
+				growBox(box, 0, binBoxes, b * 6);
+				left += binCounts[b];
+				if (left == 0 || left == count)
+					continue;
+				double cost = area(box) * left + rightAreas[b + 1] * (count - left);
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestAxis = axis;
+					bestBin = b;
+				}
+			}
+		}
+
+		if (bestAxis < 0) // all the centers coincide
+			return count <= LEAF_SIZE ? -1 : (from + to) >>> 1;
+
+		double[] box = new double[6];
+		emptyBox(box, 0);
+		for (int i = from; i < to; ++i)
+			growBox(box, 0, boxes, order[i] * 6);
+		double nodeArea = area(box);
+		if (count <= LEAF_SIZE && (nodeArea <= 0 || TRAVERSAL_COST + bestCost / nodeArea >= count))
+			return -1;
+
+		// partition the range by the chosen bin
+		int i = from, j = to - 1;
+		double extent = bounds[bestAxis + 3] - bounds[bestAxis];
+		while (i <= j) {
+			if (bin(order[i], bestAxis, bounds[bestAxis], extent) <= bestBin)
+				++i;
+			else {
+				int t = order[i];
+				order[i] = order[j];
+				order[j--] = t;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Find the bin of the center of a geometry along an axis
+	 *
+	 * @param item   index of the geometry
+	 * @param axis   the axis
+	 * @param min    the minimal center coordinate along the axis
+	 * @param extent the extent of the center coordinates along the axis
+	 * @return the bin index
+	 */
+	private int bin(int item, int axis, double min, double extent) {
+		int b = (int) ((centers[item * 3 + axis] - min) / extent * BINS);
+		return Math.min(b, BINS - 1);
+	}
+
+	/**
+	 * Calculate the bounds of the centers of a range of geometries
+	 *
+	 * @param order indices of the geometries
+	 * @param from  the first index of the range
+	 * @param to    the index after the last one of the range
+	 * @return the bounds (min x, y, z and max x, y, z)
+	 */
+	private double[] centerBounds(int[] order, int from, int to) {
+		double[] bounds = new double[6];
+		emptyBox(bounds, 0);
+		for (int i = from; i < to; ++i)
+			for (int axis = 0; axis < 3; ++axis) {
+				double c = centers[order[i] * 3 + axis];
+				bounds[axis] = Math.min(bounds[axis], c);
+				bounds[axis + 3] = Math.max(bounds[axis + 3], c);
+			}
+		return bounds;
+	}
+
+	/**
+	 * Find the axis of the longest extent of a box
+	 *
+	 * @param bounds the box (min x, y, z and max x, y, z)
+	 * @return the axis (0 - x, 1 - y, 2 - z)
+	 */
+	private static int longestAxis(double[] bounds) {
+		int axis = 0;
+		for (int a = 1; a < 3; ++a)
+			if (bounds[a + 3] - bounds[a] > bounds[axis + 3] - bounds[axis])
+				axis = a;
+		return axis;
+	}
+
+	/**
+	 * Sort a range of geometries by the coordinate of their centers along an axis.
+	 * The sort keys are primitive: the coordinate quantized to 31 bits within the
+	 * bounds of the centers, packed above the geometry index - so the range is
+	 * sorted without boxing and without comparator calls (centers closer than
+	 * 2<sup>-31</sup> of the extent are ordered by their indices).
+	 *
+	 * @param order  indices of the geometries, the range is sorted
+	 * @param from   the first index of the range
+	 * @param to     the index after the last one of the range
+	 * @param axis   the axis
+	 * @param bounds the bounds of the centers of the range (see
+	 *               {@link #centerBounds(int[], int, int)})
+	 */
+	private void sortByCenter(int[] order, int from, int to, int axis, double[] bounds) {
+		double min = bounds[axis], extent = bounds[axis + 3] - min;
+		double scale = extent > 0 ? Integer.MAX_VALUE / extent : 0;
+		long[] keys = new long[to - from];
+		for (int i = from; i < to; ++i)
+			keys[i - from] = (long) ((centers[order[i] * 3 + axis] - min) * scale) << 32 | order[i];
+		Arrays.sort(keys);
+		for (int i = from; i < to; ++i)
+			order[i] = (int) keys[i - from];
+	}
+
+	/**
+	 * Reset a box to the empty (inverted) box
+	 *
+	 * @param box    the array of the box
+	 * @param offset index of the box in the array
+	 */
+	private static void emptyBox(double[] box, int offset) {
+		for (int axis = 0; axis < 3; ++axis) {
+			box[offset + axis] = Double.POSITIVE_INFINITY;
+			box[offset + axis + 3] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Grow a box to contain another box
+	 *
+	 * @param box         the array of the grown box
+	 * @param offset      index of the grown box in its array
+	 * @param other       the array of the contained box
+	 * @param otherOffset index of the contained box in its array
+	 */
+	private static void growBox(double[] box, int offset, double[] other, int otherOffset) {
+		for (int axis = 0; axis < 3; ++axis) {
+			box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+			box[offset + axis + 3] = Math.max(box[offset + axis + 3], other[otherOffset + axis + 3]);
+		}
+	}
+
+	/**
+	 * Surface area heuristic cost of a hierarchy (as built by
+	 * {@link #build(Geometries, Split)}): the sum of the node box areas, each one
+	 * weighted by the cost of visiting the node and testing its geometries - the
+	 * expected cost of a ray up to the scale of the scene. Unbounded nodes are not
+	 * counted. When the geometries move and the boxes are refitted (see
+	 * {@link Geometries#refit()}), the growth of the cost tells how much the
+	 * hierarchy has degraded.
+	 *
+	 * @param hierarchy the hierarchy
+	 * @return the cost
+	 */
+	public static double cost(Intersectable hierarchy) {
+		if (!(hierarchy instanceof Geometries node))
+			return 0;
+		double cost = 0;
+		int items = 0;
+		for (Intersectable child : node.getGeometries())
+			if (child instanceof Geometries)
+				cost += cost(child);
+			else
+				++items;
+		double[] box = node.boundingBox();
+		return box.length == 6 && Geometries.bounded(box) ? cost + area(box) * (TRAVERSAL_COST + items) : cost;
+	}
+
+	/**
+	 * Calculate the surface area of a box
+	 *
+	 * @param box the box (min x, y, z and max x, y, z)
+	 * @return the area, 0 for an empty box
+	 */
+	private static double area(double[] box) {
+		double dx = box[3] - box[0], dy = box[4] - box[1], dz = box[5] - box[2];
+		if (dx < 0 || dy < 0 || dz < 0)
+			return 0;
+		return 2 * (dx * dy + dy * dz + dz * dx);
+	}
+}
@@ -2,6 +2,9 @@ package geometries;
 
 import static primitives.Util.isZero;
 
+import java.util.List;
+
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -27,6 +30,24 @@ public class Cylinder extends Tube {
 		this.height = height;
 	}
 
+	/**
+	 * The bounding box of the two base disks - unlike a tube, a cylinder is finite
+	 * and takes part in the acceleration structures
+	 */
+	@Override
+	public List<Double3> getEdges() {
+		Vector dir = axis.getDir();
+		Point base1 = axis.getHead();
+		Point base2 = axis.getPoint(height);
+		// the extent of a base disk along an axis is radius × sin(axis, direction)
+		Double3 extent = new Double3(radius * Math.sqrt(Math.max(0, 1 - dir.getX() * dir.getX())),
+				radius * Math.sqrt(Math.max(0, 1 - dir.getY() * dir.getY())),
+				radius * Math.sqrt(Math.max(0, 1 - dir.getZ() * dir.getZ())));
+		Double3 min = base2.min(base1.min(Double3.POSITIVE_INFINITY));
+		Double3 max = base2.max(base1.max(Double3.NEGATIVE_INFINITY));
+		return List.of(min.subtract(extent), max.add(extent));
+	}
+
 	@Override
 	public Vector getNormal(Point p) {
 		/**
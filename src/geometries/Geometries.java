@@ -12,7 +12,11 @@ import primitives.Ray;
 /**
  * The Geometries class implements the Intersectable interface using the
  * Composite design pattern. It represents a collection of geometric objects
- * that can be intersected by a ray.
+ * that can be intersected by a ray.<br>
+ * A collection may cull rays by its conservative bounding region (CBR, see
+ * {@link #setCbr(boolean)}): the axis-aligned box of all its geometries is
+ * cached and a ray which misses it is rejected by a single slab test, without
+ * testing the geometries.
  */
 public class Geometries extends Intersectable {
 
@@ -22,6 +26,24 @@ public class Geometries extends Intersectable {
 	 */
 	private final List<Intersectable> geometries = new LinkedList<>();
 
+	/**
+	 * Relative margin of the cached bounding box, so that intersections on the
+	 * box boundary are not culled by rounding
+	 */
+	private static final double BOX_MARGIN = 1e-9;
+	/** Cached box of a collection with an unbounded (or empty) geometry */
+	private static final double[] UNBOUNDED = new double[0];
+
+	/** Whether the rays are culled by the bounding box of the collection */
+	private boolean cbr = false;
+	/** Whether the culling setting is applied to the nested collections */
+	private boolean cbrNested = false;
+	/**
+	 * The cached bounding box (min x, y, z and max x, y, z), {@link #UNBOUNDED} if
+	 * the collection has no finite box, or null if it is not calculated yet
+	 */
+	private volatile double[] box = null;
+
 	/**
 	 * Default constructor. Initializes an empty collection of geometries.
 	 */
@@ -46,6 +68,127 @@ public class Geometries extends Intersectable {
 	 */
 	public void add(Intersectable... geometries) {
 		this.geometries.addAll(List.of(geometries));
+		box = null;
+		if (cbrNested)
+			for (Intersectable geometry : geometries)
+				if (geometry instanceof Geometries nested)
+					nested.setCbr(cbr, true);
+	}
+
+	/**
+	 * Enable or disable the culling of the rays by the bounding box of this
+	 * collection (the nested collections are not affected). The box is calculated
+	 * when it is first needed and recalculated after geometries are added to the
+	 * collection.
+	 *
+	 * @param enabled whether to cull the rays
+	 * @return the collection itself
+	 */
+	public Geometries setCbr(boolean enabled) {
+		this.cbr = enabled;
+		return this;
+	}
+
+	/**
+	 * Enable or disable the culling of the rays by the bounding box of this
+	 * collection and optionally of all its nested collections, including the
+	 * collections added later (see {@link #setCbr(boolean)})
+	 *
+	 * @param enabled whether to cull the rays
+	 * @param nested  whether to apply the setting to the nested collections
+	 * @return the collection itself
+	 */
+	public Geometries setCbr(boolean enabled, boolean nested) {
+		this.cbr = enabled;
+		this.cbrNested = nested;
+		if (nested)
+			for (Intersectable geometry : geometries)
+				if (geometry instanceof Geometries collection)
+					collection.setCbr(enabled, true);
+		return this;
+	}
+
+	/**
+	 * Drop the cached bounding boxes of the collection and of its nested
+	 * collections after their geometries moved (e.g. an {@link Instance} got a new
+	 * transformation), so the boxes are recalculated when they are next needed.
+	 * The nesting of the collections is kept - see
+	 * {@link Bvh#cost(Intersectable)} for telling when a hierarchy is worth
+	 * rebuilding.
+	 *
+	 * @return the collection itself
+	 */
+	public Geometries refit() {
+		box = null;
+		for (Intersectable geometry : geometries)
+			if (geometry instanceof Geometries nested)
+				nested.refit();
+		return this;
+	}
+
+	/**
+	 * Check whether the rays are culled by the bounding box of the collection
+	 *
+	 * @return true if the culling is enabled
+	 */
+	public boolean isCbr() {
+		return cbr;
+	}
+
+	/**
+	 * The conservative bounding box of the collection: unlike
+	 * {@link #getEdges()}, which skips unbounded geometries, a collection with an
+	 * unbounded geometry (at any nesting level) has no finite box
+	 *
+	 * @return the box (min x, y, z and max x, y, z), or {@link #UNBOUNDED}
+	 */
+	double[] boundingBox() {
+		double[] result = box;
+		if (result != null)
+			return result;
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (Intersectable geometry : geometries) {
+			double[] b;
+			if (geometry instanceof Geometries nested)
+				b = nested.boundingBox();
+			else {
+				List<Double3> edges = geometry.getEdges();
+				Double3 min = edges.get(0), max = edges.get(1);
+				b = new double[] { min.d1(), min.d2(), min.d3(), max.d1(), max.d2(), max.d3() };
+			}
+			if (b == UNBOUNDED || !bounded(b))
+				return box = UNBOUNDED;
+			minX = Math.min(minX, b[0]);
+			minY = Math.min(minY, b[1]);
+			minZ = Math.min(minZ, b[2]);
+			maxX = Math.max(maxX, b[3]);
+			maxY = Math.max(maxY, b[4]);
+			maxZ = Math.max(maxZ, b[5]);
+		}
+		if (geometries.isEmpty())
+			return box = UNBOUNDED;
+
+		double margin = BOX_MARGIN * Math.max(Math.max(Math.max(Math.abs(minX), Math.abs(maxX)),
+				Math.max(Math.abs(minY), Math.abs(maxY))), Math.max(Math.abs(minZ), Math.abs(maxZ)));
+		margin = Math.max(margin, BOX_MARGIN);
+		return box = new double[] { minX - margin, minY - margin, minZ - margin, maxX + margin, maxY + margin,
+				maxZ + margin };
+	}
+
+	/**
+	 * Check whether a box is finite and not inverted (the default edges of an
+	 * unbounded geometry are inverted infinities)
+	 *
+	 * @param b the box (min x, y, z and max x, y, z)
+	 * @return true if the box is finite
+	 */
+	static boolean bounded(double[] b) {
+		for (int i = 0; i < 3; ++i)
+			if (!(Double.isFinite(b[i]) && Double.isFinite(b[i + 3]) && b[i] <= b[i + 3]))
+				return false;
+		return true;
 	}
 
 	@Override
@@ -73,6 +216,11 @@ public class Geometries extends Intersectable {
 
 	@Override
 	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+		if (cbr) {
+			double[] b = boundingBox();
+			if (b != UNBOUNDED && ray.intersectBox(b[0], b[1], b[2], b[3], b[4], b[5], maxDistance) < 0)
+				return null;
+		}
 		List<Intersection> intersections = null;
 		for (Intersectable geo : geometries) {
 			var geometryIntersections = geo.calculateIntersections(ray, maxDistance);
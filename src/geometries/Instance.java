@@ -0,0 +1,122 @@
+package geometries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import primitives.*;
+
+/**
+ * Instance of a shared geometry placed in the scene by an affine
+ * transformation. Many instances may reference the same prototype - a single
+ * geometry, or a whole mesh with its own accelerator (e.g. built once by
+ * {@link Bvh#build(Geometries, Bvh.Split)}) - so the memory and the build time
+ * of a forest of identical trees scale with the unique geometry rather than
+ * with the copies. The instances themselves are bounded, so the scene
+ * accelerator (a grid or a BVH) serves as the top level over them.<br>
+ * A ray is transformed into the prototype space, intersected there, and the
+ * intersections are transformed back with their normals - so the instance
+ * intersections carry their normals (see {@link Intersection#normal}).
+ */
+public class Instance extends Intersectable {
+	/** The shared geometry */
+	private final Intersectable prototype;
+	/** The transformation from the prototype space into the scene */
+	private volatile Transform transform;
+	/** The bounding box of the instance in the scene */
+	private volatile List<Double3> edges;
+
+	/**
+	 * Constructs an instance of a shared geometry
+	 *
+	 * @param prototype the shared geometry - it must not change while it is
+	 *                  instanced
+	 * @param transform the transformation from the prototype space into the
+	 *                  scene
+	 */
+	public Instance(Intersectable prototype, Transform transform) {
+		this.prototype = prototype;
+		this.transform = transform;
+		this.edges = transformedEdges(prototype.getEdges(), transform);
+	}
+
+	/**
+	 * Get the shared geometry
+	 *
+	 * @return the prototype
+	 */
+	public Intersectable getPrototype() {
+		return prototype;
+	}
+
+	/**
+	 * Get the transformation from the prototype space into the scene
+	 *
+	 * @return the transformation
+	 */
+	public Transform getTransform() {
+		return transform;
+	}
+
+	/**
+	 * Move the instance by a new transformation (e.g. between the frames of an
+	 * animation). The acceleration structures holding the instance must be told
+	 * about the move - see {@link Geometries#refit()} and the ray tracers refit.
+	 *
+	 * @param transform the transformation from the prototype space into the scene
+	 * @return the instance itself
+	 */
+	public Instance setTransform(Transform transform) {
+		this.edges = transformedEdges(prototype.getEdges(), transform);
+		this.transform = transform;
+		return this;
+	}
+
+	/**
+	 * The bounding box of the transformed corners of the prototype bounding box
+	 *
+	 * @param prototypeEdges the bounding box of the prototype
+	 * @param transform      the transformation into the scene
+	 * @return the bounding box in the scene, infinite if the prototype is unbounded
+	 */
+	private static List<Double3> transformedEdges(List<Double3> prototypeEdges, Transform transform) {
+		Double3 min = prototypeEdges.get(0), max = prototypeEdges.get(1);
+		if (!Double.isFinite(min.d1()) || !Double.isFinite(min.d2()) || !Double.isFinite(min.d3())
+				|| !Double.isFinite(max.d1()) || !Double.isFinite(max.d2()) || !Double.isFinite(max.d3()))
+			return List.of(Double3.POSITIVE_INFINITY, Double3.NEGATIVE_INFINITY);
+		Double3 low = Double3.POSITIVE_INFINITY;
+		Double3 high = Double3.NEGATIVE_INFINITY;
+		for (int c = 0; c < 8; ++c) {
+			Point corner = transform.apply(new Point((c & 1) == 0 ? min.d1() : max.d1(),
+					(c & 2) == 0 ? min.d2() : max.d2(), (c & 4) == 0 ? min.d3() : max.d3()));
+			low = corner.min(low);
+			high = corner.max(high);
+		}
+		return List.of(low, high);
+	}
+
+	@Override
+	public List<Double3> getEdges() {
+		return edges;
+	}
+
+	@Override
+	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+		// the ray in the prototype space - the distances along it are scaled by the
+		// length of the transformed direction
+		Transform transform = this.transform;
+		Vector direction = transform.applyInverseToDirection(ray.getDir());
+		Ray localRay = new Ray(transform.applyInverse(ray.getHead()), direction);
+		var hits = prototype.calculateIntersections(localRay, maxDistance * direction.length());
+		if (hits == null)
+			return null;
+
+		List<Intersection> intersections = new ArrayList<>(hits.size());
+		for (Intersection hit : hits) {
+			Intersection intersection = new Intersection(hit.geometry, transform.apply(hit.point));
+			intersection.normal = transform
+					.applyToNormal(hit.normal != null ? hit.normal : hit.geometry.getNormal(hit.point));
+			intersections.add(intersection);
+		}
+		return intersections;
+	}
+}
@@ -35,7 +35,8 @@ public abstract class Intersectable {
 		 */
 		public final Material material;
 		/**
-		 * the normal of the geometry
+		 * the normal of the geometry - calculated at shading, unless the intersection
+		 * is created with it (e.g. by a transformed {@link Instance})
 		 */
 		public Vector normal;
 		/**
@@ -115,6 +116,7 @@ public abstract class Intersectable {
 	 * @return list of Intersections that intersection
 	 */
 	public final List<Intersection> calculateIntersections(Ray ray, double maxDistance) {
+		IntersectionProbe.intersectionTest(this);
 		return calculateIntersectionsHelper(ray, maxDistance);
 	}
 
@@ -136,4 +138,22 @@ public abstract class Intersectable {
 		return List.of(new Double3(Double.POSITIVE_INFINITY), new Double3(Double.NEGATIVE_INFINITY));
 	}
 
+	/**
+	 * check whether the geometry intersects an axis aligned box - used for placing
+	 * the geometry in the cells of an acceleration structure. The default test is
+	 * conservative: a geometry is assumed to intersect any box which overlaps its
+	 * bounding box, geometries with an exact test override it
+	 * 
+	 * @param minX the minimal x coordinate of the box
+	 * @param minY the minimal y coordinate of the box
+	 * @param minZ the minimal z coordinate of the box
+	 * @param maxX the maximal x coordinate of the box
+	 * @param maxY the maximal y coordinate of the box
+	 * @param maxZ the maximal z coordinate of the box
+	 * @return false only if the geometry certainly does not intersect the box
+	 */
+	public boolean intersectsBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return true;
+	}
+
 }
@@ -0,0 +1,42 @@
+package geometries;
+
+import java.util.function.Consumer;
+
+/**
+ * Probe of the intersection tests of the geometries - a listener installed by
+ * the renderer (e.g. for rendering statistics) is notified of each
+ * intersection calculation (see
+ * {@link Intersectable#calculateIntersections(primitives.Ray, double)}). The
+ * geometries do not know who listens, and without a listener the probe costs a
+ * single volatile read per intersection test.
+ */
+public final class IntersectionProbe {
+	/** The listener of the intersection tests, null if none is installed */
+	private static volatile Consumer<Intersectable> listener = null;
+
+	/** The probe is a static facility only */
+	private IntersectionProbe() {
+	}
+
+	/**
+	 * Install the listener of the intersection tests - it replaces the former
+	 * one. The listener is called by the threads calculating the intersections,
+	 * so it must be thread safe.
+	 *
+	 * @param listener the listener, null for removing the listener
+	 */
+	public static void setListener(Consumer<Intersectable> listener) {
+		IntersectionProbe.listener = listener;
+	}
+
+	/**
+	 * Notify the listener of an intersection test of a geometry
+	 *
+	 * @param geometry the tested geometry
+	 */
+	static void intersectionTest(Intersectable geometry) {
+		Consumer<Intersectable> current = listener;
+		if (current != null)
+			current.accept(geometry);
+	}
+}
@@ -55,22 +55,57 @@ public class Plane extends Geometry {
 		return normal;
 	}
 
-	@Override
-	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-		Vector vecP0P;
-		try {
-			vecP0P = p.subtract(ray.getHead());
-		} catch (IllegalArgumentException e) {
-			// Ray head is the same as the plane point, no intersection
-			return null;
-		}
+	/**
+	 * Signed distance of a point from the plane, positive at the side the normal
+	 * points to
+	 *
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @return the signed distance
+	 */
+	public double signedDistance(double x, double y, double z) {
+		return normal.getX() * (x - p.getX()) + normal.getY() * (y - p.getY()) + normal.getZ() * (z - p.getZ());
+	}
+
+	/**
+	 * The distance along a ray to its intersection with the plane, computed in
+	 * primitive doubles (without creating the intersection)
+	 *
+	 * @param ray the ray
+	 * @return the distance (not positive if the plane is behind the ray head), or
+	 *         NaN if the ray starts at the plane point or is parallel to the plane
+	 */
+	public double distance(Ray ray) {
+		Point head = ray.getHead();
+		double dx = p.getX() - head.getX();
+		double dy = p.getY() - head.getY();
+		double dz = p.getZ() - head.getZ();
+		// Ray head is the same as the plane point, no intersection
+		if (isZero(dx) && isZero(dy) && isZero(dz))
+			return Double.NaN;
 
 		double denominator = alignZero(normal.dotProduct(ray.getDir()));
 		if (isZero(denominator))
-			return null;
+			return Double.NaN;
+
+		return alignZero((normal.getX() * dx + normal.getY() * dy + normal.getZ() * dz) / denominator);
+	}
+
+	@Override
+	public boolean intersectsBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		// the box intersects the plane if its center is not farther from the plane
+		// than the projection radius of the box on the normal
+		double radius = (maxX - minX) / 2 * Math.abs(normal.getX()) + (maxY - minY) / 2 * Math.abs(normal.getY())
+				+ (maxZ - minZ) / 2 * Math.abs(normal.getZ());
+		return Math.abs(signedDistance((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2)) <= radius;
+	}
 
-		double t = alignZero(normal.dotProduct(vecP0P) / denominator);
-		return t <= 0 || alignZero(t - maxDistance) > 0 ? null //
+	@Override
+	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+		// computed in primitive doubles, so a missing ray allocates nothing
+		double t = distance(ray);
+		return !(t > 0) || alignZero(t - maxDistance) > 0 ? null //
 				: List.of(new Intersection(this, ray.getPoint(t)));
 	}
 
@@ -94,6 +94,74 @@ public class Polygon extends Geometry {
 		return List.of(min, max);
 	}
 
+	/**
+	 * Separating axis test of the (convex) polygon against the box. The candidate
+	 * separating axes are the box normals, the polygon normal and the cross
+	 * products of the polygon edges with the box normals - the polygon and the box
+	 * intersect if and only if none of them separates their projections
+	 */
+	@Override
+	public boolean intersectsBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		// box center and half extents, the vertices are taken relative to the center
+		double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2, cz = (minZ + maxZ) / 2;
+		double hx = (maxX - minX) / 2, hy = (maxY - minY) / 2, hz = (maxZ - minZ) / 2;
+		double[] xs = new double[size], ys = new double[size], zs = new double[size];
+		for (int i = 0; i < size; ++i) {
+			Point p = vertices.get(i);
+			xs[i] = p.getX() - cx;
+			ys[i] = p.getY() - cy;
+			zs[i] = p.getZ() - cz;
+		}
+
+		// the box normals
+		if (separated(xs, ys, zs, 1, 0, 0, hx, hy, hz) || separated(xs, ys, zs, 0, 1, 0, hx, hy, hz)
+				|| separated(xs, ys, zs, 0, 0, 1, hx, hy, hz))
+			return false;
+		// the polygon normal
+		Vector n = plane.getNormal(vertices.get(0));
+		if (separated(xs, ys, zs, n.getX(), n.getY(), n.getZ(), hx, hy, hz))
+			return false;
+		// the edges crossed with the box normals
+		for (int i = 0; i < size; ++i) {
+			int next = (i + 1) % size;
+			double ex = xs[next] - xs[i], ey = ys[next] - ys[i], ez = zs[next] - zs[i];
+			if (separated(xs, ys, zs, 0, -ez, ey, hx, hy, hz) || separated(xs, ys, zs, ez, 0, -ex, hx, hy, hz)
+					|| separated(xs, ys, zs, -ey, ex, 0, hx, hy, hz))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether an axis separates the projections of the polygon and of a box
+	 * centered at the origin
+	 * 
+	 * @param xs the x coordinates of the vertices (relative to the box center)
+	 * @param ys the y coordinates of the vertices (relative to the box center)
+	 * @param zs the z coordinates of the vertices (relative to the box center)
+	 * @param ax the x component of the axis
+	 * @param ay the y component of the axis
+	 * @param az the z component of the axis
+	 * @param hx half of the box extent along x
+	 * @param hy half of the box extent along y
+	 * @param hz half of the box extent along z
+	 * @return true if the projections are disjoint (a degenerate axis separates
+	 *         nothing)
+	 */
+	private static boolean separated(double[] xs, double[] ys, double[] zs, double ax, double ay, double az,
+			double hx, double hy, double hz) {
+		double low = Double.POSITIVE_INFINITY, high = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < xs.length; ++i) {
+			double projection = xs[i] * ax + ys[i] * ay + zs[i] * az;
+			if (projection < low)
+				low = projection;
+			if (projection > high)
+				high = projection;
+		}
+		double radius = hx * Math.abs(ax) + hy * Math.abs(ay) + hz * Math.abs(az);
+		return low > radius || high < -radius;
+	}
+
 	@Override
 	public Vector getNormal(Point point) {
 		return plane.getNormal(point);
@@ -101,13 +169,14 @@ public class Polygon extends Geometry {
 
 	@Override
 	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-		var planeIntersections = plane.calculateIntersections(ray, maxDistance);
-		// check intersections with the plane
-		if (planeIntersections == null)
+		// check intersections with the plane - by its distance, so the plane is not
+		// counted as a tested geometry of its own
+		double t = plane.distance(ray);
+		if (!(t > 0) || alignZero(t - maxDistance) > 0)
 			return null;
 
 		Point p0 = ray.getHead();
-		Point p = planeIntersections.get(0).point;
+		Point p = ray.getPoint(t);
 
 		Vector n = plane.getNormal(p0);
 
@@ -1,6 +1,7 @@
 package geometries;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 import java.util.List;
 
@@ -43,15 +44,17 @@ public class Sphere extends RadialGeometry {
 	@Override
 	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
 		Point p0 = ray.getHead(); // ray's starting point
-		Point center = this.center; // the sphere's center point
 		Vector vec = ray.getDir();
-		// "the v vector" from the presentation
-		if (center.equals(p0))
+		// "the u vector" from the presentation - in primitive doubles, so a missing
+		// ray allocates nothing
+		double ux = center.getX() - p0.getX();
+		double uy = center.getY() - p0.getY();
+		double uz = center.getZ() - p0.getZ();
+		if (isZero(ux) && isZero(uy) && isZero(uz))
 			return alignZero(radius - maxDistance) <= 0 ? List.of(new Intersection(this, ray.getPoint(radius))) : null;
 
-		Vector u = center.subtract(p0);
-		double tm = (vec.dotProduct(u));
-		double d2 = (u.lengthSquared() - tm * tm);
+		double tm = vec.getX() * ux + vec.getY() * uy + vec.getZ() * uz;
+		double d2 = (ux * ux + uy * uy + uz * uz - tm * tm);
 		double th2 = alignZero(radiusPow2 - d2);
 		if (th2 <= 0)
 			return null;
@@ -1,6 +1,7 @@
 package geometries;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 import java.util.List;
 
@@ -27,34 +28,66 @@ public class Triangle extends Polygon {
 
 	@Override
 	protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-		List<Intersection> intersections = super.plane.calculateIntersections(ray, maxDistance);
-		if (intersections == null)
-			return null;
-
+		// The side tests are computed first and in primitive doubles, so a missing
+		// ray allocates nothing. A ray through a vertex or an edge line of the
+		// triangle (a zero vector below) misses it.
 		Point rayHead = ray.getHead();
 		Vector rayDir = ray.getDir();
+		double dirX = rayDir.getX(), dirY = rayDir.getY(), dirZ = rayDir.getZ();
 
-		// Create vectors from the triangle vertices to the intersection point
-		Vector v1 = vertices.get(0).subtract(rayHead);
-		Vector v2 = vertices.get(1).subtract(rayHead);
-		// Calculate the normals of the triangle's faces
-		Vector n1 = v1.crossProduct(v2).normalize();
-		// Direction of the ray
-		double dot1 = alignZero(n1.dotProduct(rayDir));
-		if (dot1 == 0)
+		// Vectors from the ray head to the triangle vertices
+		Point p1 = vertices.get(0);
+		double v1x = p1.getX() - rayHead.getX(), v1y = p1.getY() - rayHead.getY(), v1z = p1.getZ() - rayHead.getZ();
+		Point p2 = vertices.get(1);
+		double v2x = p2.getX() - rayHead.getX(), v2y = p2.getY() - rayHead.getY(), v2z = p2.getZ() - rayHead.getZ();
+		// The normals of the sides pyramid faces (normalized) and their dot
+		// products with the ray direction
+		double dot1 = sideDot(v1x, v1y, v1z, v2x, v2y, v2z, dirX, dirY, dirZ);
+		if (dot1 == 0 || Double.isNaN(dot1))
 			return null;
 
-		Vector v3 = vertices.get(2).subtract(rayHead);
-		Vector n2 = v2.crossProduct(v3).normalize();
-		double dot2 = alignZero(n2.dotProduct(rayDir));
-		if (dot1 * dot2 <= 0)
+		Point p3 = vertices.get(2);
+		double v3x = p3.getX() - rayHead.getX(), v3y = p3.getY() - rayHead.getY(), v3z = p3.getZ() - rayHead.getZ();
+		double dot2 = sideDot(v2x, v2y, v2z, v3x, v3y, v3z, dirX, dirY, dirZ);
+		if (!(dot1 * dot2 > 0))
 			return null;
 
-		Vector n3 = v3.crossProduct(v1).normalize();
-		double dot3 = alignZero(n3.dotProduct(rayDir));
-		if (dot1 * dot3 <= 0)
+		double dot3 = sideDot(v3x, v3y, v3z, v1x, v1y, v1z, dirX, dirY, dirZ);
+		if (!(dot1 * dot3 > 0))
 			return null;
 
-		return List.of(new Intersection(this, intersections.getFirst().point));
+		// the plane distance rather than the plane intersection, so the plane is not
+		// counted as a tested geometry of its own
+		double t = super.plane.distance(ray);
+		return !(t > 0) || alignZero(t - maxDistance) > 0 ? null //
+				: List.of(new Intersection(this, ray.getPoint(t)));
+	}
+
+	/**
+	 * Dot product of the ray direction with the normalized normal of a face of the
+	 * pyramid of the ray head and the triangle - the cross product of the vectors
+	 * from the ray head to two vertices
+	 *
+	 * @param ax   x of the vector to the first vertex
+	 * @param ay   y of the vector to the first vertex
+	 * @param az   z of the vector to the first vertex
+	 * @param bx   x of the vector to the second vertex
+	 * @param by   y of the vector to the second vertex
+	 * @param bz   z of the vector to the second vertex
+	 * @param dirX x of the ray direction
+	 * @param dirY y of the ray direction
+	 * @param dirZ z of the ray direction
+	 * @return the dot product (aligned to zero), NaN if a vector from the ray head
+	 *         to a vertex is zero or if the vectors are parallel
+	 */
+	private static double sideDot(double ax, double ay, double az, double bx, double by, double bz, double dirX,
+			double dirY, double dirZ) {
+		if (isZero(ax) && isZero(ay) && isZero(az) || isZero(bx) && isZero(by) && isZero(bz))
+			return Double.NaN;
+		double nx = ay * bz - by * az, ny = bx * az - ax * bz, nz = ax * by - bx * ay;
+		if (isZero(nx) && isZero(ny) && isZero(nz))
+			return Double.NaN;
+		double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		return alignZero(nx / length * dirX + ny / length * dirY + nz / length * dirZ);
 	}
 }
@@ -71,6 +71,15 @@ public class Color {
 		return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
 	}
 
+	/**
+	 * RGB components getter - the components are not limited by 255
+	 * 
+	 * @return triad of Red/Green/Blue components
+	 */
+	public Double3 getRgb() {
+		return rgb;
+	}
+
 	/**
 	 * Operation of adding this and one or more other colors (by component)
 	 * 
@@ -7,6 +7,10 @@ import geometries.Intersectable.Intersection;
 /**
  * Represents a ray in 3D space, defined by a starting point (head) and a
  * direction vector. The direction vector is always normalized upon creation.
+ * The ray caches the reciprocals and the signs of its direction components for
+ * the slab tests of axis-aligned boxes (see
+ * {@link #intersectBox(Double3, Double3, double)}), so the tests multiply
+ * instead of dividing.
  */
 public class Ray {
 
@@ -15,6 +19,17 @@ public class Ray {
 
 	/** The direction vector of the ray (normalized). */
 	private final Vector direction;
+	/** Reciprocal of the x component of the direction (infinite if it is zero) */
+	private final double invX;
+	/** Reciprocal of the y component of the direction (infinite if it is zero) */
+	private final double invY;
+	/** Reciprocal of the z component of the direction (infinite if it is zero) */
+	private final double invZ;
+	/**
+	 * Sign bits of the direction components: bit 0 (1, 2) is set if the x (y, z)
+	 * component is negative
+	 */
+	private final int signs;
 	/**
 	 * A small constant used to avoid floating-point precision issues.
 	 */
@@ -28,8 +43,7 @@ public class Ray {
 	 * @param vector the direction vector of the ray (will be normalized)
 	 */
 	public Ray(Point point, Vector vector) {
-		direction = vector.normalize();
-		head = point;
+		this(point, vector.normalize(), true);
 	}
 
 	/**
@@ -44,10 +58,42 @@ public class Ray {
 	 *                  head)
 	 */
 	public Ray(Point head, Vector direction, Vector normal) {
+		this(offsetHead(head, direction, normal), direction, true);
+	}
+
+	/**
+	 * Constructs a ray with a given starting point and a normalized direction
+	 * vector, and caches the reciprocals and the signs of the direction
+	 *
+	 * @param head       the starting point of the ray
+	 * @param direction  the direction vector of the ray (normalized)
+	 * @param normalized marker of the normalized direction (ignored)
+	 */
+	private Ray(Point head, Vector direction, boolean normalized) {
+		this.head = head;
 		this.direction = direction;
-		double nv = normal.dotProduct(this.direction);
+		double x = direction.xyz.d1(), y = direction.xyz.d2(), z = direction.xyz.d3();
+		invX = 1 / x;
+		invY = 1 / y;
+		invZ = 1 / z;
+		signs = (invX < 0 ? 1 : 0) | (invY < 0 ? 2 : 0) | (invZ < 0 ? 4 : 0);
+	}
+
+	/**
+	 * Move the head of a ray from a surface slightly away from it, to the side of
+	 * the ray direction, to avoid floating-point precision issues
+	 *
+	 * @param head      the point on the surface
+	 * @param direction the direction vector of the ray
+	 * @param normal    the normal vector at the surface point
+	 * @return the moved head
+	 */
+	private static Point offsetHead(Point head, Vector direction, Vector normal) {
+		double nv = normal.dotProduct(direction);
 		// Add a small delta to the ray's origin to avoid precision issues
-		this.head = head.add(normal.scale(nv > 0 ? DELTA : -DELTA));
+		double delta = nv > 0 ? DELTA : -DELTA;
+		return new Point(head.xyz.d1() + normal.xyz.d1() * delta, head.xyz.d2() + normal.xyz.d2() * delta,
+				head.xyz.d3() + normal.xyz.d3() * delta);
 	}
 
 	/**
@@ -68,6 +114,98 @@ public class Ray {
 		return direction;
 	}
 
+	/**
+	 * Reciprocal of the x component of the direction
+	 * 
+	 * @return the reciprocal, infinite if the component is zero
+	 */
+	public double getInvX() {
+		return invX;
+	}
+
+	/**
+	 * Reciprocal of the y component of the direction
+	 * 
+	 * @return the reciprocal, infinite if the component is zero
+	 */
+	public double getInvY() {
+		return invY;
+	}
+
+	/**
+	 * Reciprocal of the z component of the direction
+	 * 
+	 * @return the reciprocal, infinite if the component is zero
+	 */
+	public double getInvZ() {
+		return invZ;
+	}
+
+	/**
+	 * Sign bits of the direction components
+	 * 
+	 * @return bit 0 (1, 2) is set if the x (y, z) component is negative
+	 */
+	public int getSigns() {
+		return signs;
+	}
+
+	/**
+	 * Slab test of an axis-aligned box: find the distance of the entry of the ray
+	 * into the box. The test uses only multiplications by the cached reciprocals
+	 * of the direction and no branches on the data (the near and the far slab of
+	 * each axis are chosen by the sign bits). A NaN distance of a slab (a ray
+	 * parallel to the slab and starting on its plane) is ignored by the
+	 * comparisons.
+	 * 
+	 * @param min         the minimal corner of the box
+	 * @param max         the maximal corner of the box
+	 * @param maxDistance the maximal distance of the entry
+	 * @return the entry distance - 0 if the head of the ray is inside the box, or a
+	 *         negative number if the ray misses the box within the maximal
+	 *         distance
+	 */
+	public double intersectBox(Double3 min, Double3 max, double maxDistance) {
+		return intersectBox(min.d1(), min.d2(), min.d3(), max.d1(), max.d2(), max.d3(), maxDistance);
+	}
+
+	/**
+	 * Slab test of an axis-aligned box (see
+	 * {@link #intersectBox(Double3, Double3, double)})
+	 * 
+	 * @param minX        the minimal x of the box
+	 * @param minY        the minimal y of the box
+	 * @param minZ        the minimal z of the box
+	 * @param maxX        the maximal x of the box
+	 * @param maxY        the maximal y of the box
+	 * @param maxZ        the maximal z of the box
+	 * @param maxDistance the maximal distance of the entry
+	 * @return the entry distance - 0 if the head of the ray is inside the box, or a
+	 *         negative number if the ray misses the box within the maximal
+	 *         distance
+	 */
+	public double intersectBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+			double maxDistance) {
+		double x = head.xyz.d1(), y = head.xyz.d2(), z = head.xyz.d3();
+		double tNear = 0, tFar = maxDistance;
+		boolean negative = (signs & 1) != 0;
+		double t0 = ((negative ? maxX : minX) - x) * invX;
+		double t1 = ((negative ? minX : maxX) - x) * invX;
+		tNear = t0 > tNear ? t0 : tNear;
+		tFar = t1 < tFar ? t1 : tFar;
+		negative = (signs & 2) != 0;
+		t0 = ((negative ? maxY : minY) - y) * invY;
+		t1 = ((negative ? minY : maxY) - y) * invY;
+		tNear = t0 > tNear ? t0 : tNear;
+		tFar = t1 < tFar ? t1 : tFar;
+		negative = (signs & 4) != 0;
+		t0 = ((negative ? maxZ : minZ) - z) * invZ;
+		t1 = ((negative ? minZ : maxZ) - z) * invZ;
+		tNear = t0 > tNear ? t0 : tNear;
+		tFar = t1 < tFar ? t1 : tFar;
+		return tNear <= tFar ? tNear : -1;
+	}
+
 	/**
 	 * Get point on the ray at a given distance from the head.
 	 * 
@@ -75,11 +213,9 @@ public class Ray {
 	 * @return The point of the ray at distance t from the head.
 	 */
 	public Point getPoint(double t) {
-		try {
-			return head.add(direction.scale(t));
-		} catch (IllegalArgumentException ignored) {
-			return head;
-		}
+		return t == 0 ? head
+				: new Point(head.xyz.d1() + direction.xyz.d1() * t, head.xyz.d2() + direction.xyz.d2() * t,
+						head.xyz.d3() + direction.xyz.d3() * t);
 	}
 
 	@Override
@@ -121,7 +257,7 @@ public class Ray {
 		double minDistance = Double.POSITIVE_INFINITY;
 
 		for (Intersection intersection : points) {
-			double distance = head.distance(intersection.point);
+			double distance = head.distanceSquared(intersection.point);
 			if (distance < minDistance) {
 				minDistance = distance;
 				closestIntersection = intersection;
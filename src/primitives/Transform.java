@@ -0,0 +1,215 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Affine transformation of the 3D space (a linear transformation followed by a
+ * translation), kept together with its inverse. Transformations are immutable
+ * and are built from translations, scalings and rotations chained by
+ * {@link #then(Transform)}.
+ */
+public final class Transform {
+	/** The identity transformation */
+	public static final Transform IDENTITY = new Transform( //
+			new double[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0 }, //
+			new double[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0 });
+
+	/**
+	 * The transformation matrix rows (3×4, row after row): the linear part and the
+	 * translation in the last column
+	 */
+	private final double[] m;
+	/** The inverse transformation matrix rows (3×4, row after row) */
+	private final double[] inv;
+
+	/**
+	 * Constructs a transformation by its matrix and the matrix of its inverse
+	 *
+	 * @param m   the matrix rows
+	 * @param inv the inverse matrix rows
+	 */
+	private Transform(double[] m, double[] inv) {
+		this.m = m;
+		this.inv = inv;
+	}
+
+	/**
+	 * Translation by a vector
+	 *
+	 * @param translation the translation vector
+	 * @return the transformation
+	 */
+	public static Transform translation(Vector translation) {
+		double x = translation.getX(), y = translation.getY(), z = translation.getZ();
+		return new Transform(new double[] { 1, 0, 0, x, 0, 1, 0, y, 0, 0, 1, z },
+				new double[] { 1, 0, 0, -x, 0, 1, 0, -y, 0, 0, 1, -z });
+	}
+
+	/**
+	 * Uniform scaling around the origin
+	 *
+	 * @param factor the scaling factor
+	 * @return the transformation
+	 * @throws IllegalArgumentException if the factor is zero
+	 */
+	public static Transform scaling(double factor) {
+		return scaling(factor, factor, factor);
+	}
+
+	/**
+	 * Scaling around the origin along the axes
+	 *
+	 * @param x the scaling factor along x axis
+	 * @param y the scaling factor along y axis
+	 * @param z the scaling factor along z axis
+	 * @return the transformation
+	 * @throws IllegalArgumentException if any factor is zero
+	 */
+	public static Transform scaling(double x, double y, double z) {
+		if (isZero(x) || isZero(y) || isZero(z))
+			throw new IllegalArgumentException("Scaling factors must not be zero");
+		return new Transform(new double[] { x, 0, 0, 0, 0, y, 0, 0, 0, 0, z, 0 },
+				new double[] { 1 / x, 0, 0, 0, 0, 1 / y, 0, 0, 0, 0, 1 / z, 0 });
+	}
+
+	/**
+	 * Rotation around an axis through the origin (as
+	 * {@link Vector#rotateVector(Vector, double)})
+	 *
+	 * @param angleDegrees the rotation angle in degrees
+	 * @param axis         the rotation axis
+	 * @return the transformation
+	 */
+	public static Transform rotation(double angleDegrees, Vector axis) {
+		Vector u = axis.normalize();
+		double x = u.getX(), y = u.getY(), z = u.getZ();
+		double angle = Math.toRadians(angleDegrees);
+		double c = Math.cos(angle), s = Math.sin(angle), t = 1 - c;
+		double[] m = { c + x * x * t, x * y * t - z * s, x * z * t + y * s, 0, //
+				y * x * t + z * s, c + y * y * t, y * z * t - x * s, 0, //
+				z * x * t - y * s, z * y * t + x * s, c + z * z * t, 0 };
+		// the inverse of a rotation is its transpose
+		double[] inv = { m[0], m[4], m[8], 0, m[1], m[5], m[9], 0, m[2], m[6], m[10], 0 };
+		return new Transform(m, inv);
+	}
+
+	/**
+	 * Chain another transformation after this one
+	 *
+	 * @param next the transformation applied after this one
+	 * @return the transformation applying this one and then the next one
+	 */
+	public Transform then(Transform next) {
+		return new Transform(multiply(next.m, m), multiply(inv, next.inv));
+	}
+
+	/**
+	 * The inverse transformation
+	 *
+	 * @return the transformation
+	 */
+	public Transform inverse() {
+		return new Transform(inv, m);
+	}
+
+	/**
+	 * Transform a point
+	 *
+	 * @param p the point
+	 * @return the transformed point
+	 */
+	public Point apply(Point p) {
+		return applyToPoint(m, p);
+	}
+
+	/**
+	 * Transform a point by the inverse transformation
+	 *
+	 * @param p the point
+	 * @return the transformed point
+	 */
+	public Point applyInverse(Point p) {
+		return applyToPoint(inv, p);
+	}
+
+	/**
+	 * Transform a direction (the translation does not apply), the result is not
+	 * normalized
+	 *
+	 * @param v the direction
+	 * @return the transformed direction
+	 */
+	public Vector applyToDirection(Vector v) {
+		return applyToVector(m, v);
+	}
+
+	/**
+	 * Transform a direction by the inverse transformation (the translation does
+	 * not apply), the result is not normalized
+	 *
+	 * @param v the direction
+	 * @return the transformed direction
+	 */
+	public Vector applyInverseToDirection(Vector v) {
+		return applyToVector(inv, v);
+	}
+
+	/**
+	 * Transform a surface normal - by the transposed inverse of the linear part,
+	 * so it stays orthogonal to the transformed surface
+	 *
+	 * @param n the normal
+	 * @return the transformed normal, normalized
+	 */
+	public Vector applyToNormal(Vector n) {
+		double x = n.getX(), y = n.getY(), z = n.getZ();
+		return new Vector(inv[0] * x + inv[4] * y + inv[8] * z, //
+				inv[1] * x + inv[5] * y + inv[9] * z, //
+				inv[2] * x + inv[6] * y + inv[10] * z).normalize();
+	}
+
+	/**
+	 * Apply a matrix on a point
+	 *
+	 * @param a the matrix rows
+	 * @param p the point
+	 * @return the transformed point
+	 */
+	private static Point applyToPoint(double[] a, Point p) {
+		double x = p.getX(), y = p.getY(), z = p.getZ();
+		return new Point(a[0] * x + a[1] * y + a[2] * z + a[3], //
+				a[4] * x + a[5] * y + a[6] * z + a[7], //
+				a[8] * x + a[9] * y + a[10] * z + a[11]);
+	}
+
+	/**
+	 * Apply the linear part of a matrix on a vector
+	 *
+	 * @param a the matrix rows
+	 * @param v the vector
+	 * @return the transformed vector
+	 */
+	private static Vector applyToVector(double[] a, Vector v) {
+		double x = v.getX(), y = v.getY(), z = v.getZ();
+		return new Vector(a[0] * x + a[1] * y + a[2] * z, //
+				a[4] * x + a[5] * y + a[6] * z, //
+				a[8] * x + a[9] * y + a[10] * z);
+	}
+
+	/**
+	 * Multiply affine matrices
+	 *
+	 * @param a the matrix applied second
+	 * @param b the matrix applied first
+	 * @return the matrix of applying b and then a
+	 */
+	private static double[] multiply(double[] a, double[] b) {
+		double[] c = new double[12];
+		for (int row = 0; row < 3; ++row) {
+			for (int col = 0; col < 4; ++col)
+				c[row * 4 + col] = a[row * 4] * b[col] + a[row * 4 + 1] * b[4 + col] + a[row * 4 + 2] * b[8 + col];
+			c[row * 4 + 3] += a[row * 4 + 3];
+		}
+		return c;
+	}
+}
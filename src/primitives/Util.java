@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.Random;
+
 /**
  * Util class is used for some internal utilities, e.g. controlling accuracy
  * 
@@ -9,6 +11,9 @@ public final class Util {
 	/** It is binary, equivalent to ~1/1,000,000,000,000 in decimal (12 digits) */
 	private static final int ACCURACY = -40;
 
+	/** Random numbers generator of the utilities, may be seeded */
+	private static Random generator = new Random();
+
 	/** Don't let anyone instantiate this class. */
 	private Util() {
 	}
@@ -70,7 +75,18 @@ public final class Util {
 	 * @return the random value
 	 */
 	public static double random(double min, double max) {
-		return Math.random() * (max - min) + min;
+		return generator.nextDouble() * (max - min) + min;
+	}
+
+	/**
+	 * Seed the random numbers generator, so the random values (e.g. of
+	 * anti-aliasing jitter) are reproducible - when they are taken by a single
+	 * thread
+	 * 
+	 * @param seed the seed
+	 */
+	public static void setRandomSeed(long seed) {
+		generator = new Random(seed);
 	}
 
 }
@@ -49,6 +49,33 @@ public class Vector extends Point {
 			throw new IllegalArgumentException("the vector is ZERO");
 	}
 
+	/**
+	 * Constructs a vector from a {@link Double3} object without checking whether
+	 * it is the zero vector - for results which cannot be zero
+	 *
+	 * @param d3        the {@link Double3} object representing the vector
+	 *                  coordinates
+	 * @param unchecked marker of the unchecked construction (ignored)
+	 */
+	private Vector(Double3 d3, boolean unchecked) {
+		super(d3);
+	}
+
+	/**
+	 * Fast construction path of the ray tracing hot code: constructs a vector
+	 * without checking whether it is the zero vector. The caller guarantees that it
+	 * is not - e.g. the coordinates are of a normalized vector. User input must be
+	 * constructed by the checked constructors.
+	 *
+	 * @param x the x-coordinate of the vector
+	 * @param y the y-coordinate of the vector
+	 * @param z the z-coordinate of the vector
+	 * @return the vector
+	 */
+	public static Vector trusted(double x, double y, double z) {
+		return new Vector(new Double3(x, y, z), true);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -78,7 +105,9 @@ public class Vector extends Point {
 	 * @return the resulting scaled vector
 	 */
 	public Vector scale(double scalar) {
-		return new Vector(this.xyz.scale(scalar));
+		// scaling a non-zero vector by a factor of at least 1 cannot make it zero
+		return Math.abs(scalar) >= 1 ? new Vector(this.xyz.scale(scalar), true)
+				: new Vector(this.xyz.scale(scalar));
 	}
 
 	/**
@@ -135,7 +164,8 @@ public class Vector extends Point {
 	 * @return a new vector that is the normalized version of this vector
 	 */
 	public Vector normalize() {
-		return new Vector(this.xyz.reduce(this.length()));
+		// a unit vector is never zero
+		return new Vector(this.xyz.reduce(this.length()), true);
 	}
 
 	/**
@@ -0,0 +1,74 @@
+package renderer;
+
+import java.util.Arrays;
+
+import primitives.Color;
+
+/**
+ * Accumulation buffer for progressive rendering. It holds the sum of all the
+ * samples traced through each pixel and the amount of these samples, so the
+ * current estimation of a pixel color is their average.<br>
+ * Each pixel is sampled by a single thread during a pass, and the passes are
+ * separated, therefore no synchronization is required.
+ */
+class AccumulationBuffer {
+	/** Horizontal resolution of the image - number of pixels in row */
+	private final int nX;
+	/** Sum of the sampled colors per pixel */
+	private final Color[] sums;
+	/** Amount of the samples per pixel */
+	private final int[] samples;
+
+	/**
+	 * Constructs an empty accumulation buffer for the image
+	 *
+	 * @param nX amount of pixels by width
+	 * @param nY amount of pixels by height
+	 */
+	AccumulationBuffer(int nX, int nY) {
+		this.nX = nX;
+		sums = new Color[nX * nY];
+		samples = new int[nX * nY];
+		Arrays.fill(sums, Color.BLACK);
+	}
+
+	/**
+	 * Adds a sample to a pixel
+	 *
+	 * @param x      X axis index of the pixel
+	 * @param y      Y axis index of the pixel
+	 * @param sample the sampled color
+	 * @return the average color of the pixel including the new sample
+	 */
+	Color add(int x, int y, Color sample) {
+		int index = y * nX + x;
+		sums[index] = sums[index].add(sample);
+		return sums[index].reduce(++samples[index]);
+	}
+
+	/**
+	 * Sets the state of a pixel (e.g. restored from a checkpoint)
+	 *
+	 * @param x       X axis index of the pixel
+	 * @param y       Y axis index of the pixel
+	 * @param color   the average color of the pixel
+	 * @param samples the amount of samples of the pixel
+	 */
+	void set(int x, int y, Color color, int samples) {
+		int index = y * nX + x;
+		sums[index] = color.scale(samples);
+		this.samples[index] = samples;
+	}
+
+	/**
+	 * The amount of samples accumulated in a pixel
+	 *
+	 * @param x X axis index of the pixel
+	 * @param y Y axis index of the pixel
+	 * @return amount of samples
+	 */
+	int samples(int x, int y) {
+		return samples[y * nX + x];
+	}
+
+}
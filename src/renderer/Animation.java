@@ -0,0 +1,311 @@
+package renderer;
+
+import static java.lang.Math.*;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+import geometries.Instance;
+import primitives.*;
+import renderer.Camera.Pose;
+
+/**
+ * Frame sequence renderer - renders the frames of an animation of a camera
+ * (e.g. a flythrough or a turntable) along a keyframed path, with optional
+ * per-frame transformations of instanced geometries (see {@link Instance}).<br>
+ * The scene is the one of the camera ray tracer, and all the frames are
+ * rendered by the ray tracer of the camera and by its acceleration structure:
+ * the structure is refitted to the moved geometries between the frames (see
+ * {@link RayTracerBase#refit(java.util.Collection)}) rather than rebuilt, and
+ * the camera and its image buffer are reused for all the frames rather than
+ * building a camera per frame. Frames rendered one after another keep the
+ * rendering threads of the camera multi-threading alive for the whole
+ * sequence, and frames rendered concurrently reuse a camera per frame thread.<br>
+ * The camera pose between two keyframes is interpolated - the location
+ * linearly and the orientation by a rotation around a fixed axis (spherical
+ * interpolation); before the first keyframe and after the last one the pose
+ * is held. Without keyframes all the frames are rendered from the camera pose.
+ * <br>
+ * Small frames keep the threads of a single frame idle on their joins, so the
+ * frames themselves may be rendered concurrently, each of them by a single
+ * thread (see {@link #setFrameThreads(int)}) - as long as no geometry moves,
+ * since all the frames share the scene.
+ */
+public class Animation {
+	/** The camera whose settings (view plane, resolution, ray tracer) are used */
+	private final Camera camera;
+	/** Amount of the frames */
+	private final int frames;
+	/** The keyframes of the camera path by their frame indices */
+	private final TreeMap<Integer, Pose> keyframes = new TreeMap<>();
+	/** The transformations of the moving instances by the frame index */
+	private final Map<Instance, IntFunction<Transform>> motions = new LinkedHashMap<>();
+	/** Amount of the frames rendered concurrently */
+	private int frameThreads = 1;
+
+	/**
+	 * Constructs a frame sequence renderer
+	 *
+	 * @param camera the camera - its view plane, resolution, rendering settings
+	 *               and ray tracer (with the scene) are used for all the frames,
+	 *               and its pose unless keyframes are added
+	 * @param frames amount of the frames
+	 * @throws IllegalArgumentException if the amount of frames is not positive
+	 */
+	public Animation(Camera camera, int frames) {
+		if (frames <= 0)
+			throw new IllegalArgumentException("Amount of frames must be positive");
+		this.camera = camera;
+		this.frames = frames;
+	}
+
+	/**
+	 * Add a keyframe of the camera path - the pose set in a camera builder, e.g.
+	 * {@code new Camera.Builder(camera).setTranslation(...).setRotation(...)} (the
+	 * builder is not built)
+	 *
+	 * @param frame the frame index
+	 * @param pose  the builder with the camera location and direction at the
+	 *              frame
+	 * @return the animation itself
+	 * @throws IllegalArgumentException if the frame is out of the animation, or
+	 *                                  the builder direction is not valid
+	 */
+	public Animation addKeyframe(int frame, Camera.Builder pose) {
+		if (frame < 0 || frame >= frames)
+			throw new IllegalArgumentException("Keyframe must be one of the animation frames");
+		keyframes.put(frame, pose.pose());
+		return this;
+	}
+
+	/**
+	 * Add a keyframe of the camera path by the camera location and the point it
+	 * looks at, with the up direction as close as possible to the y axis (see
+	 * {@link Camera.Builder#setDirection(Point)})
+	 *
+	 * @param frame    the frame index
+	 * @param location the camera location at the frame
+	 * @param target   the point the camera looks at at the frame
+	 * @return the animation itself
+	 * @throws IllegalArgumentException if the frame is out of the animation, or
+	 *                                  the target is the location
+	 */
+	public Animation addKeyframe(int frame, Point location, Point target) {
+		return addKeyframe(frame, new Camera.Builder(camera).setLocation(location).setDirection(target));
+	}
+
+	/**
+	 * Move an instance along the animation - its transformation is set before
+	 * each frame is rendered (the camera must have its own ray tracer, since a
+	 * {@link PreparedScene} is not refitted).<br>
+	 * The instance must be one of the scene geometries, or nested in collections
+	 * of them ({@link geometries.Geometries}) - then a grid refits the whole
+	 * top-level collection (see {@link Grid#refit(java.util.Collection)}), so
+	 * instances moving together are better kept in a collection of their own. An
+	 * instance inside the prototype of another instance cannot move by itself,
+	 * since the prototype may be shared.
+	 *
+	 * @param instance  the instance
+	 * @param transform the transformation of the instance by the frame index
+	 * @return the animation itself
+	 */
+	public Animation addMotion(Instance instance, IntFunction<Transform> transform) {
+		motions.put(instance, transform);
+		return this;
+	}
+
+	/**
+	 * Set the amount of frames rendered concurrently. When it is more than one,
+	 * each frame is rendered by a single thread, otherwise the frames are rendered
+	 * one after another by the camera multi-threading.
+	 *
+	 * @param threads amount of frames rendered concurrently
+	 * @return the animation itself
+	 * @throws IllegalArgumentException if the amount is not positive
+	 */
+	public Animation setFrameThreads(int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("Amount of frame threads must be positive");
+		frameThreads = threads;
+		return this;
+	}
+
+	/**
+	 * Render the frames and write them into the images
+	 * {@code <imageName>_0000.png}, {@code <imageName>_0001.png} etc.
+	 *
+	 * @param imageName the base name of the images
+	 * @return the animation itself
+	 */
+	public Animation render(String imageName) {
+		return render((frameCamera, frame) -> frameCamera.writeToImage(String.format("%s_%04d", imageName, frame)));
+	}
+
+	/**
+	 * Render the frames - each rendered frame is passed to a callback, with the
+	 * camera holding its image. The camera is reused for the next frames, so it
+	 * is valid only during the callback; when the frames are rendered
+	 * concurrently the callback is called concurrently (in any order of the
+	 * frames).
+	 *
+	 * @param onFrame the callback of a rendered frame, accepting the camera and
+	 *                the frame index
+	 * @return the animation itself
+	 * @throws IllegalStateException if instances move and the frames are to be
+	 *                               rendered concurrently
+	 */
+	public Animation render(ObjIntConsumer<Camera> onFrame) {
+		if (frameThreads == 1)
+			renderSequence(onFrame);
+		else if (!motions.isEmpty())
+			throw new IllegalStateException("Frames of moving geometries cannot be rendered concurrently");
+		else
+			renderConcurrently(onFrame);
+		return this;
+	}
+
+	/**
+	 * Render the frames one after another by a single camera - its rendering
+	 * threads are kept alive for all the frames
+	 *
+	 * @param onFrame the callback of a rendered frame
+	 */
+	private void renderSequence(ObjIntConsumer<Camera> onFrame) {
+		Camera frameCamera = camera.frameCamera(false);
+		frameCamera.startWorkers();
+		try {
+			for (int frame = 0; frame < frames && !Thread.currentThread().isInterrupted(); ++frame) {
+				if (!motions.isEmpty()) {
+					for (var motion : motions.entrySet())
+						motion.getKey().setTransform(motion.getValue().apply(frame));
+					frameCamera.refit(motions.keySet());
+				}
+				frameCamera.setPose(poseAt(frame)).renderImage();
+				onFrame.accept(frameCamera, frame);
+			}
+		} finally {
+			frameCamera.stopWorkers();
+		}
+	}
+
+	/**
+	 * Render the frames concurrently by threads, each of them with its own camera
+	 * rendering its frames one after another
+	 *
+	 * @param onFrame the callback of a rendered frame
+	 */
+	private void renderConcurrently(ObjIntConsumer<Camera> onFrame) {
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		var threads = new LinkedList<Thread>();
+		for (int i = min(frameThreads, frames); i > 0; --i)
+			threads.add(new Thread(() -> {
+				Camera frameCamera = camera.frameCamera(true);
+				int frame;
+				try {
+					while (!Thread.currentThread().isInterrupted() && (frame = next.getAndIncrement()) < frames) {
+						frameCamera.setPose(poseAt(frame)).renderImage();
+						onFrame.accept(frameCamera, frame);
+					}
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+					next.set(frames);
+				}
+			}));
+		for (var thread : threads)
+			thread.start();
+		// When interrupted - stop the frame threads after their current pixels, and
+		// keep the interrupt status for the caller
+		boolean interrupted = false;
+		for (var thread : threads)
+			while (thread.isAlive())
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					for (var other : threads)
+						other.interrupt();
+				}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure.get() != null)
+			throw failure.get();
+	}
+
+	/**
+	 * The camera pose at a frame - interpolated between the keyframes around it
+	 *
+	 * @param frame the frame index
+	 * @return the pose
+	 */
+	Pose poseAt(int frame) {
+		var before = keyframes.floorEntry(frame);
+		var after = keyframes.ceilingEntry(frame);
+		if (before == null && after == null)
+			return camera.pose();
+		if (before == null)
+			return after.getValue();
+		if (after == null || after.getKey().equals(before.getKey()))
+			return before.getValue();
+		return interpolate(before.getValue(), after.getValue(),
+				(double) (frame - before.getKey()) / (after.getKey() - before.getKey()));
+	}
+
+	/**
+	 * Interpolate camera poses - the location linearly, and the orientation by the
+	 * part of the rotation from the first orientation to the second one
+	 *
+	 * @param a the first pose
+	 * @param b the second pose
+	 * @param t the part of the way from the first pose to the second one
+	 * @return the pose
+	 */
+	private static Pose interpolate(Pose a, Pose b, double t) {
+		Point from = a.location(), to = b.location();
+		Point location = new Point(from.getX() + (to.getX() - from.getX()) * t,
+				from.getY() + (to.getY() - from.getY()) * t, from.getZ() + (to.getZ() - from.getZ()) * t);
+
+		// the rotation matrix from the first orientation basis (right, up, to) to the
+		// second one: r[j][k] = sum of b_i[j] * a_i[k]
+		Vector[] basisA = { a.vTo().crossProduct(a.vUp()), a.vUp(), a.vTo() };
+		Vector[] basisB = { b.vTo().crossProduct(b.vUp()), b.vUp(), b.vTo() };
+		double[][] r = new double[3][3];
+		for (int i = 0; i < 3; ++i) {
+			double[] u = coordinates(basisB[i]), v = coordinates(basisA[i]);
+			for (int j = 0; j < 3; ++j)
+				for (int k = 0; k < 3; ++k)
+					r[j][k] += u[j] * v[k];
+		}
+		double angle = acos(max(-1, min(1, (r[0][0] + r[1][1] + r[2][2] - 1) / 2)));
+		if (angle < 1e-9)
+			return new Pose(location, a.vTo(), a.vUp());
+
+		double[] axis = { r[2][1] - r[1][2], r[0][2] - r[2][0], r[1][0] - r[0][1] };
+		if (sin(angle) < 1e-6) {
+			// half a turn - the rotation matrix is 2uu'-I, so the axis is the column of
+			// (r+I)/2 with the largest diagonal element
+			int k = r[0][0] >= r[1][1] && r[0][0] >= r[2][2] ? 0 : r[1][1] >= r[2][2] ? 1 : 2;
+			for (int j = 0; j < 3; ++j)
+				axis[j] = (r[j][k] + (j == k ? 1 : 0)) / 2;
+		}
+		Transform rotation = Transform.rotation(toDegrees(angle * t), new Vector(axis[0], axis[1], axis[2]));
+		return new Pose(location, rotation.applyToDirection(a.vTo()).normalize(),
+				rotation.applyToDirection(a.vUp()).normalize());
+	}
+
+	/**
+	 * The coordinates of a vector
+	 *
+	 * @param v the vector
+	 * @return the coordinates array
+	 */
+	private static double[] coordinates(Vector v) {
+		return new double[] { v.getX(), v.getY(), v.getZ() };
+	}
+}
@@ -4,6 +4,7 @@
 package renderer;
 
 import static primitives.Util.isZero;
+import static primitives.Util.random;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -91,18 +92,27 @@ public class Blackboard {
 	 *         point
 	 */
 	private Ray constructRay(int j, int i) {
-		Point pIJ = p0.add(vTo.scale(distance));
-		double jitterX = Math.random() - 0.5;
-		double jitterY = Math.random() - 0.5;
+		// computed in primitive doubles - the direction to the grid point has the
+		// distance as its component along vTo, so it is never zero
+		double x = p0.getX() + vTo.getX() * distance;
+		double y = p0.getY() + vTo.getY() * distance;
+		double z = p0.getZ() + vTo.getZ() * distance;
+		double jitterX = random(-0.5, 0.5);
+		double jitterY = random(-0.5, 0.5);
 		// Calculate distance on x,y axes to the designated point
 		double yI = (((resolution - 1) / 2.0) - i + jitterY) * (length / resolution);
 		double xJ = (j - ((resolution - 1) / 2.0 + jitterX)) * (length / resolution);
-		// Avoiding creation of zero vector (which is unnecessary anyway)
-		if (!isZero(xJ))
-			pIJ = pIJ.add(vRight.scale(xJ));
-		if (!isZero(yI))
-			pIJ = pIJ.add(vUp.scale(yI));
-		return new Ray(p0, pIJ.subtract(p0));
+		if (!isZero(xJ)) {
+			x += vRight.getX() * xJ;
+			y += vRight.getY() * xJ;
+			z += vRight.getZ() * xJ;
+		}
+		if (!isZero(yI)) {
+			x += vUp.getX() * yI;
+			y += vUp.getY() * yI;
+			z += vUp.getZ() * yI;
+		}
+		return new Ray(p0, Vector.trusted(x - p0.getX(), y - p0.getY(), z - p0.getZ()));
 	}
 
 	/**
@@ -6,13 +6,24 @@ package renderer;
 import static java.lang.Math.*;
 import static primitives.Util.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.MissingResourceException;
-import java.util.stream.IntStream;
-
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import geometries.Bvh;
+import geometries.Intersectable;
 import primitives.*;
-import renderer.PixelManager.Pixel;
+import renderer.PixelManager.Tile;
 import scene.Scene;
 
 /**
@@ -117,6 +128,77 @@ public class Camera implements Cloneable {
 	 */
 	public double antiAlasingSize = 0;
 
+	/**
+	 * First coordinate of the R2 low-discrepancy sequence step, used for
+	 * progressive rendering sub-pixel sampling
+	 */
+	private static final double R2_X = 0.7548776662466927;
+	/**
+	 * Second coordinate of the R2 low-discrepancy sequence step, used for
+	 * progressive rendering sub-pixel sampling
+	 */
+	private static final double R2_Y = 0.5698402909980532;
+	/**
+	 * Accumulation buffer of progressive rendering, null when the image is
+	 * rendered in a single pass
+	 */
+	private AccumulationBuffer accumulation = null;
+	/** The index of the current pass of progressive rendering */
+	private int pass = 0;
+	/** The amount of passes of the current rendering */
+	private int passes = 1;
+	/**
+	 * Cancellation flag of the current rendering - the workers stop allocating
+	 * pixels when it is set
+	 */
+	private volatile boolean cancelled = false;
+	/** Size of the tiles (in pixels) allocated to the rendering threads */
+	private int tileSize = 16;
+	/** Checkpoint file name, null if the rendering is not checkpointed */
+	private String checkpointFile = null;
+	/**
+	 * Interval in seconds between synchronizations of the checkpoint file with
+	 * the disk
+	 */
+	private double checkpointInterval = 0;
+	/** Checkpoint of the current rendering, null if it is not checkpointed */
+	private Checkpoint checkpoint = null;
+	/** First pixel column of the rendered region (crop window) */
+	private int cropX = 0;
+	/** First pixel row of the rendered region (crop window) */
+	private int cropY = 0;
+	/** Width of the rendered region (crop window) in pixels */
+	private int cropWidth = 1;
+	/** Height of the rendered region (crop window) in pixels */
+	private int cropHeight = 1;
+	/** Whether the statistics of the renderings are collected */
+	private boolean statistics = false;
+	/** Whether the tiles are timed in the statistics of the renderings */
+	private boolean tileTiming = false;
+	/** Statistics collector of the current rendering, null if not collected */
+	private RenderStats.Collector collector = null;
+	/**
+	 * Pool of the rendering threads kept alive over several renderings (the
+	 * frames of an animation, see {@link #startWorkers()}), null if the threads
+	 * are started by each rendering
+	 */
+	private ExecutorService workers = null;
+	/** Statistics of the last rendering, null if not collected */
+	private RenderStats renderStats = null;
+	/** The cost recorded by the heatmap, null if there is no heatmap */
+	private Heatmap.Mode heatmapMode = null;
+	/** Heatmap of the current (or the last) rendering, null if there is none */
+	private Heatmap heatmap = null;
+	/**
+	 * The split strategy of the bounding volume hierarchy of the ray tracer, null
+	 * if the geometries are traced as they are
+	 */
+	private Bvh.Split bvhSplit = null;
+	/** The amount of grid voxels per geometry of the grid ray tracer */
+	private double gridDensity = Grid.DEFAULT_DENSITY;
+	/** The maximal amount of grid voxels of the grid ray tracer */
+	private long gridMaxCells = Grid.DEFAULT_MAX_CELLS;
+
 	/**
 	 * Empty constructor
 	 */
@@ -126,12 +208,321 @@ public class Camera implements Cloneable {
 
 	/**
 	 * This function renders image's pixel color map from the scene included in the
-	 * ray tracer object
+	 * ray tracer object.<br>
+	 * When a checkpoint is set, the completed tiles are checkpointed and a stopped
+	 * rendering is resumed from the checkpoint.
 	 * 
 	 * @return the camera object itself
 	 */
 	public Camera renderImage() {
-		pixelManager = new PixelManager(nY, nX, printInterval);
+		cancelled = false;
+		return renderImage(0);
+	}
+
+	/**
+	 * This function starts rendering image's pixel color map in the background
+	 * without time limit (see {@link #renderImageAsync(double)})
+	 * 
+	 * @return the handle of the rendering
+	 */
+	public RenderTask renderImageAsync() {
+		return renderImageAsync(0);
+	}
+
+	/**
+	 * This function starts rendering image's pixel color map in the background.
+	 * The rendering may be cancelled by the returned handle, then the workers stop
+	 * after the pixel they are tracing and the image holds the pixels rendered so
+	 * far.
+	 * 
+	 * @param timeLimit time limit in seconds, after which the rendering stops (as
+	 *                  if it was completed), 0 if the time is unlimited
+	 * @return the handle of the rendering
+	 */
+	public RenderTask renderImageAsync(double timeLimit) {
+		if (timeLimit < 0)
+			throw new IllegalArgumentException("Time limit must be non-negative");
+		cancelled = false;
+		return new RenderTask(this, () -> renderImage(timeLimit)).start();
+	}
+
+	/**
+	 * Render image's pixel color map in a single pass
+	 * 
+	 * @param timeLimit time limit in seconds, 0 if the time is unlimited
+	 * @return the camera object itself
+	 */
+	private Camera renderImage(double timeLimit) {
+		accumulation = null;
+		pass = 0;
+		passes = 1;
+		int[] tileSamples = openCheckpoint(0);
+		pixelManager = createPixelManager(tileSamples);
+		if (timeLimit > 0)
+			pixelManager.setDeadline(System.nanoTime() + (long) (timeLimit * 1e9));
+		boolean completed = false;
+		startStats();
+		try {
+			render();
+			completed = !cancelled && pixelManager.isComplete();
+		} finally {
+			finishStats();
+			closeCheckpoint(completed);
+		}
+		return this;
+	}
+
+	/**
+	 * This function renders image's pixel color map progressively: the image is
+	 * rendered by successive passes, each of them traces one more ray through
+	 * every pixel (at a different sub-pixel position) into an accumulation
+	 * buffer. Thus a rough preview is available after the first pass and it is
+	 * refined by the following passes.<br>
+	 * The rendering stops after the target amount of samples per pixel or when
+	 * the time budget is over. The first pass is always completed, a later pass
+	 * may be stopped in the middle - then part of the pixels has one sample more
+	 * than the others.<br>
+	 * The anti-aliasing beam is not used by progressive rendering since the
+	 * passes themselves sample the pixel area.<br>
+	 * When a checkpoint is set, the samples are checkpointed and a stopped
+	 * rendering is resumed from the checkpoint.
+	 * 
+	 * @param targetSamples target amount of samples per pixel
+	 * @param timeBudget    time budget in seconds, 0 if the time is unlimited
+	 * @param onPass        callback called after each completed pass with the
+	 *                      amount of passes done (e.g. for writing an
+	 *                      intermediate image), may be null
+	 * @return the camera object itself
+	 */
+	public Camera renderImageProgressive(int targetSamples, double timeBudget, IntConsumer onPass) {
+		checkProgressive(targetSamples, timeBudget);
+		cancelled = false;
+		return renderProgressive(targetSamples, timeBudget, onPass);
+	}
+
+	/**
+	 * This function starts progressive rendering of image's pixel color map in the
+	 * background (see
+	 * {@link #renderImageProgressive(int, double, IntConsumer)}).<br>
+	 * The rendering may be cancelled by the returned handle, then the workers stop
+	 * after the pixel they are tracing.
+	 * 
+	 * @param targetSamples target amount of samples per pixel
+	 * @param timeBudget    time budget in seconds, 0 if the time is unlimited
+	 * @param onPass        callback called after each completed pass with the
+	 *                      amount of passes done, may be null
+	 * @return the handle of the rendering
+	 */
+	public RenderTask renderImageProgressiveAsync(int targetSamples, double timeBudget, IntConsumer onPass) {
+		checkProgressive(targetSamples, timeBudget);
+		cancelled = false;
+		return new RenderTask(this, () -> renderProgressive(targetSamples, timeBudget, onPass)).start();
+	}
+
+	/**
+	 * Check progressive rendering parameters
+	 * 
+	 * @param targetSamples target amount of samples per pixel
+	 * @param timeBudget    time budget in seconds
+	 */
+	private static void checkProgressive(int targetSamples, double timeBudget) {
+		if (targetSamples < 1)
+			throw new IllegalArgumentException("Target samples amount must be positive");
+		if (timeBudget < 0)
+			throw new IllegalArgumentException("Time budget must be non-negative");
+	}
+
+	/**
+	 * Render image's pixel color map progressively
+	 * 
+	 * @param targetSamples target amount of samples per pixel
+	 * @param timeBudget    time budget in seconds, 0 if the time is unlimited
+	 * @param onPass        callback called after each completed pass, may be null
+	 * @return the camera object itself
+	 */
+	private Camera renderProgressive(int targetSamples, double timeBudget, IntConsumer onPass) {
+		long deadline = System.nanoTime() + (long) (timeBudget * 1e9);
+		accumulation = new AccumulationBuffer(nX, nY);
+		passes = targetSamples;
+		pass = 0;
+		int[] tileSamples = openCheckpoint(targetSamples);
+		boolean completed = false;
+		startStats();
+		try {
+			for (pass = 0; pass < targetSamples && !cancelled; ++pass) {
+				pixelManager = createPixelManager(tileSamples);
+				if (pass > 0 && timeBudget > 0) {
+					pixelManager.setDeadline(deadline);
+					if (pixelManager.isStopped())
+						break;
+				}
+				render();
+				if (cancelled || !pixelManager.isComplete())
+					break;
+				if (onPass != null)
+					onPass.accept(pass + 1);
+			}
+			completed = pass == targetSamples;
+		} finally {
+			finishStats();
+			closeCheckpoint(completed);
+		}
+		return this;
+	}
+
+	/**
+	 * Create pixel manager for rendering a pass, the tiles restored from the
+	 * checkpoint with enough samples are skipped
+	 * 
+	 * @param tileSamples samples per pixel of each tile restored from the
+	 *                    checkpoint, null if there is no checkpoint
+	 * @return the pixel manager
+	 */
+	PixelManager createPixelManager(int[] tileSamples) {
+		PixelManager manager = new PixelManager(cropX, cropY, cropHeight, cropWidth, tileSize, printInterval);
+		if (tileSamples != null)
+			manager.skip(tile -> tileSamples[tile] > pass);
+		return manager;
+	}
+
+	/**
+	 * Open the checkpoint of the rendering (if it is set) and restore the tiles
+	 * saved in it into the image (and into the accumulation buffer of progressive
+	 * rendering)
+	 * 
+	 * @param targetSamples target amount of samples per pixel of progressive
+	 *                      rendering, 0 for single pass rendering
+	 * @return samples per pixel of each tile restored from the checkpoint, null if
+	 *         there is no checkpoint
+	 */
+	private int[] openCheckpoint(int targetSamples) {
+		if (checkpointFile == null)
+			return null;
+		checkpoint = new Checkpoint(checkpointFile, checkpointInterval, accumulation != null, nX, nY, cropX, cropY,
+				cropWidth, cropHeight, tileSize, settingsFingerprint(targetSamples));
+		int[] tileSamples = new int[Tile.count(cropHeight, cropWidth, tileSize)];
+		for (var state : checkpoint.open()) {
+			Tile tile = state.tile();
+			tileSamples[tile.index()] = state.samples();
+			int k = 0;
+			for (int i = tile.y0(); i < tile.y1(); ++i)
+				for (int j = tile.x0(); j < tile.x1(); ++j) {
+					Color color = state.colors()[k++];
+					if (accumulation != null)
+						accumulation.set(j, i, color, state.samples());
+					imageWriter.writePixel(j, i, color);
+				}
+		}
+		return tileSamples;
+	}
+
+	/**
+	 * Fingerprint of the rendering settings which affect the pixels - the scene
+	 * (its name and the amounts of its geometries and lights), the camera view
+	 * and the samples per pixel (anti-aliasing, glossy and diffuse rays and the
+	 * target samples of progressive rendering). A checkpoint of a rendering with
+	 * another fingerprint is not resumed.
+	 * 
+	 * @param targetSamples target amount of samples per pixel of progressive
+	 *                      rendering, 0 for single pass rendering
+	 * @return the fingerprint
+	 */
+	private int settingsFingerprint(int targetSamples) {
+		Scene scene = rayTracer.scene;
+		return Objects.hash(scene.name, scene.geometries.getGeometries().size(), scene.lights.size(),
+				scene.background.getRgb(), location, vTo, vUp, distance, width, height, antiAlasingNumOfRays,
+				rayTracer.glossyAndDiffuseNumOfRay, targetSamples);
+	}
+
+	/**
+	 * Close the checkpoint of the rendering (if it is set)
+	 * 
+	 * @param completed whether the rendering has been completed - then the
+	 *                  checkpoint is deleted
+	 */
+	private void closeCheckpoint(boolean completed) {
+		if (checkpoint == null)
+			return;
+		checkpoint.close(completed);
+		checkpoint = null;
+	}
+
+	/**
+	 * Start collecting the statistics of a rendering (if they are collected)
+	 */
+	private void startStats() {
+		renderStats = null;
+		heatmap = heatmapMode == null ? null : new Heatmap(heatmapMode, nX, nY);
+		// the rays heatmap and the rays of the tile events are counted by the
+		// counters of the statistics
+		if (statistics || heatmapMode == Heatmap.Mode.RAYS || RenderEvents.TileRender.enabled())
+			collector = new RenderStats.Collector(tileTiming);
+	}
+
+	/**
+	 * Finish collecting the statistics of a rendering (if they are collected)
+	 */
+	private void finishStats() {
+		if (collector == null)
+			return;
+		RenderStats stats = collector.finish();
+		renderStats = statistics ? stats : null;
+		collector = null;
+	}
+
+	/**
+	 * Statistics of the last rendering - amounts of the traced rays, intersection
+	 * tests, visited voxels, recursion depth and optionally tile times (see
+	 * {@link Builder#setRenderStats(boolean, boolean)})
+	 * 
+	 * @return the statistics, null if they are not collected or if the rendering
+	 *         has not been done
+	 */
+	public RenderStats getRenderStats() {
+		return renderStats;
+	}
+
+	/**
+	 * Statistics of the grid build of the grid ray tracer (see
+	 * {@link Builder#setGridResolution(double, long)})
+	 * 
+	 * @return the statistics, null if the camera does not use the grid ray tracer
+	 */
+	public Grid.BuildStats getGridStats() {
+		return rayTracer instanceof GridRayTracer gridRayTracer ? gridRayTracer.getGrid().getBuildStats() : null;
+	}
+
+	/**
+	 * Heatmap of the last rendering - the rendering time or the amount of rays of
+	 * each pixel (see {@link Builder#setHeatmap(Heatmap.Mode)})
+	 * 
+	 * @return the heatmap, null if it is not recorded or if the rendering has not
+	 *         been done
+	 */
+	public Heatmap getHeatmap() {
+		return heatmap;
+	}
+
+	/**
+	 * Writes the heatmap of the last rendering to a false-color image file
+	 * 
+	 * @param imageName the name of the output image file
+	 * @return the camera instance after writing the image
+	 */
+	public Camera writeHeatmapToImage(String imageName) {
+		if (heatmap == null)
+			throw new IllegalStateException("No heatmap has been recorded");
+		heatmap.writeToImage(imageName);
+		return this;
+	}
+
+	/**
+	 * Render image's pixels allocated by the pixel manager according to the
+	 * multi-threading setting
+	 * 
+	 * @return the camera object itself
+	 */
+	private Camera render() {
 		return switch (threadsCount) {
 		case 0 -> renderImageNoThreads();
 		case -1 -> renderImageStream();
@@ -139,6 +530,220 @@ public class Camera implements Cloneable {
 		};
 	}
 
+	/**
+	 * Render a region of the image (a tile allocated to a render farm worker, see
+	 * {@link RenderWorker}) - the region is rendered as a crop window
+	 * 
+	 * @param x0 first pixel column of the region
+	 * @param y0 first pixel row of the region
+	 * @param x1 the column after the last pixel column of the region
+	 * @param y1 the row after the last pixel row of the region
+	 * @return the RGB values of the region pixels row after row
+	 */
+	int[] renderRegion(int x0, int y0, int x1, int y1) {
+		cropX = x0;
+		cropY = y0;
+		cropWidth = x1 - x0;
+		cropHeight = y1 - y0;
+		renderImage();
+		return imageWriter.getPixels(x0, y0, cropWidth, cropHeight);
+	}
+
+	/**
+	 * Write the pixels of a tile rendered by a render farm worker into the image
+	 * 
+	 * @param tile the tile
+	 * @param rgb  the RGB values of the tile pixels row after row
+	 */
+	void setPixels(Tile tile, int[] rgb) {
+		imageWriter.setPixels(tile.x0(), tile.y0(), tile.x1() - tile.x0(), tile.y1() - tile.y0(), rgb);
+	}
+
+	/**
+	 * Write the settings of the camera - location, direction, view plane,
+	 * resolution, anti-aliasing, tile size, ray tracer type and its acceleration
+	 * structure settings - for sending them to render farm workers
+	 * 
+	 * @param out the output
+	 * @throws IOException in case of I/O error
+	 */
+	void writeSettings(DataOutput out) throws IOException {
+		for (Point p : new Point[] { location, vTo, vUp, vRight }) {
+			out.writeDouble(p.getX());
+			out.writeDouble(p.getY());
+			out.writeDouble(p.getZ());
+		}
+		out.writeDouble(distance);
+		out.writeDouble(width);
+		out.writeDouble(height);
+		out.writeInt(nX);
+		out.writeInt(nY);
+		out.writeInt(antiAlasingNumOfRays);
+		out.writeInt(rayTracer.glossyAndDiffuseNumOfRay);
+		out.writeInt(tileSize);
+		out.writeBoolean(rayTracer instanceof GridRayTracer);
+		out.writeDouble(gridDensity);
+		out.writeLong(gridMaxCells);
+		out.writeUTF(bvhSplit == null ? "" : bvhSplit.name());
+	}
+
+	/**
+	 * Read camera settings written by {@link #writeSettings(DataOutput)} and build
+	 * the camera for a scene
+	 * 
+	 * @param in      the input
+	 * @param scene   the scene
+	 * @param threads multi-threading setting of the camera (see
+	 *                {@link Builder#setMultithreading(int)})
+	 * @return the camera
+	 * @throws IOException in case of I/O error
+	 */
+	static Camera readSettings(DataInput in, Scene scene, int threads) throws IOException {
+		Builder builder = getBuilder().setLocation(new Point(readDouble3(in)));
+		builder.setDirection(new Vector(readDouble3(in)), new Vector(readDouble3(in)));
+		builder.camera.vRight = new Vector(readDouble3(in));
+		builder.setVpDistance(in.readDouble()) //
+				.setVpSize(in.readDouble(), in.readDouble()) //
+				.setResolution(in.readInt(), in.readInt()) //
+				.setAntiAliasingRays(in.readInt()) //
+				.setGlossyAndDiffuseRays(in.readInt()) //
+				.setTileSize(in.readInt()) //
+				.setRayTracer(scene, in.readBoolean() ? RayTracerType.GRID : RayTracerType.SIMPLE) //
+				.setGridResolution(in.readDouble(), in.readLong());
+		String split = in.readUTF();
+		return builder.setBvh(split.isEmpty() ? null : Bvh.Split.valueOf(split)) //
+				.setMultithreading(threads) //
+				.build();
+	}
+
+	/**
+	 * Read a triad of doubles
+	 * 
+	 * @param in the input
+	 * @return the triad
+	 * @throws IOException in case of I/O error
+	 */
+	private static Double3 readDouble3(DataInput in) throws IOException {
+		return new Double3(in.readDouble(), in.readDouble(), in.readDouble());
+	}
+
+	/**
+	 * Cancel the current rendering: the workers stop after the pixel they are
+	 * tracing
+	 */
+	void cancelRendering() {
+		cancelled = true;
+	}
+
+	/**
+	 * The progress of the current (or the last) rendering
+	 * 
+	 * @return the part of the work that has been done, between 0 and 1
+	 */
+	double progress() {
+		PixelManager manager = pixelManager;
+		return manager == null ? 0 : min(1, (pass + manager.progress()) / passes);
+	}
+
+	/**
+	 * Position and orientation of a camera - a keyframe of a camera path (see
+	 * {@link Animation})
+	 * 
+	 * @param location the position of the camera
+	 * @param vTo      the forward direction (normalized)
+	 * @param vUp      the up direction (normalized, orthogonal to the forward
+	 *                 direction)
+	 */
+	record Pose(Point location, Vector vTo, Vector vUp) {
+	}
+
+	/**
+	 * The position and the orientation of the camera
+	 * 
+	 * @return the pose
+	 */
+	Pose pose() {
+		return new Pose(location, vTo, vUp);
+	}
+
+	/**
+	 * Move the camera into a pose, keeping the view plane, the resolution, the
+	 * ray tracer and the image buffer (e.g. between the frames of an animation)
+	 * 
+	 * @param pose the pose
+	 * @return the camera object itself
+	 */
+	Camera setPose(Pose pose) {
+		location = pose.location();
+		vTo = pose.vTo();
+		vUp = pose.vUp();
+		vRight = vTo.crossProduct(vUp).normalize();
+		centerViewPlane = location.add(vTo.scale(distance));
+		return this;
+	}
+
+	/**
+	 * A copy of the camera rendering the frames of an animation - it shares the
+	 * ray tracer (and its acceleration structure) with the camera, but it has its
+	 * own image buffer, and it is not checkpointed since the frames would resume
+	 * one another
+	 * 
+	 * @param concurrent whether the copy renders its frames concurrently with
+	 *                   other copies - then it renders by a single thread,
+	 *                   otherwise by the multi-threading of the camera
+	 * @return the copy
+	 */
+	Camera frameCamera(boolean concurrent) {
+		Camera copy;
+		try {
+			copy = (Camera) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("Camera cannot be copied", e);
+		}
+		copy.imageWriter = new ImageWriter(nX, nY);
+		if (concurrent)
+			copy.threadsCount = 0;
+		copy.checkpointFile = null;
+		copy.checkpoint = null;
+		copy.pixelManager = null;
+		copy.collector = null;
+		copy.heatmap = null;
+		copy.cancelled = false;
+		copy.workers = null;
+		return copy;
+	}
+
+	/**
+	 * Keep the rendering threads alive for the following renderings (e.g. the
+	 * frames of an animation) rather than starting and joining new threads for
+	 * each one - until {@link #stopWorkers()}. It has no effect unless the camera
+	 * renders by raw threads (see {@link Builder#setMultithreading(int)}).
+	 */
+	void startWorkers() {
+		if (threadsCount > 0 && workers == null)
+			workers = Executors.newFixedThreadPool(threadsCount);
+	}
+
+	/**
+	 * Stop the rendering threads kept alive by {@link #startWorkers()}
+	 */
+	void stopWorkers() {
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+	}
+
+	/**
+	 * Update the acceleration structure of the ray tracer after geometries moved
+	 * (see {@link RayTracerBase#refit(Collection)})
+	 * 
+	 * @param moved the geometries which moved
+	 */
+	void refit(Collection<? extends Intersectable> moved) {
+		rayTracer.refit(moved);
+	}
+
 	/**
 	 * Prints a grid on the image with the specified interval and color.
 	 * 
@@ -162,10 +767,12 @@ public class Camera implements Cloneable {
 	 * @return the camera object itself
 	 */
 	private Camera renderImageStream() {
-		IntStream.range(0, nY).parallel()//
-				.forEach(i -> IntStream.range(0, nX).parallel()//
-						.forEach(j -> castRay(j, i))//
-				);
+		Thread caller = Thread.currentThread();
+		pixelManager.tiles().parallelStream().forEach(tile -> {
+			if (caller.isInterrupted())
+				cancelled = true;
+			renderTile(tile);
+		});
 		return this;
 	}
 
@@ -175,9 +782,13 @@ public class Camera implements Cloneable {
 	 * @return the camera object itself
 	 */
 	private Camera renderImageNoThreads() {
-		for (int i = 0; i < nY; ++i)
-			for (int j = 0; j < nX; ++j)
-				castRay(j, i);
+		for (Tile tile : pixelManager.tiles()) {
+			if (Thread.currentThread().isInterrupted())
+				cancelled = true;
+			if (cancelled)
+				break;
+			renderTile(tile);
+		}
 		return this;
 	}
 
@@ -187,20 +798,70 @@ public class Camera implements Cloneable {
 	 * @return the camera object itself
 	 */
 	private Camera renderImageRawThreads() {
+		Runnable worker = () -> {
+			Tile tile;
+			while (!cancelled && (tile = pixelManager.nextTile()) != null)
+				renderTile(tile);
+		};
+		if (workers != null)
+			return renderImagePooledThreads(worker);
 		var threads = new LinkedList<Thread>();
-		while (threadsCount-- > 0)
-			threads.add(new Thread(() -> {
-				Pixel pixel;
-				while ((pixel = pixelManager.nextPixel()) != null)
-					castRay(pixel.col(), pixel.row());
-			}));
+		for (int i = threadsCount; i > 0; --i)
+			threads.add(new Thread(worker));
 		for (var thread : threads)
 			thread.start();
-		try {
-			for (var thread : threads)
-				thread.join();
-		} catch (InterruptedException ignored) {
+		// When interrupted - cancel the rendering, wait for the workers to finish
+		// their current pixels, and keep the interrupt status for the caller
+		boolean interrupted = false;
+		for (var thread : threads)
+			while (thread.isAlive())
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					cancelled = true;
+				}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return this;
+	}
+
+	/**
+	 * Render image by the pool of the rendering threads kept alive over the
+	 * renderings (see {@link #startWorkers()})
+	 * 
+	 * @param worker the rendering work of each thread
+	 * @return the camera object itself
+	 */
+	private Camera renderImagePooledThreads(Runnable worker) {
+		var tasks = new LinkedList<Future<?>>();
+		for (int i = threadsCount; i > 0; --i)
+			tasks.add(workers.submit(worker));
+		// When interrupted - cancel the rendering, wait for the workers to finish
+		// their current pixels, and keep the interrupt status for the caller
+		boolean interrupted = false;
+		RuntimeException failure = null;
+		for (var task : tasks) {
+			boolean joined = false;
+			while (!joined)
+				try {
+					task.get();
+					joined = true;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					cancelled = true;
+				} catch (ExecutionException e) {
+					if (failure == null)
+						failure = e.getCause() instanceof RuntimeException r ? r
+								: new IllegalStateException("Rendering thread failed", e.getCause());
+					cancelled = true;
+					joined = true;
+				}
 		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure != null)
+			throw failure;
 		return this;
 	}
 
@@ -225,6 +886,18 @@ public class Camera implements Cloneable {
 
 	}
 
+	/**
+	 * Writes the rendered region (crop window) of the image to a file. If there
+	 * is no crop window - the whole image is written.
+	 * 
+	 * @param imageName the name of the output image file
+	 * @return the camera instance after writing the image
+	 */
+	public Camera writeCropToImage(String imageName) {
+		imageWriter.writeToImage(imageName, cropX, cropY, cropWidth, cropHeight);
+		return this;
+	}
+
 	/**
 	 * create ray from the camera to pixel
 	 * 
@@ -235,35 +908,173 @@ public class Camera implements Cloneable {
 	 * @return the ray from the camera to pixel
 	 */
 	public Ray constructRay(int nX, int nY, int j, int i) {
-		centerViewPlane = location.add(vTo.scale(distance));
 		double rY = height / nY;
 		double rX = width / nX;
-		double xJ = (j - (nX - 1) / 2.0) * rX;
-		double yI = -(i - (nY - 1) / 2.0) * rY;
-		Point pIJ = centerViewPlane;
-		if (xJ != 0)
-			pIJ = pIJ.add(vRight.scale(xJ));
-		if (yI != 0)
-			pIJ = pIJ.add(vUp.scale(yI));
-		return new Ray(location, pIJ.subtract(location).normalize());
+		return constructRay((j - (nX - 1) / 2.0) * rX, -(i - (nY - 1) / 2.0) * rY);
+	}
+
+	/**
+	 * create ray from the camera to a point on the view plane
+	 * 
+	 * @param xJ the distance of the point from the view plane center along the
+	 *           right direction
+	 * @param yI the distance of the point from the view plane center along the up
+	 *           direction
+	 * @return the ray from the camera to the point
+	 */
+	private Ray constructRay(double xJ, double yI) {
+		// the hot path of the primary rays - computed in primitive doubles without
+		// allocating intermediate points and vectors
+		double x = centerViewPlane.getX(), y = centerViewPlane.getY(), z = centerViewPlane.getZ();
+		if (xJ != 0) {
+			x += vRight.getX() * xJ;
+			y += vRight.getY() * xJ;
+			z += vRight.getZ() * xJ;
+		}
+		if (yI != 0) {
+			x += vUp.getX() * yI;
+			y += vUp.getY() * yI;
+			z += vUp.getZ() * yI;
+		}
+		x -= location.getX();
+		y -= location.getY();
+		z -= location.getZ();
+		double length = Math.sqrt(x * x + y * y + z * z);
+		return new Ray(location, Vector.trusted(x / length, y / length, z / length));
+	}
+
+	/**
+	 * Renders the pixels of a tile. The rendering of the tile stops if the
+	 * rendering is cancelled or stopped, otherwise the tile is reported as done
+	 * (and it is checkpointed).
+	 * 
+	 * @param tile the tile
+	 */
+	private void renderTile(Tile tile) {
+		RenderStats.Collector stats = collector;
+		if (stats == null) {
+			renderTilePixels(tile);
+			return;
+		}
+		// the tile event is recorded if a flight recording has been running since the
+		// start of the rendering (then the statistics are collected)
+		RenderEvents.TileRender event = new RenderEvents.TileRender();
+		event.begin();
+		long start = stats.bind();
+		RayCounters counters = RayCounters.current();
+		long rays = counters.totalRays();
+		boolean completed = false;
+		try {
+			completed = renderTilePixels(tile);
+		} finally {
+			rays = counters.totalRays() - rays;
+			stats.unbind(tile, start);
+			if (event.shouldCommit()) {
+				event.x0 = tile.x0();
+				event.y0 = tile.y0();
+				event.x1 = tile.x1();
+				event.y1 = tile.y1();
+				event.pass = pass;
+				event.rays = rays;
+				event.completed = completed;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Renders the pixels of a tile (see {@link #renderTile(Tile)})
+	 * 
+	 * @param tile the tile
+	 * @return true if the tile has been completed, false if the rendering has
+	 *         been cancelled or stopped
+	 */
+	private boolean renderTilePixels(Tile tile) {
+		Color[] colors = checkpoint == null ? null : new Color[tile.pixels()];
+		int k = 0;
+		for (int i = tile.y0(); i < tile.y1(); ++i)
+			for (int j = tile.x0(); j < tile.x1(); ++j) {
+				if (cancelled || pixelManager.isStopped())
+					return false;
+				Color color = castRay(j, i);
+				if (colors != null)
+					colors[k++] = color;
+			}
+		pixelManager.tileDone(tile);
+		if (colors != null)
+			checkpoint.write(tile, pass + 1, colors);
+		return true;
 	}
 
 	/**
 	 * Casts a ray for a specific pixel and writes the resulting color to the image.
+	 * The cost of the pixel is recorded in the heatmap (if there is one).
+	 * 
+	 * @param i the horizontal index of the pixel
+	 * @param j the vertical index of the pixel
+	 * @return the color written to the image
+	 */
+	private Color castRay(int i, int j) {
+		Heatmap map = heatmap;
+		if (map == null)
+			return tracePixel(i, j);
+		if (map.getMode() == Heatmap.Mode.TIME) {
+			long start = System.nanoTime();
+			Color color = tracePixel(i, j);
+			map.add(i, j, System.nanoTime() - start);
+			return color;
+		}
+		RayCounters counters = RayCounters.current();
+		long start = counters.totalRays();
+		Color color = tracePixel(i, j);
+		map.add(i, j, counters.totalRays() - start);
+		return color;
+	}
+
+	/**
+	 * Traces the rays of a specific pixel and writes the resulting color to the
+	 * image (see {@link #castRay(int, int)})
 	 * 
 	 * @param i the horizontal index of the pixel
 	 * @param j the vertical index of the pixel
+	 * @return the color written to the image
 	 */
-	private void castRay(int i, int j) {
-		Ray rayPixel = constructRay(nX, nY, i, j);
+	private Color tracePixel(int i, int j) {
 		Color colorPixel;
-		if (antiAlasingNumOfRays > 1)
-			colorPixel = CastBeamRay(rayPixel);
-		else
-			colorPixel = rayTracer.traceRay(rayPixel);
+		if (accumulation != null)
+			colorPixel = accumulation.add(i, j, rayTracer.traceRay(constructSampleRay(i, j)));
+		else {
+			Ray rayPixel = constructRay(nX, nY, i, j);
+			if (antiAlasingNumOfRays > 1)
+				colorPixel = CastBeamRay(rayPixel);
+			else
+				colorPixel = rayTracer.traceRay(rayPixel);
+		}
 		imageWriter.writePixel(i, j, colorPixel);
-		pixelManager.pixelDone();
+		return colorPixel;
+	}
 
+	/**
+	 * Constructs the ray of the current progressive rendering pass through a
+	 * pixel. The first pass uses the pixel center, the following ones use
+	 * sub-pixel positions of R2 low-discrepancy sequence, shifted by a per-pixel
+	 * hash to avoid correlation between neighbor pixels. The sampling is
+	 * deterministic - it depends only on the pixel and on the pass index.
+	 * 
+	 * @param j the horizontal index of the pixel
+	 * @param i the vertical index of the pixel
+	 * @return the ray through the pixel for the current pass
+	 */
+	private Ray constructSampleRay(int j, int i) {
+		double dX = 0, dY = 0;
+		if (pass > 0) {
+			int hash = j * 0x27d4eb2d ^ i * 0x165667b1;
+			hash = (hash ^ (hash >>> 15)) * 0x2c1b3c6d;
+			hash ^= hash >>> 13;
+			dX = (((hash & 0xFFFF) / 65536.0 + pass * R2_X) % 1) - 0.5;
+			dY = (((hash >>> 16) / 65536.0 + pass * R2_Y) % 1) - 0.5;
+		}
+		return constructRay((j + dX - (nX - 1) / 2.0) * rX, -(i + dY - (nY - 1) / 2.0) * rY);
 	}
 
 	/**
@@ -321,6 +1132,40 @@ public class Camera implements Cloneable {
 		 */
 		private Scene scene = null;
 
+		/**
+		 * The prepared scene whose ray tracer the camera gets, null if the camera
+		 * builds its own ray tracer of the scene.
+		 */
+		private PreparedScene preparedScene = null;
+
+		/**
+		 * The crop window (first column, first row, width and height) of the
+		 * rendered region, null if the whole image is rendered.
+		 */
+		private int[] cropWindow = null;
+
+		/**
+		 * The name of the image the rendering is composited into, null if the
+		 * rendering starts from a blank image.
+		 */
+		private String baseImage = null;
+
+		/**
+		 * The split strategy of the bounding volume hierarchy the scene geometries
+		 * are rebuilt into, null if the geometries are traced as they are.
+		 */
+		private Bvh.Split bvhSplit = null;
+
+		/**
+		 * The amount of grid voxels per geometry of the grid ray tracer.
+		 */
+		private double gridDensity = Grid.DEFAULT_DENSITY;
+
+		/**
+		 * The maximal amount of grid voxels of the grid ray tracer.
+		 */
+		private long gridMaxCells = Grid.DEFAULT_MAX_CELLS;
+
 		/**
 		 * Creates a new Builder instance for constructing a Camera.
 		 */
@@ -329,7 +1174,11 @@ public class Camera implements Cloneable {
 		}
 
 		/**
-		 * Creates a new Builder instance using an existing Camera object.
+		 * Creates a new Builder instance using an existing Camera object. The built
+		 * camera shares the ray tracer of the existing camera (and its acceleration
+		 * structure) unless another one is set by
+		 * {@link #setRayTracer(Scene, RayTracerType)} or
+		 * {@link #setRayTracer(PreparedScene)}.
 		 * 
 		 * @param camera the Camera object to copy properties from
 		 */
@@ -351,6 +1200,19 @@ public class Camera implements Cloneable {
 			this.camera.centerViewPlane = camera.centerViewPlane;
 			this.camera.antiAlasingSize = camera.antiAlasingSize;
 			this.camera.antiAlasingNumOfRays = camera.antiAlasingNumOfRays;
+			this.camera.tileSize = camera.tileSize;
+			this.camera.checkpointFile = camera.checkpointFile;
+			this.camera.checkpointInterval = camera.checkpointInterval;
+			this.camera.statistics = camera.statistics;
+			this.camera.tileTiming = camera.tileTiming;
+			this.camera.heatmapMode = camera.heatmapMode;
+			this.camera.bvhSplit = camera.bvhSplit;
+			this.camera.gridDensity = camera.gridDensity;
+			this.camera.gridMaxCells = camera.gridMaxCells;
+			if (camera.rayTracer != null)
+				diffusiveNumOfRays = camera.rayTracer.glossyAndDiffuseNumOfRay;
+			if (camera.cropWidth != camera.nX || camera.cropHeight != camera.nY)
+				cropWindow = new int[] { camera.cropX, camera.cropY, camera.cropWidth, camera.cropHeight };
 
 		}
 
@@ -392,6 +1254,117 @@ public class Camera implements Cloneable {
 			return this;
 		}
 
+		/**
+		 * Set the size of the square tiles of pixels allocated to the rendering
+		 * threads (it is the granularity of the progress and of the checkpoints)
+		 * 
+		 * @param tileSize tile size in pixels
+		 * @return builder object itself
+		 */
+		public Builder setTileSize(int tileSize) {
+			if (tileSize < 1)
+				throw new IllegalArgumentException("Tile size must be positive");
+			camera.tileSize = tileSize;
+			return this;
+		}
+
+		/**
+		 * Set collecting statistics of the renderings (see
+		 * {@link Camera#getRenderStats()}). The statistics are counted by each
+		 * rendering thread separately, so the collection slows the rendering only
+		 * slightly.
+		 * 
+		 * @param enabled    whether to collect the statistics
+		 * @param tileTiming whether to time each tile as well
+		 * @return builder object itself
+		 */
+		public Builder setRenderStats(boolean enabled, boolean tileTiming) {
+			camera.statistics = enabled;
+			camera.tileTiming = enabled && tileTiming;
+			return this;
+		}
+
+		/**
+		 * Set recording a heatmap of the renderings - the cost of each pixel, which
+		 * may be written as a false-color image beside the rendered image (see
+		 * {@link Camera#writeHeatmapToImage(String)})
+		 * 
+		 * @param mode the recorded cost - rendering time or amount of rays, null for
+		 *             no heatmap
+		 * @return builder object itself
+		 */
+		public Builder setHeatmap(Heatmap.Mode mode) {
+			camera.heatmapMode = mode;
+			return this;
+		}
+
+		/**
+		 * Set checkpointing of the rendering: each completed tile is appended to the
+		 * checkpoint file, which is synchronized with the disk periodically. If the
+		 * file exists when the rendering starts, and it belongs to a rendering with
+		 * the same resolution, tile size and mode (single pass or progressive), the
+		 * rendering is resumed - the saved tiles are restored and skipped. The file
+		 * is deleted when the rendering is completed.
+		 * 
+		 * @param fileName checkpoint file name, null for no checkpointing
+		 * @param interval interval in seconds between synchronizations of the file
+		 *                 with the disk
+		 * @return builder object itself
+		 */
+		public Builder setCheckpoint(String fileName, double interval) {
+			if (interval < 0)
+				throw new IllegalArgumentException("interval parameter must be non-negative");
+			camera.checkpointFile = fileName;
+			camera.checkpointInterval = interval;
+			return this;
+		}
+
+		/**
+		 * Set the crop window (region of interest) - only the pixels of this region
+		 * are rendered, with the same rays as in the rendering of the whole image.
+		 * The other pixels of the image are left blank, or as they are in the base
+		 * image (see {@link #setBaseImage(String)}). The region may be written
+		 * separately by {@link Camera#writeCropToImage(String)}.
+		 * 
+		 * @param x      first pixel column of the region
+		 * @param y      first pixel row of the region
+		 * @param width  width of the region (in pixels)
+		 * @param height height of the region (in pixels)
+		 * @return builder object itself
+		 */
+		public Builder setCropWindow(int x, int y, int width, int height) {
+			if (x < 0 || y < 0)
+				throw new IllegalArgumentException("Crop window position must be non-negative");
+			if (width <= 0 || height <= 0)
+				throw new IllegalArgumentException("Crop window size must be positive");
+			cropWindow = new int[] { x, y, width, height };
+			return this;
+		}
+
+		/**
+		 * Remove the crop window - the whole image is rendered
+		 * 
+		 * @return builder object itself
+		 */
+		public Builder clearCropWindow() {
+			cropWindow = null;
+			return this;
+		}
+
+		/**
+		 * Set the base image of the rendering: the image is loaded from png file and
+		 * the rendered pixels are written over it (e.g. for compositing a re-rendered
+		 * crop window into a former rendering). The image must have the same
+		 * resolution as the camera.
+		 * 
+		 * @param imageName the name of the png file, null for a blank image
+		 * @return builder object itself
+		 */
+		public Builder setBaseImage(String imageName) {
+			baseImage = imageName;
+			return this;
+		}
+
 		/**
 		 * Sets the translation vector for the camera.
 		 * 
@@ -562,6 +1535,59 @@ public class Camera implements Cloneable {
 			if (type == RayTracerType.GRID)
 				rayTracerType = RayTracerType.GRID;
 			this.scene = scene;
+			preparedScene = null;
+			return this;
+		}
+
+		/**
+		 * Set the ray tracer of a prepared scene - the camera shares the scene
+		 * acceleration structure with the other cameras of the prepared scene rather
+		 * than building its own (the BVH and grid settings of the builder are not
+		 * used)
+		 * 
+		 * @param preparedScene the prepared scene
+		 * @return the camera builder after update
+		 */
+		public Builder setRayTracer(PreparedScene preparedScene) {
+			this.preparedScene = preparedScene;
+			scene = null;
+			rayTracerType = null;
+			return this;
+		}
+
+		/**
+		 * Rebuild the scene geometries into a bounding volume hierarchy when the
+		 * camera is built (see {@link Bvh}), so a flat scene is intersected in
+		 * logarithmic time without being restructured by hand. The scene itself is
+		 * not changed - the ray tracer of the camera traces a copy of it with the
+		 * hierarchy. The grid ray tracer has its own acceleration structure and
+		 * ignores the setting.
+		 * 
+		 * @param split the split strategy of the hierarchy, null for tracing the
+		 *              geometries as they are
+		 * @return the builder instance
+		 */
+		public Builder setBvh(Bvh.Split split) {
+			bvhSplit = split;
+			return this;
+		}
+
+		/**
+		 * Set the resolution policy of the grid of the grid ray tracer (see
+		 * {@link Grid#Grid(geometries.Geometries, double, long)})
+		 * 
+		 * @param density  amount of grid voxels per geometry (λ), default
+		 *                 {@value Grid#DEFAULT_DENSITY}
+		 * @param maxCells the maximal amount of grid voxels, default 2^24
+		 * @return the builder instance
+		 */
+		public Builder setGridResolution(double density, long maxCells) {
+			if (!(density > 0) || Double.isInfinite(density))
+				throw new IllegalArgumentException("Grid density must be positive");
+			if (maxCells < 1)
+				throw new IllegalArgumentException("Maximal amount of grid cells must be positive");
+			gridDensity = density;
+			gridMaxCells = maxCells;
 			return this;
 		}
 
@@ -608,6 +1634,22 @@ public class Camera implements Cloneable {
 
 		}
 
+		/**
+		 * The pose set so far - e.g. a keyframe of an animation (see
+		 * {@link Animation#addKeyframe(int, Builder)})
+		 * 
+		 * @return the pose
+		 * @throws IllegalArgumentException if the location or the direction is not
+		 *                                  set, or the directions are not orthogonal
+		 */
+		Pose pose() {
+			if (camera.location == null || camera.vTo == null || camera.vUp == null)
+				throw new IllegalArgumentException("Camera location and direction must be set");
+			if (!isZero(camera.vTo.dotProduct(camera.vUp)))
+				throw new IllegalArgumentException("vTo and vUp vectors must be orthogonal");
+			return new Pose(camera.location, camera.vTo.normalize(), camera.vUp.normalize());
+		}
+
 		/**
 		 * Camera build
 		 * 
@@ -656,17 +1698,52 @@ public class Camera implements Cloneable {
 			if (camera.nY <= 0)
 				throw new MissingResourceException(GENERAL_MSG, CLASS_NAME, RESOLUTIONY_FIELD);
 
-			camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
-			if (rayTracerType == RayTracerType.GRID)
-				camera.rayTracer = new GridRayTracer(scene);
+			if (cropWindow == null) {
+				camera.cropX = 0;
+				camera.cropY = 0;
+				camera.cropWidth = camera.nX;
+				camera.cropHeight = camera.nY;
+			} else {
+				if (cropWindow[0] + cropWindow[2] > camera.nX || cropWindow[1] + cropWindow[3] > camera.nY)
+					throw new IllegalArgumentException("Crop window must be inside the image");
+				camera.cropX = cropWindow[0];
+				camera.cropY = cropWindow[1];
+				camera.cropWidth = cropWindow[2];
+				camera.cropHeight = cropWindow[3];
+			}
 
-			else
-				camera.rayTracer = new SimpleRayTracer(scene);
+			camera.imageWriter = baseImage == null ? new ImageWriter(camera.nX, camera.nY)
+					: new ImageWriter(baseImage, camera.nX, camera.nY);
+			int glossyAndDiffuseRays = max(diffusiveNumOfRays, 1);
+			if (preparedScene != null) {
+				camera.rayTracer = preparedScene.createRayTracer();
+				camera.bvhSplit = preparedScene.getBvhSplit();
+				camera.gridDensity = preparedScene.getGridDensity();
+				camera.gridMaxCells = preparedScene.getGridMaxCells();
+			} else if (scene == null && camera.rayTracer != null) {
+				// a builder copied from a camera without a new scene - the ray tracer (and
+				// its acceleration structure) is shared with the copied camera, unless the
+				// settings of the ray tracer differ - then it is copied, so the copied
+				// camera is not changed
+				if (camera.rayTracer.glossyAndDiffuseNumOfRay != glossyAndDiffuseRays)
+					camera.rayTracer = camera.rayTracer.copy();
+			} else {
+				if (rayTracerType == RayTracerType.GRID)
+					camera.rayTracer = new GridRayTracer(scene, gridDensity, gridMaxCells);
+				else if (bvhSplit != null && scene != null)
+					camera.rayTracer = new SimpleRayTracer(scene, bvhSplit);
+				else
+					camera.rayTracer = new SimpleRayTracer(scene);
+				camera.bvhSplit = rayTracerType == RayTracerType.GRID ? null : bvhSplit;
+				camera.gridDensity = gridDensity;
+				camera.gridMaxCells = gridMaxCells;
+			}
 
-			if (diffusiveNumOfRays > 1)
-				camera.rayTracer.glossyAndDiffuseSetRays(diffusiveNumOfRays);
+			if (camera.rayTracer.glossyAndDiffuseNumOfRay != glossyAndDiffuseRays)
+				camera.rayTracer.glossyAndDiffuseSetRays(glossyAndDiffuseRays);
 			camera.rX = camera.width / camera.nX;
 			camera.rY = camera.height / camera.nY;
+			camera.centerViewPlane = camera.location.add(camera.vTo.scale(camera.distance));
 
 			if (camera.antiAlasingNumOfRays > 1)
 				camera.antiAlasingSize = min(camera.rX, camera.rY);
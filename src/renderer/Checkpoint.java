@@ -0,0 +1,338 @@
+package renderer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import primitives.Color;
+import primitives.Double3;
+import renderer.PixelManager.Tile;
+
+/**
+ * Checkpoint file of a long rendering. Each completed tile is appended to the
+ * file with the amount of samples per pixel it has and the current colors of
+ * its pixels, so a rendering that has been stopped (or killed) may be resumed
+ * and the finished tiles are skipped.<br>
+ * The file is append-only while rendering: the records are buffered and the
+ * file is synchronized with the disk periodically. When a checkpoint is opened
+ * for resuming, only the latest record of each tile is kept and the file is
+ * rewritten compactly. The file is compacted the same way while rendering once
+ * it holds twice as many records as there are tiles (e.g. after two passes of
+ * progressive rendering), so its size stays within about two images however
+ * many passes are rendered.<br>
+ * A checkpoint is resumed only by a rendering of the same image: besides the
+ * layout of the tiles, the header holds a fingerprint of the settings which
+ * affect the pixels (the scene, the camera view and the samples per pixel), and
+ * a checkpoint of other settings is discarded rather than composited into the
+ * new image.<br>
+ * File format (big-endian):
+ * <ul>
+ * <li>header - magic number, rendering mode (0 - single pass, 1 -
+ * progressive), resolution (nX, nY), rendered region (crop window - first
+ * column, first row, width and height), tile size and settings
+ * fingerprint</li>
+ * <li>tile records - tile number, samples per pixel, and RGB components (as
+ * floats) of the tile pixels row after row</li>
+ * </ul>
+ */
+class Checkpoint {
+	/**
+	 * State of a tile restored from the checkpoint
+	 *
+	 * @param tile    the tile
+	 * @param samples the amount of samples per pixel in the tile
+	 * @param colors  the colors of the tile pixels row after row
+	 */
+	record TileState(Tile tile, int samples, Color[] colors) {
+	}
+
+	/** Checkpoint file magic number */
+	private static final int MAGIC = 0x52544332;
+	/** Size of the output buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Size of the file header in bytes */
+	private static final int HEADER_SIZE = 10 * Integer.BYTES;
+
+	/** Checkpoint file */
+	private final File file;
+	/** Interval between synchronizations of the file with the disk (nanoseconds) */
+	private final long interval;
+	/** Rendering mode: 0 - single pass, 1 - progressive */
+	private final int mode;
+	/** Horizontal resolution of the image */
+	private final int nX;
+	/** Vertical resolution of the image */
+	private final int nY;
+	/** First pixel column of the rendered region */
+	private final int x;
+	/** First pixel row of the rendered region */
+	private final int y;
+	/** Width of the rendered region (in pixels) */
+	private final int width;
+	/** Height of the rendered region (in pixels) */
+	private final int height;
+	/** Tile size (in pixels) */
+	private final int tileSize;
+	/** Fingerprint of the rendering settings which affect the pixels */
+	private final int fingerprint;
+
+	/** Checkpoint file stream (for synchronizing with the disk) */
+	private FileOutputStream fileStream;
+	/** Buffered output of the records */
+	private DataOutputStream out;
+	/** Time of the last synchronization with the disk */
+	private long lastSync;
+	/** File offsets of the latest record of each tile, -1 if there is none */
+	private long[] offsets;
+	/** Amount of the records in the file */
+	private int records;
+	/** Length of the file, including the buffered records */
+	private long length;
+
+	/**
+	 * Constructs checkpoint of a rendering (the file is not opened yet)
+	 *
+	 * @param fileName    checkpoint file name
+	 * @param interval    interval between synchronizations of the file with the
+	 *                    disk in seconds
+	 * @param progressive whether the rendering is progressive
+	 * @param nX          horizontal resolution of the image
+	 * @param nY          vertical resolution of the image
+	 * @param x           first pixel column of the rendered region
+	 * @param y           first pixel row of the rendered region
+	 * @param width       width of the rendered region
+	 * @param height      height of the rendered region
+	 * @param tileSize    tile size (in pixels)
+	 * @param fingerprint fingerprint of the rendering settings which affect the
+	 *                    pixels
+	 */
+	Checkpoint(String fileName, double interval, boolean progressive, int nX, int nY, int x, int y, int width,
+			int height, int tileSize, int fingerprint) {
+		this.file = new File(fileName);
+		this.interval = (long) (interval * 1e9);
+		this.mode = progressive ? 1 : 0;
+		this.nX = nX;
+		this.nY = nY;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Opens the checkpoint: restores the tiles saved by a former rendering with
+	 * the same settings (if there is such checkpoint), rewrites the file with them
+	 * only, and opens it for appending new records
+	 *
+	 * @return the restored tiles
+	 */
+	List<TileState> open() {
+		try {
+			List<TileState> states = load();
+			offsets = new long[Tile.count(height, width, tileSize)];
+			Arrays.fill(offsets, -1);
+			File temp = new File(file.getPath() + ".tmp");
+			try (var output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+				writeHeader(output);
+				length = HEADER_SIZE;
+				for (TileState state : states) {
+					offsets[state.tile().index()] = length;
+					writeTile(output, state.tile(), state.samples(), state.colors());
+					length += recordSize(state.tile());
+				}
+			}
+			records = states.size();
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			openForAppending();
+			return states;
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot open checkpoint " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the latest record of each tile from the checkpoint file. A file of
+	 * another rendering (different header) is ignored, and an incomplete record at
+	 * the end of the file (of a killed rendering) is dropped
+	 *
+	 * @return the tiles states
+	 * @throws IOException in case of I/O error
+	 */
+	private List<TileState> load() throws IOException {
+		Map<Integer, TileState> states = new LinkedHashMap<>();
+		if (!file.exists())
+			return new ArrayList<>();
+		try (var input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			if (input.readInt() != MAGIC || input.readInt() != mode || input.readInt() != nX
+					|| input.readInt() != nY || input.readInt() != x || input.readInt() != y
+					|| input.readInt() != width || input.readInt() != height || input.readInt() != tileSize
+					|| input.readInt() != fingerprint)
+				return new ArrayList<>();
+			int tilesCount = Tile.count(height, width, tileSize);
+			while (true) {
+				int index = input.readInt();
+				int samples = input.readInt();
+				if (index < 0 || index >= tilesCount || samples < 1)
+					break;
+				Tile tile = Tile.of(index, x, y, height, width, tileSize);
+				Color[] colors = new Color[tile.pixels()];
+				for (int i = 0; i < colors.length; ++i)
+					colors[i] = new Color(input.readFloat(), input.readFloat(), input.readFloat());
+				states.put(index, new TileState(tile, samples, colors));
+			}
+		} catch (EOFException ignored) {
+			// the end of the file or an incomplete last record
+		} catch (IllegalArgumentException ignored) {
+			// corrupted record (negative color)
+		}
+		return new ArrayList<>(states.values());
+	}
+
+	/**
+	 * Appends a completed tile to the checkpoint, the file is synchronized with
+	 * the disk if the interval since the former synchronization has passed
+	 *
+	 * @param tile    the tile
+	 * @param samples the amount of samples per pixel in the tile
+	 * @param colors  the colors of the tile pixels row after row
+	 */
+	synchronized void write(Tile tile, int samples, Color[] colors) {
+		try {
+			offsets[tile.index()] = length;
+			writeTile(out, tile, samples, colors);
+			length += recordSize(tile);
+			if (++records >= 2 * offsets.length) {
+				compact();
+				return;
+			}
+			long now = System.nanoTime();
+			if (now - lastSync >= interval) {
+				out.flush();
+				fileStream.getFD().sync();
+				lastSync = now;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write checkpoint " + file, e);
+		}
+	}
+
+	/**
+	 * Rewrites the file with the latest record of each tile only - the records
+	 * are copied from the file into a temporary file, which is synchronized with
+	 * the disk and then replaces the file, so a rendering killed in the middle
+	 * leaves either the former file or the compacted one
+	 *
+	 * @throws IOException in case of I/O error
+	 */
+	private void compact() throws IOException {
+		out.close();
+		File temp = new File(file.getPath() + ".tmp");
+		try (var input = new RandomAccessFile(file, "r"); var tempStream = new FileOutputStream(temp)) {
+			var output = new DataOutputStream(new BufferedOutputStream(tempStream, BUFFER_SIZE));
+			writeHeader(output);
+			long position = HEADER_SIZE;
+			records = 0;
+			for (int index = 0; index < offsets.length; ++index) {
+				if (offsets[index] < 0)
+					continue;
+				byte[] record = new byte[recordSize(Tile.of(index, x, y, height, width, tileSize))];
+				input.seek(offsets[index]);
+				input.readFully(record);
+				output.write(record);
+				offsets[index] = position;
+				position += record.length;
+				++records;
+			}
+			output.flush();
+			tempStream.getFD().sync();
+			length = position;
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		openForAppending();
+	}
+
+	/**
+	 * Opens the file for appending records
+	 *
+	 * @throws IOException in case of I/O error
+	 */
+	private void openForAppending() throws IOException {
+		fileStream = new FileOutputStream(file, true);
+		out = new DataOutputStream(new BufferedOutputStream(fileStream, BUFFER_SIZE));
+		lastSync = System.nanoTime();
+	}
+
+	/**
+	 * Closes the checkpoint
+	 *
+	 * @param completed whether the rendering has been completed - then the
+	 *                  checkpoint is not needed anymore and it is deleted
+	 */
+	synchronized void close(boolean completed) {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write checkpoint " + file, e);
+		}
+		if (completed)
+			file.delete();
+	}
+
+	/**
+	 * Writes the file header
+	 *
+	 * @param output the output stream
+	 * @throws IOException in case of I/O error
+	 */
+	private void writeHeader(DataOutputStream output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(mode);
+		output.writeInt(nX);
+		output.writeInt(nY);
+		output.writeInt(x);
+		output.writeInt(y);
+		output.writeInt(width);
+		output.writeInt(height);
+		output.writeInt(tileSize);
+		output.writeInt(fingerprint);
+	}
+
+	/**
+	 * The size of a tile record in bytes
+	 *
+	 * @param tile the tile
+	 * @return the record size
+	 */
+	private static int recordSize(Tile tile) {
+		return 2 * Integer.BYTES + 3 * Float.BYTES * tile.pixels();
+	}
+
+	/**
+	 * Writes a tile record
+	 *
+	 * @param output  the output stream
+	 * @param tile    the tile
+	 * @param samples the amount of samples per pixel in the tile
+	 * @param colors  the colors of the tile pixels row after row
+	 * @throws IOException in case of I/O error
+	 */
+	private static void writeTile(DataOutputStream output, Tile tile, int samples, Color[] colors)
+			throws IOException {
+		output.writeInt(tile.index());
+		output.writeInt(samples);
+		for (Color color : colors) {
+			Double3 rgb = color.getRgb();
+			output.writeFloat((float) rgb.d1());
+			output.writeFloat((float) rgb.d2());
+			output.writeFloat((float) rgb.d3());
+		}
+	}
+
+}
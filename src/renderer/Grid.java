@@ -4,10 +4,14 @@ import static java.lang.Math.*;
 import static primitives.Util.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import geometries.Geometries;
 import geometries.Intersectable;
 import geometries.Intersectable.Intersection;
+import geometries.Plane;
 import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
@@ -15,9 +19,61 @@ import primitives.Vector;
 
 /**
  * A uniform 3D grid of voxels that accelerates ray–geometry intersection by
- * traversing only the voxels a ray passes through (3D DDA).
+ * traversing only the voxels a ray passes through (3D DDA).<br>
+ * The voxels are stored in flat arrays (compressed rows): the geometries of all
+ * the voxels are in one array, ordered by the voxel index, and a second array
+ * holds the start of each voxel in it. The grid is built in parallel on the
+ * common fork-join pool by a two-pass counting sort: the geometry references
+ * of each voxel are counted first, and then they are placed into the ranges
+ * reserved for them.<br>
+ * The resolution follows the λ·N/V policy: the voxels are cubes (as much as the
+ * bounds allow) of the size for which the grid has about λ voxels per geometry,
+ * so each axis gets its own amount of voxels by the aspect ratio of the bounds,
+ * and the amount of voxels is capped to limit the memory (see
+ * {@link #Grid(Geometries, double, long)}). The statistics of the build are
+ * reported by {@link #getBuildStats()}.<br>
+ * The grid has two levels: a voxel which holds more than
+ * {@value #SUBGRID_THRESHOLD} geometries (e.g. of a dense model inside a large
+ * sparse scene) gets its own sub-grid, which the traversal walks by a nested
+ * DDA when the ray passes through the voxel.
  */
 public class Grid {
+	/**
+	 * Statistics of a grid build (including the sub-grids)
+	 *
+	 * @param cellsX             amount of the top-level voxels along x
+	 * @param cellsY             amount of the top-level voxels along y
+	 * @param cellsZ             amount of the top-level voxels along z
+	 * @param cells              amount of all the voxels (of the top-level grid and
+	 *                           of the sub-grids)
+	 * @param references         amount of the geometry references in all the
+	 *                           voxels
+	 * @param averageOccupancy   average amount of geometries in a non-empty voxel
+	 * @param maxOccupancy       the maximal amount of geometries in a voxel
+	 * @param emptyRatio         the fraction of the empty voxels
+	 * @param subGrids           amount of the sub-grids of crowded voxels
+	 * @param infiniteGeometries amount of the geometries with infinite bounds kept
+	 *                           out of the voxels (the planes crossing the grid
+	 *                           are clipped into the voxels)
+	 * @param buildNanos         build time in nanoseconds
+	 */
+	public record BuildStats(int cellsX, int cellsY, int cellsZ, long cells, long references,
+			double averageOccupancy, int maxOccupancy, double emptyRatio, int subGrids, int infiniteGeometries,
+			long buildNanos) {
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"Grid %dx%dx%d, %d cells, %d references, occupancy %.2f average %d max, %.1f%% empty, %d sub-grids, %d infinite, %.3f ms",
+					cellsX, cellsY, cellsZ, cells, references, averageOccupancy, maxOccupancy, emptyRatio * 100,
+					subGrids, infiniteGeometries, buildNanos / 1e6);
+		}
+	}
+
+	/** the default amount of voxels per geometry (λ) */
+	public static final double DEFAULT_DENSITY = 8;
+	/** the default maximal amount of voxels of a grid */
+	public static final long DEFAULT_MAX_CELLS = 1L << 24;
+
 	/** the size of each voxel in the grid */
 	private final Double3 voxelSize;
 	/** the minimum coordinates of the grid bounding box */
@@ -27,10 +83,57 @@ public class Grid {
 	/** geometries with infinite bounds are collected separately */
 	private final Geometries infiniteGeometries;
 	/**
-	 * the grid is a map from voxel indices to the geometries contained in that
-	 * voxel
+	 * planes crossing the grid bounds - they are clipped to the bounds and placed
+	 * in the voxels they cross like finite geometries, so only their hits out of
+	 * the grid bounds are tested separately
+	 */
+	private final Plane[] clippedPlanes;
+	/**
+	 * start of the geometries of each voxel in {@link #cellGeometries} (by the
+	 * voxel flat index), the last element is the end of the last voxel
+	 */
+	private final int[] cellStart;
+	/** the geometries of all the voxels, ordered by the voxel flat index */
+	private final Intersectable[] cellGeometries;
+	/** amount of geometries at which the grid build is parallel */
+	private static final int PARALLEL_THRESHOLD = 1024;
+	/** amount of geometries in a voxel above which the voxel gets a sub-grid */
+	private static final int SUBGRID_THRESHOLD = 64;
+	/**
+	 * the maximal average amount of sub-grid voxels a geometry of a crowded voxel
+	 * may overlap - a sub-grid of geometries larger than its voxels is not built
 	 */
-	private final HashMap<Double3, Geometries> grid;
+	private static final double SUBGRID_MAX_DUPLICATION = 16;
+	/** the maximal nesting level of the grids (0 - no sub-grids) */
+	private static final int MAX_LEVEL = 1;
+	/** the sub-grids by the voxel flat index, null if there are no sub-grids */
+	private final Grid[] subGrids;
+	/** amount of voxels per geometry (λ) */
+	private final double density;
+	/** the maximal amount of voxels */
+	private final long maxCells;
+	/** statistics of the build, null for a sub-grid */
+	private final BuildStats buildStats;
+	/**
+	 * the maximal fraction of the geometries which may move since the build
+	 * before the grid asks for a rebuild (see {@link #refit(Collection)})
+	 */
+	private static final double REFIT_MAX_MOVED = 0.1;
+	/** amount of the geometries of the grid */
+	private final int size;
+	/** the geometries of the grid (the top-level entries), null for a sub-grid */
+	private final Intersectable[] entries;
+	/**
+	 * the top-level entries of the grid by the geometries they contain (each
+	 * entry by itself, and each geometry nested in the collections of an entry by
+	 * the entry) compared by identity - mapped on the first update (see
+	 * {@link #refit(Collection)}), null until then
+	 */
+	private Map<Intersectable, Intersectable> entryOf = null;
+	/** the geometries moved since the build, null if none moved */
+	private Set<Intersectable> movedGeometries = null;
+	/** grid of the geometries moved since the build, null if none moved */
+	private volatile Grid movedGrid = null;
 
 	/** number of voxels along each axis */
 	private final int numVoxelsX;
@@ -42,58 +145,550 @@ public class Grid {
 	/**
 	 * Constructs a grid by subdividing the bounding box of the given geometries
 	 * into a density×density×density grid, and classifying each geometry into the
-	 * voxels it overlaps. Geometries with infinite bounds are collected separately.
+	 * voxels it overlaps. Planes crossing the grid are clipped to its bounds, other
+	 * geometries with infinite bounds are collected separately.
 	 *
 	 * @param geometries the scene geometries
 	 */
 	public Grid(Geometries geometries) {
+		this(geometries, DEFAULT_DENSITY, DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Constructs a grid of geometries with a given resolution policy: the grid
+	 * has about density × (amount of the geometries) voxels, at most maxCells
+	 * (each crowded voxel sub-grid is limited separately by the same policy).
+	 *
+	 * @param geometries the scene geometries
+	 * @param density    amount of voxels per geometry (λ)
+	 * @param maxCells   the maximal amount of voxels
+	 */
+	public Grid(Geometries geometries, double density, long maxCells) {
+		this(geometries.getGeometries().toArray(new Intersectable[0]), null, null, 0, checkDensity(density),
+				checkMaxCells(maxCells));
+	}
+
+	/**
+	 * Check the amount of voxels per geometry
+	 *
+	 * @param density the amount
+	 * @return the amount
+	 */
+	private static double checkDensity(double density) {
+		if (!(density > 0) || Double.isInfinite(density))
+			throw new IllegalArgumentException("Grid density must be positive");
+		return density;
+	}
+
+	/**
+	 * Check the maximal amount of voxels of a grid
+	 *
+	 * @param maxCells the amount
+	 * @return the amount
+	 */
+	private static long checkMaxCells(long maxCells) {
+		if (maxCells < 1 || maxCells >= Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Maximal amount of grid cells must be positive and less than 2^31-1");
+		return maxCells;
+	}
+
+	/**
+	 * Constructs a grid of geometries - the top-level grid of a scene or the
+	 * sub-grid of a crowded voxel
+	 *
+	 * @param items      the geometries
+	 * @param itemBoxes  the bounding boxes of the geometries (min x, y, z and max
+	 *                   x, y, z of each one), null for calculating them
+	 * @param gridBounds the bounds of the grid (min x, y, z and max x, y, z), null
+	 *                   for the bounds of the finite geometries
+	 * @param level      the nesting level of the grid (0 for the top-level grid)
+	 * @param density    amount of voxels per geometry (λ)
+	 * @param maxCells   the maximal amount of voxels
+	 */
+	private Grid(Intersectable[] items, double[] itemBoxes, double[] gridBounds, int level, double density,
+			long maxCells) {
+		long start = System.nanoTime();
+		RenderEvents.GridBuild event = new RenderEvents.GridBuild();
+		event.begin();
+		this.density = density;
+		this.maxCells = maxCells;
+		int n = items.length;
+		this.size = n;
+		this.entries = level == 0 ? items : null;
+
+		// bounding boxes of the geometries
+		double[] boxes = itemBoxes != null ? itemBoxes : new double[n * 6];
+		if (itemBoxes == null)
+			range(n).forEach(i -> {
+				var e = items[i].getEdges();
+				Double3 min = e.get(0), max = e.get(1);
+				boxes[i * 6] = min.d1();
+				boxes[i * 6 + 1] = min.d2();
+				boxes[i * 6 + 2] = min.d3();
+				boxes[i * 6 + 3] = max.d1();
+				boxes[i * 6 + 4] = max.d2();
+				boxes[i * 6 + 5] = max.d3();
+			});
+
+		// grid bounds - the bounds of the geometries with finite boxes (as in
+		// Geometries#getEdges)
+		double[] bounds = gridBounds != null ? gridBounds
+				: new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+						Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (int i = 0; gridBounds == null && i < n; ++i) {
+			int b = i * 6;
+			if (boxes[b] == Double.NEGATIVE_INFINITY || boxes[b + 1] == Double.NEGATIVE_INFINITY
+					|| boxes[b + 2] == Double.NEGATIVE_INFINITY || boxes[b + 3] == Double.POSITIVE_INFINITY
+					|| boxes[b + 4] == Double.POSITIVE_INFINITY || boxes[b + 5] == Double.POSITIVE_INFINITY)
+				continue;
+			for (int axis = 0; axis < 3; ++axis) {
+				bounds[axis] = min(bounds[axis], boxes[b + axis]);
+				bounds[axis + 3] = max(bounds[axis + 3], boxes[b + axis + 3]);
+			}
+		}
+
 		// initialize fields
-		// calculate density
-		double density = cbrt(geometries.getGeometries().size()) * 2;
-		var edges = geometries.getEdges();
-		this.gridMin = edges.get(0);
-		this.gridMax = edges.get(1);
-		double dx = alignZero((gridMax.d1() - gridMin.d1()) / density);
-		double dy = alignZero((gridMax.d2() - gridMin.d2()) / density);
-		double dz = alignZero((gridMax.d3() - gridMin.d3()) / density);
-
-		this.voxelSize = new Double3(dx, dy, dz);
-
-		this.numVoxelsX = (int) ceil((gridMax.d1() - gridMin.d1()) / dx);
-		this.numVoxelsY = (int) ceil((gridMax.d2() - gridMin.d2()) / dy);
-		this.numVoxelsZ = (int) ceil((gridMax.d3() - gridMin.d3()) / dz);
-
-		this.grid = new HashMap<>();
+		// calculate the resolution along each axis
+		int[] resolution = resolution(bounds, n, density, maxCells);
+		this.gridMin = new Double3(bounds[0], bounds[1], bounds[2]);
+		this.gridMax = new Double3(bounds[3], bounds[4], bounds[5]);
+		this.numVoxelsX = resolution[0];
+		this.numVoxelsY = resolution[1];
+		this.numVoxelsZ = resolution[2];
+		this.voxelSize = new Double3((gridMax.d1() - gridMin.d1()) / numVoxelsX,
+				(gridMax.d2() - gridMin.d2()) / numVoxelsY, (gridMax.d3() - gridMin.d3()) / numVoxelsZ);
+		long voxels = (long) numVoxelsX * numVoxelsY * numVoxelsZ;
+
+		// classify each geometry: the voxel index ranges of the finite geometries
+		// and of the planes clipped to the grid bounds, other infinite bounds →
+		// collect separately
+		int[] ranges = new int[n * 6];
+		boolean[] clipped = new boolean[n];
+		range(n).forEach(i -> {
+			int b = i * 6;
+			if (boxes[b] == Double.POSITIVE_INFINITY || boxes[b + 1] == Double.POSITIVE_INFINITY
+					|| boxes[b + 2] == Double.POSITIVE_INFINITY || boxes[b + 3] == Double.NEGATIVE_INFINITY
+					|| boxes[b + 4] == Double.NEGATIVE_INFINITY || boxes[b + 5] == Double.NEGATIVE_INFINITY) {
+				double[] clip = items[i] instanceof Plane plane ? clip(plane, bounds) : null;
+				if (clip == null) {
+					ranges[b] = -1;
+					return;
+				}
+				System.arraycopy(clip, 0, boxes, b, 6);
+				clipped[i] = true;
+			}
+			for (int axis = 0; axis < 3; ++axis) {
+				ranges[b + axis] = index(boxes[b + axis], axis);
+				ranges[b + axis + 3] = index(boxes[b + axis + 3], axis);
+			}
+		});
 		this.infiniteGeometries = new Geometries();
+		List<Plane> planes = new ArrayList<>();
+		for (int i = 0; i < n; ++i)
+			if (ranges[i * 6] < 0)
+				infiniteGeometries.add(items[i]);
+			else if (clipped[i])
+				planes.add((Plane) items[i]);
+		this.clippedPlanes = planes.toArray(new Plane[0]);
+
+		// first pass: count the geometries of each voxel
+		AtomicIntegerArray counts = new AtomicIntegerArray((int) voxels);
+		range(n).forEach(i -> forEachVoxel(items, ranges, i, counts::incrementAndGet));
+		this.cellStart = new int[(int) voxels + 1];
+		int occupied = 0;
+		for (int cell = 0; cell < voxels; ++cell) {
+			int count = counts.get(cell);
+			if (count != 0)
+				++occupied;
+			cellStart[cell + 1] = cellStart[cell] + count;
+			counts.set(cell, cellStart[cell]);
+		}
 
-		// classify each geometry
-		for (Intersectable geo : geometries.getGeometries()) {
-			var e = geo.getEdges();
-			// infinite bounds → collect separately
-			if (e.get(0).d1() == Double.POSITIVE_INFINITY || e.get(0).d2() == Double.POSITIVE_INFINITY
-					|| e.get(0).d3() == Double.POSITIVE_INFINITY || e.get(1).d1() == Double.NEGATIVE_INFINITY
-					|| e.get(1).d2() == Double.NEGATIVE_INFINITY || e.get(1).d3() == Double.NEGATIVE_INFINITY) {
-				infiniteGeometries.add(geo);
-				continue;
+		// second pass: place the geometries into the ranges of their voxels, and
+		// restore the order of the geometries in each voxel
+		int[] references = new int[cellStart[(int) voxels]];
+		range(n).forEach(i -> forEachVoxel(items, ranges, i, cell -> references[counts.getAndIncrement(cell)] = i));
+		range((int) voxels).forEach(cell -> {
+			if (cellStart[cell + 1] - cellStart[cell] > 1)
+				Arrays.sort(references, cellStart[cell], cellStart[cell + 1]);
+		});
+		this.cellGeometries = new Intersectable[references.length];
+		for (int i = 0; i < references.length; ++i)
+			cellGeometries[i] = items[references[i]];
+
+		// sub-grids of the crowded voxels (their geometries are kept in the voxels
+		// for the rays which miss the sub-grid bounds by rounding)
+		int[] crowded = level >= MAX_LEVEL ? new int[0]
+				: IntStream.range(0, (int) voxels)
+						.filter(cell -> cellStart[cell + 1] - cellStart[cell] > SUBGRID_THRESHOLD).toArray();
+		Grid[] cellGrids = crowded.length == 0 ? null : new Grid[(int) voxels];
+		IntStream crowdedCells = IntStream.of(crowded);
+		if (crowded.length > 1)
+			crowdedCells = crowdedCells.parallel();
+		crowdedCells.forEach(cell -> cellGrids[cell] = subGrid(cell, items, boxes, references, level));
+		this.subGrids = cellGrids;
+
+		if (level > 0) {
+			this.buildStats = null;
+			return;
+		}
+
+		// statistics of the grid and its sub-grids
+		long cells = voxels, refs = references.length, occupiedCells = occupied;
+		int maxOccupancy = 0, subGridCount = 0;
+		for (int cell = 0; cell < voxels; ++cell)
+			if (subGrids == null || subGrids[cell] == null)
+				maxOccupancy = max(maxOccupancy, cellStart[cell + 1] - cellStart[cell]);
+			else {
+				// the voxel is replaced by its sub-grid
+				Grid subGrid = subGrids[cell];
+				++subGridCount;
+				--cells;
+				--occupiedCells;
+				refs -= cellStart[cell + 1] - cellStart[cell];
+				long subCells = (long) subGrid.numVoxelsX * subGrid.numVoxelsY * subGrid.numVoxelsZ;
+				cells += subCells;
+				refs += subGrid.cellGeometries.length;
+				for (int subCell = 0; subCell < subCells; ++subCell) {
+					int count = subGrid.cellStart[subCell + 1] - subGrid.cellStart[subCell];
+					if (count != 0)
+						++occupiedCells;
+					maxOccupancy = max(maxOccupancy, count);
+				}
 			}
-			// compute voxel index ranges
-			Double3 minIndex = coordinateToIndex(e.get(0));
-			Double3 maxIndex = coordinateToIndex(e.get(1));
-			int x0 = (int) minIndex.d1(), x1 = (int) maxIndex.d1();
-			int y0 = (int) minIndex.d2(), y1 = (int) maxIndex.d2();
-			int z0 = (int) minIndex.d3(), z1 = (int) maxIndex.d3();
-
-			// add geometry to all overlapped voxels
-			for (int i = x0; i <= x1; i++) {
-				for (int j = y0; j <= y1; j++) {
-					for (int k = z0; k <= z1; k++) {
-						Double3 idx = new Double3(i, j, k);
-						grid.computeIfAbsent(idx, x -> new Geometries()).add(geo);
-					}
+		this.buildStats = new BuildStats(numVoxelsX, numVoxelsY, numVoxelsZ, cells, refs,
+				occupiedCells == 0 ? 0 : (double) refs / occupiedCells, maxOccupancy,
+				(double) (cells - occupiedCells) / cells, subGridCount, infiniteGeometries.getGeometries().size(),
+				System.nanoTime() - start);
+
+		if (event.shouldCommit()) {
+			event.geometries = n;
+			event.infiniteGeometries = buildStats.infiniteGeometries();
+			event.voxels = buildStats.cells();
+			event.occupiedVoxels = occupiedCells;
+			event.references = buildStats.references();
+			event.subGrids = subGridCount;
+			event.maxOccupancy = maxOccupancy;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Update the grid after some of its geometries moved (their bounds changed,
+	 * e.g. instances got new transformations) - without rebuilding it: the
+	 * geometries moved since the build are placed into a small overlay grid,
+	 * which is walked before the voxels of this one (the stale references of the
+	 * moved geometries in the voxels cost only redundant tests, each geometry is
+	 * tested once per ray). So an update costs only the moved geometries, while
+	 * the grid degrades as more of them move - a rebuild is asked when they are
+	 * more than a tenth of the geometries.<br>
+	 * A moved geometry may be nested in a collection of the grid geometries -
+	 * then the whole top-level collection is moved into the overlay, since the
+	 * voxels reference the collection (the geometries of the collections are
+	 * refitted by {@link Geometries#refit()}). A geometry of the prototype of an
+	 * instance is not a geometry of the grid - the prototype may be shared by
+	 * several instances.<br>
+	 * The grid must not be used for ray tracing during the update.
+	 *
+	 * @param moved the geometries of the grid which moved since the last update
+	 * @return true if the grid has been updated, false if too many geometries
+	 *         moved since the build and the grid has to be rebuilt
+	 * @throws IllegalArgumentException if a moved geometry is neither a geometry
+	 *                                  of the grid nor nested in its collections
+	 */
+	public synchronized boolean refit(Collection<? extends Intersectable> moved) {
+		if (moved.isEmpty())
+			return true;
+		if (entryOf == null) {
+			entryOf = new IdentityHashMap<>();
+			for (Intersectable entry : entries)
+				mapEntry(entry, entry);
+		}
+		List<Intersectable> movedEntries = new ArrayList<>(moved.size());
+		for (Intersectable geometry : moved) {
+			Intersectable entry = entryOf.get(geometry);
+			if (entry == null)
+				throw new IllegalArgumentException("A moved geometry must be a geometry of the grid");
+			movedEntries.add(entry);
+		}
+		if (movedGeometries == null)
+			movedGeometries = new LinkedHashSet<>();
+		movedGeometries.addAll(movedEntries);
+		if (movedGeometries.size() > REFIT_MAX_MOVED * size)
+			return false;
+		movedGrid = new Grid(movedGeometries.toArray(new Intersectable[0]), null, null, 0, density, maxCells);
+		return true;
+	}
+
+	/**
+	 * Map a geometry, and the geometries nested in it if it is a collection, to
+	 * the top-level entry of the grid containing it
+	 *
+	 * @param geometry the geometry
+	 * @param entry    the top-level entry
+	 */
+	private void mapEntry(Intersectable geometry, Intersectable entry) {
+		entryOf.put(geometry, entry);
+		if (geometry instanceof Geometries collection)
+			for (Intersectable nested : collection.getGeometries())
+				mapEntry(nested, entry);
+	}
+
+	/**
+	 * Statistics of the grid build
+	 *
+	 * @return the statistics
+	 */
+	public BuildStats getBuildStats() {
+		return buildStats;
+	}
+
+	/**
+	 * Calculate the amounts of voxels along the axes by the λ·N/V policy: the
+	 * voxels are as cubic as possible, there are about density × count voxels,
+	 * and at most maxCells. A flat (zero extent) axis has a single voxel.
+	 *
+	 * @param bounds   the bounds of the grid (min x, y, z and max x, y, z)
+	 * @param count    amount of the geometries
+	 * @param density  amount of voxels per geometry (λ)
+	 * @param maxCells the maximal amount of voxels
+	 * @return the amounts of voxels along x, y and z
+	 */
+	private static int[] resolution(double[] bounds, int count, double density, long maxCells) {
+		int[] cells = { 1, 1, 1 };
+		double volume = 1;
+		int axes = 0;
+		for (int axis = 0; axis < 3; ++axis) {
+			double extent = bounds[axis + 3] - bounds[axis];
+			if (extent > 0 && Double.isFinite(extent)) {
+				volume *= extent;
+				++axes;
+			}
+		}
+		if (axes == 0 || count == 0)
+			return cells;
+
+		double target = max(1, min(density * count, maxCells));
+		double size = pow(volume / target, 1.0 / axes);
+		while (true) {
+			double total = 1;
+			for (int axis = 0; axis < 3; ++axis) {
+				double extent = bounds[axis + 3] - bounds[axis];
+				if (extent > 0 && Double.isFinite(extent))
+					cells[axis] = (int) max(1, min(Integer.MAX_VALUE, round(extent / size)));
+				total *= cells[axis];
+			}
+			if (total <= maxCells)
+				return cells;
+			// rounding up exceeded the cap - enlarge the voxels
+			size *= pow(total / maxCells, 1.0 / axes) * 1.001;
+		}
+	}
+
+	/**
+	 * Build the sub-grid of a crowded voxel, unless the geometries of the voxel
+	 * are too large for the sub-grid voxels
+	 *
+	 * @param cell       the voxel flat index
+	 * @param items      the geometries of the grid
+	 * @param boxes      the bounding boxes of the geometries
+	 * @param references indices of the geometries of the voxels (ordered by the
+	 *                   voxel flat index)
+	 * @param level      the nesting level of the grid
+	 * @return the sub-grid, or null if it is not worth building
+	 */
+	private Grid subGrid(int cell, Intersectable[] items, double[] boxes, int[] references, int level) {
+		int from = cellStart[cell], count = cellStart[cell + 1] - from;
+		int ix = cell / (numVoxelsY * numVoxelsZ), iy = cell / numVoxelsZ % numVoxelsY, iz = cell % numVoxelsZ;
+		double[] bounds = { gridMin.d1() + ix * voxelSize.d1(), gridMin.d2() + iy * voxelSize.d2(),
+				gridMin.d3() + iz * voxelSize.d3(), 0, 0, 0 };
+		bounds[3] = bounds[0] + voxelSize.d1();
+		bounds[4] = bounds[1] + voxelSize.d2();
+		bounds[5] = bounds[2] + voxelSize.d3();
+
+		Intersectable[] subItems = new Intersectable[count];
+		double[] subBoxes = new double[count * 6];
+		for (int i = 0; i < count; ++i) {
+			int item = references[from + i];
+			subItems[i] = items[item];
+			System.arraycopy(boxes, item * 6, subBoxes, i * 6, 6);
+		}
+
+		// estimate the references of the sub-grid by the sub-voxels each geometry
+		// overlaps (with the resolution the sub-grid would get)
+		int[] resolution = resolution(bounds, count, density, maxCells);
+		double overlapped = 0;
+		for (int i = 0; i < count; ++i) {
+			double product = 1;
+			for (int axis = 0; axis < 3; ++axis) {
+				double extent = bounds[axis + 3] - bounds[axis];
+				if (extent <= 0)
+					continue;
+				double low = max(bounds[axis], subBoxes[i * 6 + axis]);
+				double high = min(bounds[axis + 3], subBoxes[i * 6 + axis + 3]);
+				product *= min(resolution[axis], floor((high - bounds[axis]) / extent * resolution[axis])
+						- floor((low - bounds[axis]) / extent * resolution[axis]) + 1);
+			}
+			overlapped += product;
+		}
+		if (overlapped > SUBGRID_MAX_DUPLICATION * count)
+			return null;
+		return new Grid(subItems, subBoxes, bounds, level + 1, density, maxCells);
+	}
+
+	/**
+	 * Stream of indices, parallel if it is long enough for the parallel build to
+	 * pay off
+	 *
+	 * @param count amount of the indices
+	 * @return the stream of indices from 0 to count - 1
+	 */
+	private static IntStream range(int count) {
+		IntStream stream = IntStream.range(0, count);
+		return count >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+	}
+
+	/**
+	 * Apply an action on the flat indices of all the voxels intersected by a
+	 * geometry. The voxels overlapped by the geometry bounding box are candidates,
+	 * and if there are several of them each one is checked by the exact
+	 * geometry-box test (see {@link Intersectable#intersectsBox}) - so a long
+	 * diagonal triangle or a large polygon is not referenced by the voxels it only
+	 * passes by
+	 *
+	 * @param items  the geometries
+	 * @param ranges the voxel index ranges of the geometries
+	 * @param item   index of the geometry, skipped if it is infinite
+	 * @param action the action
+	 */
+	private void forEachVoxel(Intersectable[] items, int[] ranges, int item, IntConsumer action) {
+		int b = item * 6;
+		if (ranges[b] < 0)
+			return;
+		boolean single = ranges[b] == ranges[b + 3] && ranges[b + 1] == ranges[b + 4] && ranges[b + 2] == ranges[b + 5];
+		for (int i = ranges[b]; i <= ranges[b + 3]; i++)
+			for (int j = ranges[b + 1]; j <= ranges[b + 4]; j++)
+				for (int k = ranges[b + 2]; k <= ranges[b + 5]; k++)
+					if (single || intersectsVoxel(items[item], i, j, k))
+						action.accept(cellIndex(i, j, k));
+	}
+
+	/**
+	 * Check whether a geometry intersects a voxel, the voxel is expanded by the
+	 * same small margin the bounding boxes get against floating point errors
+	 *
+	 * @param geometry the geometry
+	 * @param ix       the voxel index along x
+	 * @param iy       the voxel index along y
+	 * @param iz       the voxel index along z
+	 * @return true if the geometry may intersect the voxel
+	 */
+	private boolean intersectsVoxel(Intersectable geometry, int ix, int iy, int iz) {
+		double margin = Double3.DELTA.d1();
+		double x = gridMin.d1() + ix * voxelSize.d1();
+		double y = gridMin.d2() + iy * voxelSize.d2();
+		double z = gridMin.d3() + iz * voxelSize.d3();
+		return geometry.intersectsBox(x - margin, y - margin, z - margin, x + voxelSize.d1() + margin,
+				y + voxelSize.d2() + margin, z + voxelSize.d3() + margin);
+	}
+
+	/**
+	 * Clip a plane to the grid bounds: the bounding box of the polygon where the
+	 * plane cuts the bounds (expanded by the bounding box margin against floating
+	 * point errors)
+	 *
+	 * @param plane  the plane
+	 * @param bounds the grid bounds (min x, y, z and max x, y, z)
+	 * @return the bounding box of the clipped plane (min x, y, z and max x, y, z),
+	 *         or null if the plane does not cross the bounds
+	 */
+	private static double[] clip(Plane plane, double[] bounds) {
+		for (int axis = 0; axis < 3; ++axis)
+			if (!(bounds[axis] <= bounds[axis + 3]) || Double.isInfinite(bounds[axis])
+					|| Double.isInfinite(bounds[axis + 3]))
+				return null;
+		double margin = Double3.DELTA.d1();
+		double[] corners = new double[24];
+		double[] distances = new double[8];
+		for (int c = 0; c < 8; ++c) {
+			for (int axis = 0; axis < 3; ++axis)
+				corners[c * 3 + axis] = (c >> axis & 1) == 0 ? bounds[axis] - margin : bounds[axis + 3] + margin;
+			distances[c] = plane.signedDistance(corners[c * 3], corners[c * 3 + 1], corners[c * 3 + 2]);
+		}
+
+		double[] clip = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		boolean found = false;
+		// the corners on the plane and the crossings of the box edges (the corner
+		// pairs differing by a single axis bit)
+		for (int c = 0; c < 8; ++c) {
+			if (distances[c] == 0) {
+				found = true;
+				for (int axis = 0; axis < 3; ++axis) {
+					clip[axis] = min(clip[axis], corners[c * 3 + axis]);
+					clip[axis + 3] = max(clip[axis + 3], corners[c * 3 + axis]);
+				}
+			}
+			for (int bit = 1; bit < 8; bit <<= 1) {
+				int other = c | bit;
+				if (other == c || distances[c] * distances[other] >= 0)
+					continue;
+				found = true;
+				double t = distances[c] / (distances[c] - distances[other]);
+				for (int axis = 0; axis < 3; ++axis) {
+					double coordinate = corners[c * 3 + axis] + t * (corners[other * 3 + axis] - corners[c * 3 + axis]);
+					clip[axis] = min(clip[axis], coordinate);
+					clip[axis + 3] = max(clip[axis + 3], coordinate);
 				}
 			}
 		}
+		return found ? clip : null;
+	}
+
+	/**
+	 * Maps a coordinate to the voxel index along an axis, clamped into the grid
+	 *
+	 * @param coordinate the coordinate
+	 * @param axis       0=x, 1=y, 2=z
+	 * @return the voxel index
+	 */
+	private int index(double coordinate, int axis) {
+		double min, size;
+		int count;
+		switch (axis) {
+		case 0 -> {
+			min = gridMin.d1();
+			size = voxelSize.d1();
+			count = numVoxelsX;
+		}
+		case 1 -> {
+			min = gridMin.d2();
+			size = voxelSize.d2();
+			count = numVoxelsY;
+		}
+		default -> {
+			min = gridMin.d3();
+			size = voxelSize.d3();
+			count = numVoxelsZ;
+		}
+		}
+		int index = (int) (alignZero(coordinate - min) / size);
+		return index < 0 ? 0 : index >= count ? count - 1 : index;
+	}
 
+	/**
+	 * Flat index of a voxel, the voxel indices are clamped into the grid
+	 *
+	 * @param ix voxel index along x
+	 * @param iy voxel index along y
+	 * @param iz voxel index along z
+	 * @return the flat index
+	 */
+	private int cellIndex(int ix, int iy, int iz) {
+		ix = ix < 0 ? 0 : ix >= numVoxelsX ? numVoxelsX - 1 : ix;
+		iy = iy < 0 ? 0 : iy >= numVoxelsY ? numVoxelsY - 1 : iy;
+		iz = iz < 0 ? 0 : iz >= numVoxelsZ ? numVoxelsZ - 1 : iz;
+		return (ix * numVoxelsY + iy) * numVoxelsZ + iz;
 	}
 
 	/**
@@ -146,31 +741,9 @@ public class Grid {
 			return p0;
 		}
 
-		double[] o = { p0.getX(), p0.getY(), p0.getZ() };
-		double[] d = { ray.getDir().getX(), ray.getDir().getY(), ray.getDir().getZ() };
-		double[] tMin = new double[3], tMax = new double[3];
-
-		double[] mins = { gridMin.d1(), gridMin.d2(), gridMin.d3() };
-		double[] maxs = { gridMax.d1(), gridMax.d2(), gridMax.d3() };
-
-		// compute intersection t with each slab
-		for (int i = 0; i < 3; i++) {
-			if (isZero(d[i])) {
-				if (o[i] < mins[i] || o[i] > maxs[i])
-					return null;
-				tMin[i] = Double.NEGATIVE_INFINITY;
-				tMax[i] = Double.POSITIVE_INFINITY;
-			} else {
-				double t1 = (mins[i] - o[i]) / d[i];
-				double t2 = (maxs[i] - o[i]) / d[i];
-				tMin[i] = min(t1, t2);
-				tMax[i] = max(t1, t2);
-			}
-		}
-
-		double entryT = max(tMin[0], max(tMin[1], tMin[2]));
-		double exitT = min(tMax[0], min(tMax[1], tMax[2]));
-		if (entryT > exitT || exitT < 0)
+		// the slab test multiplies by the reciprocal direction cached by the ray
+		double entryT = ray.intersectBox(gridMin, gridMax, Double.POSITIVE_INFINITY);
+		if (entryT < 0)
 			return null; // no valid overlap
 
 		Point entry = ray.getPoint(entryT);
@@ -188,16 +761,138 @@ public class Grid {
 	 */
 
 	public List<Intersection> traverse(Ray inputRay, double maxDistance) {
-		var infinityIntersections = infiniteGeometries.calculateIntersections(inputRay, maxDistance);
+		List<Intersection> allIntersections = new LinkedList<>();
+		int voxels = collect(inputRay, maxDistance, new HashSet<>(), allIntersections, null);
+
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			counters.voxelsVisited += voxels;
+		return allIntersections;
+	}
+
+	/**
+	 * Finds the closest intersection of a ray with the geometries: the voxels are
+	 * walked front to back, and the walk stops at the first voxel which ends
+	 * beyond an intersection found so far
+	 *
+	 * @param inputRay the ray
+	 * @return the closest intersection, or null if there is none
+	 */
+	public Intersection findClosestIntersection(Ray inputRay) {
+		List<Intersection> allIntersections = new LinkedList<>();
+		int voxels = collect(inputRay, Double.POSITIVE_INFINITY, new HashSet<>(), allIntersections,
+				new double[] { Double.POSITIVE_INFINITY });
+
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			counters.voxelsVisited += voxels;
+		return inputRay.findClosestIntersection(allIntersections);
+	}
+
+	/**
+	 * Collect the intersections of a ray: with the geometries moved since the
+	 * build (see {@link #refit(Collection)}), with the infinite geometries, with
+	 * the clipped planes out of the grid bounds and along the voxel walk
+	 *
+	 * @param inputRay    the ray
+	 * @param maxDistance maximum distance to search for intersections
+	 * @param processed   the geometries tested already for the ray
+	 * @param list        the collected intersections
+	 * @param closest     the distance of the closest intersection collected so
+	 *                    far (updated) for stopping the walk at it, null for
+	 *                    walking up to maxDistance
+	 * @return amount of the visited voxels
+	 */
+	private int collect(Ray inputRay, double maxDistance, Set<Intersectable> processed, List<Intersection> list,
+			double[] closest) {
+		int voxels = 0;
+		Grid overlay = movedGrid;
+		if (overlay != null)
+			voxels += overlay.collect(inputRay, maxDistance, processed, list, closest);
+
+		for (Intersectable geometry : infiniteGeometries.getGeometries())
+			if (processed.add(geometry))
+				addHits(inputRay, geometry.calculateIntersections(inputRay, maxDistance), list, closest);
 
 		Point entry = gridEntryPoint(inputRay);
-		if (entry == null)
-			return infinityIntersections;
+		planeIntersections(inputRay, entry, maxDistance, processed, list, closest);
+		if (entry != null)
+			voxels += traverseVoxels(inputRay, entry, maxDistance, processed, list, closest);
+		return voxels;
+	}
 
-		Set<Intersectable> geometriesProcessedForThisRay = new HashSet<>();
-		List<Intersection> allIntersections = new LinkedList<>(
-				infinityIntersections != null ? infinityIntersections : Collections.emptyList());
+	/**
+	 * Add the intersections of a geometry to the collected ones
+	 *
+	 * @param inputRay the ray
+	 * @param hits     the intersections of the geometry, null if none
+	 * @param list     the collected intersections
+	 * @param closest  the distance of the closest intersection collected so far
+	 *                 (updated), null if it is not tracked
+	 */
+	private static void addHits(Ray inputRay, List<Intersection> hits, List<Intersection> list, double[] closest) {
+		if (hits == null)
+			return;
+		list.addAll(hits);
+		if (closest != null)
+			for (Intersection hit : hits)
+				closest[0] = min(closest[0], inputRay.getHead().distance(hit.point));
+	}
+
+	/**
+	 * Intersect a ray with the planes clipped to the grid bounds, wherever their
+	 * intersection is not left to the voxel walk: the primitive distance to each
+	 * plane tells whether the ray hits the plane within the grid bounds - then the
+	 * plane is tested in its voxel, otherwise it is done here and marked as tested
+	 *
+	 * @param inputRay    the ray
+	 * @param entry       the entry point of the ray into the grid, null if the ray
+	 *                    misses the grid (then all the planes are done here)
+	 * @param maxDistance maximum distance to search for intersections
+	 * @param processed   the geometries tested already for the ray
+	 * @param list        the collected intersections
+	 * @param closest     the distance of the closest intersection collected so
+	 *                    far (updated), null if it is not tracked
+	 */
+	private void planeIntersections(Ray inputRay, Point entry, double maxDistance, Set<Intersectable> processed,
+			List<Intersection> list, double[] closest) {
+		Point head = inputRay.getHead();
+		Vector dir = inputRay.getDir();
+		for (Plane plane : clippedPlanes) {
+			double t = plane.distance(inputRay);
+			if (entry != null && t > 0 && alignZero(t - maxDistance) <= 0) {
+				double x = head.getX() + t * dir.getX();
+				double y = head.getY() + t * dir.getY();
+				double z = head.getZ() + t * dir.getZ();
+				if (x >= gridMin.d1() && x <= gridMax.d1() && y >= gridMin.d2() && y <= gridMax.d2()
+						&& z >= gridMin.d3() && z <= gridMax.d3())
+					continue; // the hit is found by the voxel walk
+			}
+			if (processed.add(plane) && t > 0 && alignZero(t - maxDistance) <= 0)
+				addHits(inputRay, plane.calculateIntersections(inputRay, maxDistance), list, closest);
+		}
+	}
 
+	/**
+	 * Walk the voxels of the grid along a ray via 3D DDA (and the sub-grids of the
+	 * crowded voxels recursively), collecting intersections with the geometries
+	 * which have not been tested yet
+	 *
+	 * @param inputRay                      the ray
+	 * @param entry                         the entry point of the ray into the
+	 *                                      grid
+	 * @param maxDistance                   maximum distance to search for
+	 *                                      intersections
+	 * @param geometriesProcessedForThisRay the geometries already tested
+	 * @param allIntersections              the collected intersections
+	 * @param closest                       the distance of the closest
+	 *                                      intersection collected so far (updated
+	 *                                      by the walk) for stopping at it, null
+	 *                                      for walking up to maxDistance
+	 * @return amount of the visited voxels
+	 */
+	private int traverseVoxels(Ray inputRay, Point entry, double maxDistance,
+			Set<Intersectable> geometriesProcessedForThisRay, List<Intersection> allIntersections, double[] closest) {
 		Vector dir = inputRay.getDir();
 		double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
 
@@ -212,33 +907,44 @@ public class Grid {
 		double voxelY = gridMin.d2() + iy * voxelSize.d2();
 		double voxelZ = gridMin.d3() + iz * voxelSize.d3();
 
-		double tMaxX = dx != 0 ? ((stepX > 0 ? voxelX + voxelSize.d1() : voxelX) - entry.getX()) / dx
+		double invX = inputRay.getInvX(), invY = inputRay.getInvY(), invZ = inputRay.getInvZ();
+		double tMaxX = dx != 0 ? ((stepX > 0 ? voxelX + voxelSize.d1() : voxelX) - entry.getX()) * invX
 				: Double.POSITIVE_INFINITY;
-		double tMaxY = dy != 0 ? ((stepY > 0 ? voxelY + voxelSize.d2() : voxelY) - entry.getY()) / dy
+		double tMaxY = dy != 0 ? ((stepY > 0 ? voxelY + voxelSize.d2() : voxelY) - entry.getY()) * invY
 				: Double.POSITIVE_INFINITY;
-		double tMaxZ = dz != 0 ? ((stepZ > 0 ? voxelZ + voxelSize.d3() : voxelZ) - entry.getZ()) / dz
+		double tMaxZ = dz != 0 ? ((stepZ > 0 ? voxelZ + voxelSize.d3() : voxelZ) - entry.getZ()) * invZ
 				: Double.POSITIVE_INFINITY;
 
-		double tDeltaX = dx != 0 ? voxelSize.d1() / abs(dx) : Double.POSITIVE_INFINITY;
-		double tDeltaY = dy != 0 ? voxelSize.d2() / abs(dy) : Double.POSITIVE_INFINITY;
-		double tDeltaZ = dz != 0 ? voxelSize.d3() / abs(dz) : Double.POSITIVE_INFINITY;
+		double tDeltaX = dx != 0 ? voxelSize.d1() * abs(invX) : Double.POSITIVE_INFINITY;
+		double tDeltaY = dy != 0 ? voxelSize.d2() * abs(invY) : Double.POSITIVE_INFINITY;
+		double tDeltaZ = dz != 0 ? voxelSize.d3() * abs(invZ) : Double.POSITIVE_INFINITY;
 
+		// distance of the entry point from the ray head (the voxel boundaries
+		// distances are measured from the entry point)
+		double entryDistance = closest == null ? 0 : inputRay.getHead().distance(entry);
+		int voxels = 0;
 		while (true) {
 			if (min(tMaxX, min(tMaxY, tMaxZ)) > maxDistance)
 				break;
 
-			Double3 idx = new Double3(ix, iy, iz);
-			Geometries geometriesInVoxel = grid.get(idx);
-			if (geometriesInVoxel != null) {
-				for (Intersectable geo : geometriesInVoxel.getGeometries()) {
-					if (!geometriesProcessedForThisRay.contains(geo)) {
-						geometriesProcessedForThisRay.add(geo);
-						var hits = geo.calculateIntersections(inputRay, maxDistance);
-						if (hits != null)
-							allIntersections.addAll(hits);
-					}
+			++voxels;
+
+			int cell = cellIndex(ix, iy, iz);
+			Grid subGrid = subGrids == null ? null : subGrids[cell];
+			Point subEntry = subGrid == null ? null : subGrid.gridEntryPoint(inputRay);
+			if (subEntry != null)
+				voxels += subGrid.traverseVoxels(inputRay, subEntry, maxDistance, geometriesProcessedForThisRay,
+						allIntersections, closest);
+			else
+				for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; ++k) {
+					Intersectable geo = cellGeometries[k];
+					if (geometriesProcessedForThisRay.add(geo))
+						addHits(inputRay, geo.calculateIntersections(inputRay, maxDistance), allIntersections, closest);
 				}
-			}
+			// the geometries of the following voxels are not closer than the end of
+			// this voxel
+			if (closest != null && closest[0] < entryDistance + min(tMaxX, min(tMaxY, tMaxZ)))
+				break;
 
 			if (tMaxX < tMaxY && tMaxX < tMaxZ) {
 				tMaxX += tDeltaX;
@@ -257,8 +963,7 @@ public class Grid {
 					break;
 			}
 		}
-
-		return allIntersections;
+		return voxels;
 	}
 
 	/**
@@ -3,8 +3,10 @@
  */
 package renderer;
 
+import java.util.Collection;
 import java.util.List;
 
+import geometries.Intersectable;
 import geometries.Intersectable.Intersection;
 import primitives.Ray;
 import scene.Scene;
@@ -23,7 +25,11 @@ public class GridRayTracer extends SimpleRayTracer {
 	 * The grid used for accelerating ray tracing. It is initialized with the
 	 * geometries of the scene.
 	 */
-	private Grid grid;
+	private volatile Grid grid;
+	/** amount of grid voxels per geometry (λ) */
+	private final double density;
+	/** the maximal amount of grid voxels */
+	private final long maxCells;
 
 	/**
 	 * constructor for the ray tracer grid
@@ -32,8 +38,56 @@ public class GridRayTracer extends SimpleRayTracer {
 	 */
 
 	public GridRayTracer(Scene scene) {
+		this(scene, Grid.DEFAULT_DENSITY, Grid.DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * constructor for the ray tracer with a given grid resolution policy (see
+	 * {@link Grid#Grid(geometries.Geometries, double, long)})
+	 * 
+	 * @param scene    the scene to be rendered
+	 * @param density  amount of grid voxels per geometry (λ)
+	 * @param maxCells the maximal amount of grid voxels
+	 */
+	public GridRayTracer(Scene scene, double density, long maxCells) {
 		super(scene);
-		grid = new Grid(scene.geometries);
+		grid = new Grid(scene.geometries, density, maxCells);
+		this.density = density;
+		this.maxCells = maxCells;
+	}
+
+	/**
+	 * constructor for a ray tracer of a grid built already (see
+	 * {@link PreparedScene})
+	 * 
+	 * @param scene the scene to be rendered
+	 * @param grid  the grid of the scene geometries
+	 */
+	GridRayTracer(Scene scene, Grid grid) {
+		super(scene);
+		this.grid = grid;
+		this.density = Grid.DEFAULT_DENSITY;
+		this.maxCells = Grid.DEFAULT_MAX_CELLS;
+	}
+
+	/**
+	 * Get the grid of the scene geometries (e.g. for its build statistics)
+	 * 
+	 * @return the grid
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * The grid is updated in place (see {@link Grid#refit(Collection)}), or
+	 * rebuilt when too many geometries moved since it was built
+	 */
+	@Override
+	public void refit(Collection<? extends Intersectable> moved) {
+		super.refit(moved);
+		if (!grid.refit(moved))
+			grid = new Grid(scene.geometries, density, maxCells);
 	}
 
 	@Override
@@ -41,4 +95,9 @@ public class GridRayTracer extends SimpleRayTracer {
 		return grid.traverse(ray, distance);
 	}
 
+	@Override
+	protected Intersection findClosestIntersection(Ray ray) {
+		return grid.findClosestIntersection(ray);
+	}
+
 }
@@ -0,0 +1,138 @@
+package renderer;
+
+import java.util.Arrays;
+
+import primitives.Color;
+
+/**
+ * Per-pixel cost map of a rendering (see
+ * {@link Camera.Builder#setHeatmap(Heatmap.Mode)}): the rendering time or the
+ * amount of traced rays of each pixel. It is written as a false-color image,
+ * from blue (cheap) through green and yellow to red (expensive), which shows the
+ * materials (e.g. glossy surfaces or deep transparency) and the regions of the
+ * scene which make the rendering slow.<br>
+ * The costs of a progressive rendering are summed over its passes.
+ */
+public final class Heatmap {
+	/** The cost recorded per pixel */
+	public enum Mode {
+		/** Rendering time of the pixel in nanoseconds */
+		TIME,
+		/** Amount of rays of all kinds traced for the pixel */
+		RAYS
+	}
+
+	/**
+	 * Percentile of the pixel costs which is mapped to the hottest color - so a
+	 * few outliers (e.g. pixels delayed by garbage collection) do not darken the
+	 * whole map
+	 */
+	private static final double SCALE_PERCENTILE = 0.99;
+	/** False colors from the cheapest to the most expensive cost */
+	private static final Color[] RAMP = { new Color(0, 0, 64), new Color(0, 0, 255), new Color(0, 255, 255),
+			new Color(0, 255, 0), new Color(255, 255, 0), new Color(255, 0, 0) };
+
+	/** The recorded cost */
+	private final Mode mode;
+	/** Horizontal resolution of the image */
+	private final int nX;
+	/** Vertical resolution of the image */
+	private final int nY;
+	/** The costs of the pixels row after row */
+	private final long[] costs;
+
+	/**
+	 * Constructs empty cost map of an image
+	 *
+	 * @param mode the recorded cost
+	 * @param nX   horizontal resolution of the image
+	 * @param nY   vertical resolution of the image
+	 */
+	Heatmap(Mode mode, int nX, int nY) {
+		this.mode = mode;
+		this.nX = nX;
+		this.nY = nY;
+		this.costs = new long[nX * nY];
+	}
+
+	/**
+	 * The recorded cost
+	 *
+	 * @return the mode of the map
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Add cost to a pixel
+	 *
+	 * @param x    pixel column
+	 * @param y    pixel row
+	 * @param cost the cost
+	 */
+	void add(int x, int y, long cost) {
+		costs[y * nX + x] += cost;
+	}
+
+	/**
+	 * The cost of a pixel
+	 *
+	 * @param x pixel column
+	 * @param y pixel row
+	 * @return the cost (in nanoseconds or in rays according to the mode)
+	 */
+	public long getCost(int x, int y) {
+		return costs[y * nX + x];
+	}
+
+	/**
+	 * The total cost of a rectangular region of the image (e.g. of a tile)
+	 *
+	 * @param x      first pixel column of the region
+	 * @param y      first pixel row of the region
+	 * @param width  width of the region (in pixels)
+	 * @param height height of the region (in pixels)
+	 * @return the total cost
+	 */
+	public long getCost(int x, int y, int width, int height) {
+		if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > nX || y + height > nY)
+			throw new IllegalArgumentException("The region must be inside the image");
+		long sum = 0;
+		for (int i = y; i < y + height; ++i)
+			for (int j = x; j < x + width; ++j)
+				sum += costs[i * nX + j];
+		return sum;
+	}
+
+	/**
+	 * Write the map as a false-color png image (see {@link ImageWriter})
+	 *
+	 * @param imageName the name of png file
+	 */
+	public void writeToImage(String imageName) {
+		long[] sorted = costs.clone();
+		Arrays.sort(sorted);
+		double scale = sorted[(int) ((sorted.length - 1) * SCALE_PERCENTILE)];
+		if (scale == 0)
+			scale = Math.max(1, sorted[sorted.length - 1]);
+		ImageWriter writer = new ImageWriter(nX, nY);
+		for (int i = 0; i < nY; ++i)
+			for (int j = 0; j < nX; ++j)
+				writer.writePixel(j, i, falseColor(costs[i * nX + j] / scale));
+		writer.writeToImage(imageName);
+	}
+
+	/**
+	 * Map a relative cost to the false colors ramp
+	 *
+	 * @param t the relative cost, values above 1 are mapped as 1
+	 * @return the color
+	 */
+	private static Color falseColor(double t) {
+		double position = Math.min(1, t) * (RAMP.length - 1);
+		int index = Math.min((int) position, RAMP.length - 2);
+		double fraction = position - index;
+		return RAMP[index].scale(1 - fraction).add(RAMP[index + 1].scale(fraction));
+	}
+}
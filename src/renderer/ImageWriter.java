@@ -44,6 +44,31 @@ public final class ImageWriter {
 		image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
 	}
 
+	/**
+	 * Image Writer constructor accepting an existing png image as the base of the
+	 * pixel color matrix, e.g. for compositing a re-rendered region into a former
+	 * rendering of the image
+	 * 
+	 * @param imageName the name of the base png file
+	 * @param nX        amount of pixels by Width
+	 * @param nY        amount of pixels by height
+	 */
+	public ImageWriter(String imageName, int nX, int nY) {
+		this(nX, nY);
+		File file = new File(FOLDER_PATH + '/' + imageName + ".png");
+		BufferedImage base;
+		try {
+			base = ImageIO.read(file);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot read image " + file, e);
+		}
+		if (base == null)
+			throw new IllegalArgumentException("Unsupported image format " + file);
+		if (base.getWidth() != nX || base.getHeight() != nY)
+			throw new IllegalArgumentException("Base image resolution must be the same as the image resolution");
+		image.setRGB(0, 0, nX, nY, base.getRGB(0, 0, nX, nY, null, 0, nX), 0, nX);
+	}
+
 	// ***************** Getters ********************** //
 	/**
 	 * View Plane Y axis resolution
@@ -72,14 +97,73 @@ public final class ImageWriter {
 	 * @param imageName the name of png file
 	 */
 	public void writeToImage(String imageName) {
+		write(image, imageName);
+	}
+
+	/**
+	 * Function writeToImage produces unoptimized png file of a rectangular region
+	 * of the image (e.g. a crop window) in the directory of the project
+	 * 
+	 * @param imageName the name of png file
+	 * @param x         first pixel column of the region
+	 * @param y         first pixel row of the region
+	 * @param width     width of the region (in pixels)
+	 * @param height    height of the region (in pixels)
+	 */
+	public void writeToImage(String imageName, int x, int y, int width, int height) {
+		if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > nX || y + height > nY)
+			throw new IllegalArgumentException("The region must be inside the image");
+		write(image.getSubimage(x, y, width, height), imageName);
+	}
+
+	/**
+	 * Writes an image into png file in the directory of the project
+	 * 
+	 * @param img       the image
+	 * @param imageName the name of png file
+	 */
+	private static void write(BufferedImage img, String imageName) {
+		RenderEvents.ImageWrite event = new RenderEvents.ImageWrite();
+		event.begin();
 		try {
 			File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-			ImageIO.write(image, "png", file);
+			ImageIO.write(img, "png", file);
+			event.image = imageName;
+			event.width = img.getWidth();
+			event.height = img.getHeight();
+			event.bytes = file.length();
+			event.commit();
 		} catch (IOException e) {
 			throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
 		}
 	}
 
+	/**
+	 * Read the RGB values of a rectangular region of the pixel color matrix
+	 * 
+	 * @param x      first pixel column of the region
+	 * @param y      first pixel row of the region
+	 * @param width  width of the region (in pixels)
+	 * @param height height of the region (in pixels)
+	 * @return the RGB values of the region pixels row after row
+	 */
+	int[] getPixels(int x, int y, int width, int height) {
+		return image.getRGB(x, y, width, height, null, 0, width);
+	}
+
+	/**
+	 * Write the RGB values of a rectangular region into the pixel color matrix
+	 * 
+	 * @param x      first pixel column of the region
+	 * @param y      first pixel row of the region
+	 * @param width  width of the region (in pixels)
+	 * @param height height of the region (in pixels)
+	 * @param rgb    the RGB values of the region pixels row after row
+	 */
+	void setPixels(int x, int y, int width, int height, int[] rgb) {
+		image.setRGB(x, y, width, height, rgb, 0, width);
+	}
+
 	/**
 	 * The function writePixel writes a color of a specific pixel into pixel color
 	 * matrix
@@ -1,40 +1,99 @@
 package renderer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
- * 
+ * The image is divided into square tiles of pixels, and the pixel manager
+ * allocates the tiles to the threads, so each thread renders a whole tile at a
+ * time. A Camera uses one pixel manager object and several Tile objects - one
+ * in each thread.
+ *
  * @author Dan Zilberstein
  */
 class PixelManager {
 	/**
-	 * Immutable class for object containing allocated pixel (with its row and
-	 * column numbers)
-	 * 
-	 * @param col pixel column number
-	 * @param row pixel row number
+	 * Immutable class for object containing allocated tile of pixels (with its
+	 * number and its pixel ranges)
+	 *
+	 * @param index tile number (the tiles are numbered row after row)
+	 * @param x0    first pixel column of the tile
+	 * @param y0    first pixel row of the tile
+	 * @param x1    the column after the last pixel column of the tile
+	 * @param y1    the row after the last pixel row of the tile
 	 */
-	record Pixel(int col, int row) {
+	record Tile(int index, int x0, int y0, int x1, int y1) {
+		/**
+		 * Calculate a tile of an image region
+		 *
+		 * @param index   tile number
+		 * @param x       first pixel column of the region
+		 * @param y       first pixel row of the region
+		 * @param maxRows the amount of pixel rows in the region
+		 * @param maxCols the amount of pixel columns in the region
+		 * @param size    tile size (in pixels)
+		 * @return the tile
+		 */
+		static Tile of(int index, int x, int y, int maxRows, int maxCols, int size) {
+			int tilesX = (maxCols + size - 1) / size;
+			int x0 = x + index % tilesX * size;
+			int y0 = y + index / tilesX * size;
+			return new Tile(index, x0, y0, Math.min(x0 + size, x + maxCols), Math.min(y0 + size, y + maxRows));
+		}
+
+		/**
+		 * Calculate the amount of tiles in an image region
+		 *
+		 * @param maxRows the amount of pixel rows in the region
+		 * @param maxCols the amount of pixel columns in the region
+		 * @param size    tile size (in pixels)
+		 * @return tiles amount
+		 */
+		static int count(int maxRows, int maxCols, int size) {
+			return ((maxCols + size - 1) / size) * ((maxRows + size - 1) / size);
+		}
+
+		/**
+		 * The amount of pixels in the tile
+		 *
+		 * @return pixels amount
+		 */
+		int pixels() {
+			return (x1 - x0) * (y1 - y0);
+		}
 	}
 
+	/** First pixel column of the processed region */
+	private int x = 0;
+	/** First pixel row of the processed region */
+	private int y = 0;
 	/** Maximum rows of pixels */
 	private int maxRows = 0;
 	/** Maximum columns of pixels */
 	private int maxCols = 0;
-	/** Total amount of pixels in the generated image */
+	/** Tile size (in pixels) */
+	private int tileSize = 0;
+	/** Total amount of pixels in the processed region */
 	private long totalPixels = 0l;
 
-	/** Currently processed row of pixels */
-	private volatile int cRow = 0;
-	/** Currently processed column of pixels */
-	private volatile int cCol = -1;
+	/** The tiles to be processed */
+	private final List<Tile> tiles = new ArrayList<>();
+	/** The index of the next tile to be allocated */
+	private int nextTile = 0;
 	/** Amount of pixels that have been processed */
 	private volatile long pixels = 0l;
 	/** Last printed progress update percentage */
 	private volatile int lastPrinted = 0;
 
+	/** Flag of time limited processing */
+	private boolean timed = false;
+	/** Time (by {@link System#nanoTime()}) when the processing must stop */
+	private long deadline = 0l;
+
 	/** Flag of debug printing of progress percentage */
 	private boolean print = false;
 	/** Progress percentage printing interval */
@@ -42,7 +101,7 @@ class PixelManager {
 	/** Printing format */
 	private static final String PRINT_FORMAT = "%5.1f%%\r";
 	/**
-	 * Mutual exclusion object for synchronizing next pixel allocation between
+	 * Mutual exclusion object for synchronizing next tile allocation between
 	 * threads
 	 */
 	private Object mutexNext = new Object();
@@ -53,18 +112,28 @@ class PixelManager {
 	private Object mutexPixels = new Object();
 
 	/**
-	 * Initialize pixel manager data for multi-threading
-	 * 
-	 * @param maxRows  the amount of pixel rows
-	 * @param maxCols  the amount of pixel columns
+	 * Initialize pixel manager data for multi-threading over a region of the image
+	 * (the whole image or a crop window)
+	 *
+	 * @param x        first pixel column of the region
+	 * @param y        first pixel row of the region
+	 * @param maxRows  the amount of pixel rows in the region
+	 * @param maxCols  the amount of pixel columns in the region
+	 * @param tileSize the size of the tiles (in pixels)
 	 * @param interval print time interval in seconds, 0 if printing is not required
 	 */
-	PixelManager(int maxRows, int maxCols, double... interval) {
+	PixelManager(int x, int y, int maxRows, int maxCols, int tileSize, double... interval) {
 		if (interval.length > 1)
 			throw new IllegalArgumentException("only up to one interval argument is allowed");
+		this.x = x;
+		this.y = y;
 		this.maxRows = maxRows;
 		this.maxCols = maxCols;
+		this.tileSize = tileSize;
 		totalPixels = (long) maxRows * maxCols;
+		int tilesCount = tilesCount();
+		for (int index = 0; index < tilesCount; ++index)
+			tiles.add(Tile.of(index, x, y, maxRows, maxCols, tileSize));
 		printInterval = interval.length == 0 ? printInterval : (long) (interval[0] * 10);
 		print = printInterval != 0;
 		if (print)
@@ -72,36 +141,104 @@ class PixelManager {
 	}
 
 	/**
-	 * Function for thread-safe manipulating of main follow up Pixel object - this
+	 * The amount of tiles in the processed region
+	 *
+	 * @return tiles amount
+	 */
+	int tilesCount() {
+		return Tile.count(maxRows, maxCols, tileSize);
+	}
+
+	/**
+	 * Skip the tiles that have already been processed (e.g. restored from a
+	 * checkpoint) - they are counted as done. Must be called before the
+	 * processing starts
+	 *
+	 * @param done predicate telling by tile number whether it is done
+	 */
+	void skip(IntPredicate done) {
+		tiles.removeIf(tile -> {
+			if (!done.test(tile.index()))
+				return false;
+			pixels += tile.pixels();
+			return true;
+		});
+	}
+
+	/**
+	 * The tiles to be processed (for iterating them by a single thread or by a
+	 * parallel stream)
+	 *
+	 * @return unmodifiable list of the tiles
+	 */
+	List<Tile> tiles() {
+		return Collections.unmodifiableList(tiles);
+	}
+
+	/**
+	 * Function for thread-safe manipulating of main follow up Tile object - this
 	 * function is critical section for all the threads, and the pixel manager data
 	 * is the shared data of this critical section.<br/>
-	 * The function provides next available pixel number each call.
-	 * 
-	 * @return true if next pixel is allocated, false if there are no more pixels
+	 * The function provides next available tile each call.
+	 *
+	 * @return the next tile, or null if there are no more tiles
 	 */
-	Pixel nextPixel() {
+	Tile nextTile() {
+		if (isStopped())
+			return null;
 		synchronized (mutexNext) {
-			if (cRow == maxRows)
-				return null;
+			return nextTile < tiles.size() ? tiles.get(nextTile++) : null;
+		}
+	}
 
-			++cCol;
-			if (cCol < maxCols)
-				return new Pixel(cRow, cCol);
+	/**
+	 * Set the time when the processing must stop - no more tiles are allocated
+	 * after it
+	 *
+	 * @param deadline the time by {@link System#nanoTime()}
+	 */
+	void setDeadline(long deadline) {
+		this.deadline = deadline;
+		timed = true;
+	}
 
-			cCol = 0;
-			++cRow;
-			if (cRow < maxRows)
-				return new Pixel(cRow, cCol);
-		}
-		return null;
+	/**
+	 * Check whether the processing must stop (the deadline has passed)
+	 *
+	 * @return true if no more pixels should be processed
+	 */
+	boolean isStopped() {
+		return timed && System.nanoTime() - deadline > 0;
+	}
+
+	/**
+	 * The progress of the processing
+	 *
+	 * @return the part of the pixels that has been processed, between 0 and 1
+	 */
+	double progress() {
+		return (double) pixels / totalPixels;
 	}
 
-	/** Finish pixel processing by updating and printing of progress percentage */
-	void pixelDone() {
+	/**
+	 * Check whether all the pixels have been processed
+	 *
+	 * @return true if the processing is complete
+	 */
+	boolean isComplete() {
+		return pixels == totalPixels;
+	}
+
+	/**
+	 * Finish tile processing by updating and printing of progress percentage
+	 *
+	 * @param tile the processed tile
+	 */
+	void tileDone(Tile tile) {
 		boolean flag = false;
 		int percentage = 0;
 		synchronized (mutexPixels) {
-			++pixels;
+			pixels += tile.pixels();
 			if (print) {
 				percentage = (int) (1000l * pixels / totalPixels);
 				if (percentage - lastPrinted >= printInterval) {
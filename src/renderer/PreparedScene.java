@@ -0,0 +1,144 @@
+package renderer;
+
+import geometries.Bvh;
+import scene.Scene;
+
+/**
+ * Scene prepared for ray tracing - the scene with its acceleration structure
+ * (a grid or a bounding volume hierarchy), built once and shared by any amount
+ * of cameras (see {@link Camera.Builder#setRayTracer(PreparedScene)}), so
+ * rendering several viewpoints of a scene pays the build time and the memory
+ * of the structure only once. The cameras may render concurrently, since the
+ * ray tracing only reads the structure.<br>
+ * The prepared scene is immutable: the scene must not change after it is
+ * prepared, and the ray tracers of the cameras refuse to refit it (see
+ * {@link RayTracerBase#refit(java.util.Collection)}) - a moved scene is
+ * prepared again, or it is rendered by cameras with their own ray tracers.
+ */
+public final class PreparedScene {
+	/** The traced scene - a copy holding the hierarchy for a BVH scene */
+	private final Scene scene;
+	/** The grid of the scene geometries, null if the scene is not gridded */
+	private final Grid grid;
+	/** The split strategy of the hierarchy, null if the scene has no hierarchy */
+	private final Bvh.Split bvhSplit;
+	/** The amount of grid voxels per geometry */
+	private final double gridDensity;
+	/** The maximal amount of grid voxels */
+	private final long gridMaxCells;
+
+	/**
+	 * Constructs a prepared scene
+	 *
+	 * @param scene        the traced scene
+	 * @param grid         the grid of the scene geometries, or null
+	 * @param bvhSplit     the split strategy of the hierarchy, or null
+	 * @param gridDensity  the amount of grid voxels per geometry
+	 * @param gridMaxCells the maximal amount of grid voxels
+	 */
+	private PreparedScene(Scene scene, Grid grid, Bvh.Split bvhSplit, double gridDensity, long gridMaxCells) {
+		this.scene = scene;
+		this.grid = grid;
+		this.bvhSplit = bvhSplit;
+		this.gridDensity = gridDensity;
+		this.gridMaxCells = gridMaxCells;
+	}
+
+	/**
+	 * Prepare a scene without an acceleration structure - its geometries are
+	 * traced as they are
+	 *
+	 * @param scene the scene
+	 * @return the prepared scene
+	 */
+	public static PreparedScene simple(Scene scene) {
+		return new PreparedScene(scene, null, null, Grid.DEFAULT_DENSITY, Grid.DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Prepare a scene by a grid of its geometries with the default resolution
+	 * policy (see {@link GridRayTracer})
+	 *
+	 * @param scene the scene
+	 * @return the prepared scene
+	 */
+	public static PreparedScene grid(Scene scene) {
+		return grid(scene, Grid.DEFAULT_DENSITY, Grid.DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Prepare a scene by a grid of its geometries (see
+	 * {@link Grid#Grid(geometries.Geometries, double, long)})
+	 *
+	 * @param scene    the scene
+	 * @param density  amount of grid voxels per geometry (λ)
+	 * @param maxCells the maximal amount of grid voxels
+	 * @return the prepared scene
+	 */
+	public static PreparedScene grid(Scene scene, double density, long maxCells) {
+		return new PreparedScene(scene, new Grid(scene.geometries, density, maxCells), null, density, maxCells);
+	}
+
+	/**
+	 * Prepare a scene by a bounding volume hierarchy of its geometries (see
+	 * {@link Bvh#build(geometries.Geometries, Bvh.Split)}) - the scene itself is
+	 * not changed
+	 *
+	 * @param scene the scene
+	 * @param split the split strategy of the hierarchy
+	 * @return the prepared scene
+	 */
+	public static PreparedScene bvh(Scene scene, Bvh.Split split) {
+		return new PreparedScene(SimpleRayTracer.bvhScene(scene, split), null, split, Grid.DEFAULT_DENSITY,
+				Grid.DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Get the build statistics of the grid of the scene geometries
+	 *
+	 * @return the statistics, null if the scene is not gridded
+	 */
+	public Grid.BuildStats getGridStats() {
+		return grid == null ? null : grid.getBuildStats();
+	}
+
+	/**
+	 * Get the split strategy of the bounding volume hierarchy of the scene
+	 *
+	 * @return the split strategy, null if the scene has no hierarchy
+	 */
+	Bvh.Split getBvhSplit() {
+		return bvhSplit;
+	}
+
+	/**
+	 * Get the amount of grid voxels per geometry of the grid policy
+	 *
+	 * @return the density
+	 */
+	double getGridDensity() {
+		return gridDensity;
+	}
+
+	/**
+	 * Get the maximal amount of grid voxels of the grid policy
+	 *
+	 * @return the maximal amount of voxels
+	 */
+	long getGridMaxCells() {
+		return gridMaxCells;
+	}
+
+	/**
+	 * Create a ray tracer of the prepared scene for a camera - the ray tracers
+	 * share the scene and its acceleration structure, while their settings (e.g.
+	 * the glossy and diffuse rays) are their own
+	 *
+	 * @return the ray tracer
+	 */
+	RayTracerBase createRayTracer() {
+		RayTracerBase rayTracer = grid == null ? new SimpleRayTracer(scene) : new GridRayTracer(scene, grid);
+		rayTracer.shared = true;
+		return rayTracer;
+	}
+}
@@ -0,0 +1,160 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import geometries.IntersectionProbe;
+
+/**
+ * Ray tracing counters of a single thread in a rendering with statistics (see
+ * {@link RenderStats}). Each rendering thread has its own counters object, so
+ * counting costs no synchronization and no cache line sharing between the
+ * threads (the counters are striped by thread), and the counters of all the
+ * threads are summed when the rendering is over.<br>
+ * The counters of the current thread are found by a thread local variable,
+ * which is checked only while a rendering with statistics is running - so the
+ * counting hooks cost almost nothing otherwise. The intersection tests are
+ * counted by a listener of the geometries probe (see {@link IntersectionProbe}),
+ * installed while a rendering with statistics is running.
+ */
+public final class RayCounters {
+	/** Amount of the running renderings with statistics */
+	private static volatile int active = 0;
+	/** The counters of the current thread, null if it is not counting */
+	private static final ThreadLocal<RayCounters> CURRENT = new ThreadLocal<>();
+	/** Indices of the counted geometry classes */
+	private static final Map<Class<?>, Integer> INDICES = new HashMap<>();
+	/** The counted geometry classes by their indices */
+	private static final List<Class<?>> CLASSES = new ArrayList<>();
+	/** Cache of the indices of the counted geometry classes */
+	private static final ClassValue<Integer> INDEX = new ClassValue<>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return index(type);
+		}
+	};
+
+	/** Amount of primary (camera) rays */
+	long primaryRays = 0;
+	/** Amount of shadow rays */
+	long shadowRays = 0;
+	/** Amount of reflection rays */
+	long reflectionRays = 0;
+	/** Amount of refraction (transparency) rays */
+	long refractionRays = 0;
+	/** Amount of voxels visited by grid traversals */
+	long voxelsVisited = 0;
+	/** Amount of shaded intersections */
+	long shadings = 0;
+	/** Sum of the recursion depths of the shaded intersections */
+	long depthSum = 0;
+	/** The maximal recursion depth */
+	int maxDepth = 0;
+	/** Amount of intersection tests by geometry class index */
+	long[] intersectionTests = new long[8];
+
+	/** Counters are created by the statistics collector only */
+	RayCounters() {
+	}
+
+	/**
+	 * Count an intersection test of a geometry - if the current thread is
+	 * counting. It is the listener of the intersection probe of the geometries.
+	 *
+	 * @param geometry the tested geometry
+	 */
+	private static void intersectionTest(Object geometry) {
+		RayCounters counters = CURRENT.get();
+		if (counters == null)
+			return;
+		int index = INDEX.get(geometry.getClass());
+		if (index >= counters.intersectionTests.length)
+			counters.intersectionTests = Arrays.copyOf(counters.intersectionTests,
+					Math.max(index + 1, counters.intersectionTests.length * 2));
+		++counters.intersectionTests[index];
+	}
+
+	/**
+	 * The counters of the current thread
+	 *
+	 * @return the counters, or null if the current thread is not counting
+	 */
+	static RayCounters current() {
+		return active == 0 ? null : CURRENT.get();
+	}
+
+	/**
+	 * Total amount of the rays of all kinds counted so far
+	 *
+	 * @return the amount
+	 */
+	long totalRays() {
+		return primaryRays + shadowRays + reflectionRays + refractionRays;
+	}
+
+	/**
+	 * Count a shaded intersection
+	 *
+	 * @param depth the recursion depth of the shading (1 for a primary ray hit)
+	 */
+	void shading(int depth) {
+		++shadings;
+		depthSum += depth;
+		if (depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/**
+	 * Set the counters of the current thread
+	 *
+	 * @param counters the counters, null for stopping counting
+	 */
+	static void bind(RayCounters counters) {
+		if (counters == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(counters);
+	}
+
+	/**
+	 * Register the start of a rendering with statistics
+	 */
+	static synchronized void start() {
+		if (active++ == 0)
+			IntersectionProbe.setListener(RayCounters::intersectionTest);
+	}
+
+	/**
+	 * Register the end of a rendering with statistics
+	 */
+	static synchronized void finish() {
+		if (--active == 0)
+			IntersectionProbe.setListener(null);
+	}
+
+	/**
+	 * Allocate an index to a counted geometry class
+	 *
+	 * @param type the class
+	 * @return the index
+	 */
+	private static synchronized int index(Class<?> type) {
+		return INDICES.computeIfAbsent(type, t -> {
+			CLASSES.add(t);
+			return CLASSES.size() - 1;
+		});
+	}
+
+	/**
+	 * The counted geometry class by its index
+	 *
+	 * @param index the index
+	 * @return the class
+	 */
+	static synchronized Class<?> geometryClass(int index) {
+		return CLASSES.get(index);
+	}
+}
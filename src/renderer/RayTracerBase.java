@@ -1,5 +1,8 @@
 package renderer;
 
+import java.util.Collection;
+
+import geometries.Intersectable;
 import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
@@ -9,7 +12,7 @@ import scene.Scene;
  * and defines the contract for calculating the color resulting from tracing a
  * ray through the scene.
  */
-public abstract class RayTracerBase {
+public abstract class RayTracerBase implements Cloneable {
 
 	/**
 	 * The scene to be rendered. Immutable and accessible to subclasses.
@@ -30,6 +33,12 @@ public abstract class RayTracerBase {
 	 */
 	protected int glossyAndDiffuseNumOfRay = 1;
 
+	/**
+	 * Whether the scene and its acceleration structure are shared with other ray
+	 * tracers (see {@link PreparedScene}) - then they must not be refitted
+	 */
+	boolean shared = false;
+
 	/**
 	 * Traces a ray through the scene and returns the resulting color.
 	 *
@@ -50,6 +59,38 @@ public abstract class RayTracerBase {
 		return this;
 	}
 
+	/**
+	 * Copy the ray tracer for a camera with other settings - the copy shares the
+	 * scene and the acceleration structure, while its settings (e.g. the glossy
+	 * and diffuse rays) are its own
+	 *
+	 * @return the copy
+	 */
+	RayTracerBase copy() {
+		try {
+			return (RayTracerBase) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("Ray tracer cannot be copied", e);
+		}
+	}
+
+	/**
+	 * Update the ray tracer after some of the scene geometries moved (their
+	 * bounds changed, e.g. instances got new transformations), so it can trace
+	 * the next frame of an animation without being built again. The cached
+	 * bounding boxes of the scene geometries collections are dropped; tracers
+	 * with acceleration structures update them as well. It must not be called
+	 * during ray tracing.
+	 *
+	 * @param moved the moved geometries of the scene
+	 * @throws IllegalStateException if the scene is shared by a prepared scene
+	 */
+	public void refit(Collection<? extends Intersectable> moved) {
+		if (shared)
+			throw new IllegalStateException("A prepared scene cannot be refitted - it must be prepared again");
+		scene.geometries.refit();
+	}
+
 	/**
 	 * Finds the closest intersection of the ray with the scene's geometries.
 	 *
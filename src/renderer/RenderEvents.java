@@ -0,0 +1,118 @@
+package renderer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the rendering phases: acceleration structure
+ * build, tile rendering and image writing (the scene loading event is of the
+ * scene package - see {@link scene.SceneLoadEvent}). The events are recorded
+ * by any JFR recording of the JVM (e.g. started by
+ * {@code -XX:StartFlightRecording} or by {@code jcmd <pid> JFR.start}), so
+ * latency spikes can be tied to the rendered content without attaching a
+ * profiler. When no recording is running the events cost almost nothing.
+ */
+public final class RenderEvents {
+	/** Category of the events in the recordings */
+	private static final String CATEGORY = "Ray Tracer";
+
+	/** Don't let anyone instantiate this class. */
+	private RenderEvents() {
+	}
+
+	/** Event of building a grid of a scene geometries */
+	@Name("raytracer.GridBuild")
+	@Label("Grid Build")
+	@Category(CATEGORY)
+	@Description("Construction of the acceleration grid of geometries")
+	@StackTrace(false)
+	public static final class GridBuild extends Event {
+		/** Amount of the geometries */
+		@Label("Geometries")
+		public int geometries;
+		/** Amount of the geometries with infinite bounds (kept out of the voxels) */
+		@Label("Infinite Geometries")
+		public int infiniteGeometries;
+		/** Amount of the voxels of the grid (including the sub-grids voxels) */
+		@Label("Voxels")
+		public long voxels;
+		/** Amount of the sub-grids of crowded voxels */
+		@Label("Sub-grids")
+		public int subGrids;
+		/** The maximal amount of geometries in a voxel */
+		@Label("Max Occupancy")
+		public int maxOccupancy;
+		/** Amount of the non-empty voxels */
+		@Label("Occupied Voxels")
+		public long occupiedVoxels;
+		/** Amount of the geometry references in the voxels (and the sub-grids) */
+		@Label("References")
+		public long references;
+	}
+
+	/** Event of rendering a tile of an image */
+	@Name("raytracer.TileRender")
+	@Label("Tile Render")
+	@Category(CATEGORY)
+	@Description("Rendering of a tile of pixels")
+	@StackTrace(false)
+	public static final class TileRender extends Event {
+		/** First pixel column of the tile */
+		@Label("X0")
+		public int x0;
+		/** First pixel row of the tile */
+		@Label("Y0")
+		public int y0;
+		/** The column after the last pixel column of the tile */
+		@Label("X1")
+		public int x1;
+		/** The row after the last pixel row of the tile */
+		@Label("Y1")
+		public int y1;
+		/** Index of the pass of progressive rendering (0 for a single pass) */
+		@Label("Pass")
+		public int pass;
+		/** Amount of rays of all kinds traced for the tile */
+		@Label("Rays")
+		public long rays;
+		/** Whether all the tile pixels have been rendered */
+		@Label("Completed")
+		public boolean completed;
+
+		/**
+		 * Check whether tile events are recorded
+		 *
+		 * @return true if a running recording records them
+		 */
+		static boolean enabled() {
+			return new TileRender().isEnabled();
+		}
+	}
+
+	/** Event of writing an image file */
+	@Name("raytracer.ImageWrite")
+	@Label("Image Write")
+	@Category(CATEGORY)
+	@Description("Writing of a rendered image into a file")
+	@StackTrace(false)
+	public static final class ImageWrite extends Event {
+		/** The image name */
+		@Label("Image")
+		public String image;
+		/** Width of the image in pixels */
+		@Label("Width")
+		public int width;
+		/** Height of the image in pixels */
+		@Label("Height")
+		public int height;
+		/** Size of the written file */
+		@Label("Size")
+		@DataAmount
+		public long bytes;
+	}
+}
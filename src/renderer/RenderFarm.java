@@ -0,0 +1,346 @@
+package renderer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import renderer.PixelManager.Tile;
+
+/**
+ * Render farm coordinator - renders the image of a camera by worker processes.
+ * The image (or its crop window) is divided into tiles, and the tiles are
+ * dispatched over sockets to the workers (see {@link RenderWorker}), each of
+ * them loads the scene from the XML file sent by the coordinator, renders the
+ * tiles allocated to it and sends their pixels back.<br>
+ * The coordinator may start local worker processes, and other workers (e.g. on
+ * other machines) may join the rendering by connecting to the coordinator port
+ * while it is rendering. A worker gets a new tile whenever it returns the
+ * former one, and the tile of a failed worker is allocated again to another
+ * worker.<br>
+ * Protocol (big-endian):
+ * <ul>
+ * <li>coordinator to worker on connection - magic number, scene XML file
+ * length and content, worker threads setting and camera settings</li>
+ * <li>coordinator to worker - tile (first column, first row, column and row
+ * after the last ones), or -1 when there are no more tiles</li>
+ * <li>worker to coordinator - RGB values of the tile pixels row after row</li>
+ * </ul>
+ */
+public class RenderFarm {
+	/** Render farm protocol magic number */
+	static final int MAGIC = 0x52544652;
+	/** Tile end-of-work mark */
+	static final int NO_TILE = -1;
+	/** Size of the socket streams buffers */
+	static final int BUFFER_SIZE = 1 << 16;
+	/** Interval of checking the workers state (milliseconds) */
+	private static final long POLL_INTERVAL = 100;
+	/** Time to wait for a worker process to exit when it is stopped (milliseconds) */
+	private static final long STOP_TIMEOUT = 1000;
+	/** Default time to wait for a worker response (seconds) */
+	private static final double DEFAULT_WORKER_TIMEOUT = 120;
+
+	/** The camera whose image is rendered */
+	private final Camera camera;
+	/** The XML file of the scene */
+	private final String sceneFile;
+	/** Amount of worker processes started by the coordinator */
+	private int localWorkers = 1;
+	/** Multi-threading setting of each worker (see Camera.Builder) */
+	private int workerThreads = 0;
+	/** Coordinator port, 0 for any free port */
+	private int port = 0;
+	/** Flag of accepting workers from other machines */
+	private boolean remote = false;
+	/** Time to wait for a worker response (milliseconds), 0 for no limit */
+	private int workerTimeout = (int) (DEFAULT_WORKER_TIMEOUT * 1000);
+
+	/** The tiles waiting for allocation */
+	private final Deque<Tile> pending = new ArrayDeque<>();
+	/** Amount of tiles which have not been rendered yet */
+	private int remaining = 0;
+	/** Amount of connected workers */
+	private int connected = 0;
+	/** Flag of at least one worker connected during the rendering */
+	private boolean started = false;
+	/** Pixel manager for the tiles and for the progress */
+	private PixelManager pixelManager;
+
+	/**
+	 * Constructs a render farm coordinator
+	 *
+	 * @param camera    the camera whose image is rendered (its scene must be the
+	 *                  one in the XML file)
+	 * @param sceneFile the XML file of the scene
+	 */
+	public RenderFarm(Camera camera, String sceneFile) {
+		this.camera = camera;
+		this.sceneFile = sceneFile;
+	}
+
+	/**
+	 * Set the amount of worker processes started by the coordinator on the local
+	 * machine
+	 *
+	 * @param workers amount of workers, 0 if only remote workers are used
+	 * @return the render farm itself
+	 */
+	public RenderFarm setLocalWorkers(int workers) {
+		if (workers < 0)
+			throw new IllegalArgumentException("Amount of workers must be non-negative");
+		localWorkers = workers;
+		return this;
+	}
+
+	/**
+	 * Set the multi-threading of each worker (see
+	 * {@link Camera.Builder#setMultithreading(int)})
+	 *
+	 * @param threads number of threads
+	 * @return the render farm itself
+	 */
+	public RenderFarm setWorkerThreads(int threads) {
+		if (threads < -2)
+			throw new IllegalArgumentException("Multithreading parameter must be -2 or higher");
+		workerThreads = threads;
+		return this;
+	}
+
+	/**
+	 * Accept workers from other machines on a port - they are started by
+	 * {@code java renderer.RenderWorker <coordinator host> <port>}. Otherwise
+	 * only local workers are accepted on any free port.
+	 *
+	 * @param port the port
+	 * @return the render farm itself
+	 */
+	public RenderFarm setRemotePort(int port) {
+		if (port <= 0 || port > 0xFFFF)
+			throw new IllegalArgumentException("Illegal port number");
+		this.port = port;
+		remote = true;
+		return this;
+	}
+
+	/**
+	 * Set the time to wait for a worker response - a worker which does not send
+	 * the pixels of its tile in time (e.g. a hung worker) is dropped and its tile
+	 * is allocated again to another worker. The first tile of a worker includes
+	 * the loading of the scene and the build of its acceleration structure.
+	 *
+	 * @param seconds the time in seconds, 0 for no limit (default 120)
+	 * @return the render farm itself
+	 */
+	public RenderFarm setWorkerTimeout(double seconds) {
+		if (!(seconds >= 0) || seconds * 1000 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Worker timeout must be non-negative");
+		workerTimeout = (int) Math.ceil(seconds * 1000);
+		return this;
+	}
+
+	/**
+	 * Render the image of the camera by the workers
+	 *
+	 * @return the camera (with the rendered image)
+	 * @throws IllegalStateException if all the workers have failed before the
+	 *                               image was completed
+	 */
+	public Camera render() {
+		byte[] scene;
+		try {
+			scene = Files.readAllBytes(Path.of(sceneFile));
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot read scene " + sceneFile, e);
+		}
+
+		pixelManager = camera.createPixelManager(null);
+		synchronized (this) {
+			pending.addAll(pixelManager.tiles());
+			remaining = pending.size();
+			connected = 0;
+			started = false;
+		}
+
+		List<Process> processes = new LinkedList<>();
+		List<Socket> sockets = new LinkedList<>();
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		try (ServerSocket server = remote ? new ServerSocket(port) : new ServerSocket(0, 50, loopback)) {
+			Thread acceptor = new Thread(() -> accept(server, scene, sockets), "Render farm");
+			acceptor.start();
+			String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+			for (int i = 0; i < localWorkers; ++i)
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						RenderWorker.class.getName(), loopback.getHostAddress(), String.valueOf(server.getLocalPort())) //
+						.inheritIO().start());
+			awaitCompletion(processes);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - render farm failure", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized (this) {
+				// let the handlers waiting for tiles finish
+				pending.clear();
+				remaining = 0;
+				notifyAll();
+			}
+			stop(processes, sockets);
+		}
+		return camera;
+	}
+
+	/**
+	 * Wait until all the tiles are rendered
+	 *
+	 * @param processes the local worker processes
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	private synchronized void awaitCompletion(List<Process> processes) throws InterruptedException {
+		while (remaining > 0) {
+			if (connected == 0 && (started || !remote)
+					&& processes.stream().noneMatch(Process::isAlive))
+				throw new IllegalStateException("All render farm workers have failed");
+			wait(POLL_INTERVAL);
+		}
+	}
+
+	/**
+	 * Accept the workers connections until the server socket is closed, and start
+	 * a handler thread for each worker
+	 *
+	 * @param server   the server socket
+	 * @param scene    the scene XML file content
+	 * @param sockets  the list of the workers sockets
+	 */
+	private void accept(ServerSocket server, byte[] scene, List<Socket> sockets) {
+		try {
+			while (true) {
+				Socket socket = server.accept();
+				synchronized (this) {
+					++connected;
+					started = true;
+				}
+				synchronized (sockets) {
+					sockets.add(socket);
+				}
+				new Thread(() -> serve(socket, scene), "Render farm worker").start();
+			}
+		} catch (IOException ignored) {
+			// the server socket has been closed
+		}
+	}
+
+	/**
+	 * Serve a worker: send it the job, and then allocate tiles to it one after
+	 * another until all the tiles are rendered. If the worker fails, or it does
+	 * not respond in time, its tile is returned to the pending tiles.
+	 *
+	 * @param socket the worker socket
+	 * @param scene  the scene XML file content
+	 */
+	private void serve(Socket socket, byte[] scene) {
+		Tile tile = null;
+		try (socket) {
+			socket.setSoTimeout(workerTimeout);
+			var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+			var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(scene.length);
+			out.write(scene);
+			out.writeInt(workerThreads);
+			camera.writeSettings(out);
+			while ((tile = nextTile()) != null) {
+				out.writeInt(tile.x0());
+				out.writeInt(tile.y0());
+				out.writeInt(tile.x1());
+				out.writeInt(tile.y1());
+				out.flush();
+				int[] rgb = new int[tile.pixels()];
+				for (int i = 0; i < rgb.length; ++i)
+					rgb[i] = in.readInt();
+				camera.setPixels(tile, rgb);
+				pixelManager.tileDone(tile);
+				tileDone();
+				tile = null;
+			}
+			out.writeInt(NO_TILE);
+			out.flush();
+		} catch (IOException e) {
+			if (tile != null)
+				System.err.println("Render farm worker " + socket.getRemoteSocketAddress() + " failed: " + e);
+		} finally {
+			workerDone(tile);
+		}
+	}
+
+	/**
+	 * Allocate the next tile to a worker, waiting while there is no pending tile
+	 * but the tiles of other workers may still be returned
+	 *
+	 * @return the tile, or null if all the tiles have been rendered
+	 */
+	private synchronized Tile nextTile() {
+		while (pending.isEmpty() && remaining > 0)
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		return pending.poll();
+	}
+
+	/** Count a rendered tile */
+	private synchronized void tileDone() {
+		if (--remaining == 0)
+			notifyAll();
+	}
+
+	/**
+	 * Finish serving a worker
+	 *
+	 * @param tile the tile allocated to the worker which has not been rendered,
+	 *             null if there is no such tile
+	 */
+	private synchronized void workerDone(Tile tile) {
+		--connected;
+		if (tile != null && remaining > 0)
+			pending.addFirst(tile);
+		notifyAll();
+	}
+
+	/**
+	 * Stop the workers: the connections which have not been finished by their
+	 * handlers are closed, and the local worker processes which do not exit are
+	 * destroyed
+	 *
+	 * @param processes the local worker processes
+	 * @param sockets   the workers sockets
+	 */
+	private static void stop(List<Process> processes, List<Socket> sockets) {
+		synchronized (sockets) {
+			for (Socket socket : sockets)
+				try {
+					socket.close();
+				} catch (IOException ignored) {
+					// the worker is stopped anyway
+				}
+		}
+		try {
+			for (Process process : processes)
+				if (!process.waitFor(STOP_TIMEOUT, TimeUnit.MILLISECONDS))
+					process.destroy();
+		} catch (InterruptedException e) {
+			processes.forEach(Process::destroy);
+			Thread.currentThread().interrupt();
+		}
+	}
+}
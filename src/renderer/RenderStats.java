@@ -0,0 +1,308 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import renderer.PixelManager.Tile;
+
+/**
+ * Statistics of a rendering (see
+ * {@link Camera.Builder#setRenderStats(boolean, boolean)}): amounts of the
+ * traced rays by their kind, intersection tests by geometry class, voxels
+ * visited by grid traversals, recursion depth of the shading and optionally the
+ * rendering time of each tile.<br>
+ * The statistics are counted by each rendering thread separately (see
+ * {@link RayCounters}) and summed when the rendering is over.
+ */
+public final class RenderStats {
+	/**
+	 * Rendering time of a tile
+	 *
+	 * @param x0    first pixel column of the tile
+	 * @param y0    first pixel row of the tile
+	 * @param x1    the column after the last pixel column of the tile
+	 * @param y1    the row after the last pixel row of the tile
+	 * @param nanos rendering time of the tile in nanoseconds
+	 */
+	public record TileTime(int x0, int y0, int x1, int y1, long nanos) {
+	}
+
+	/** Amount of primary (camera) rays */
+	private final long primaryRays;
+	/** Amount of shadow rays */
+	private final long shadowRays;
+	/** Amount of reflection rays */
+	private final long reflectionRays;
+	/** Amount of refraction (transparency) rays */
+	private final long refractionRays;
+	/** Amount of voxels visited by grid traversals */
+	private final long voxelsVisited;
+	/** Amount of shaded intersections */
+	private final long shadings;
+	/** Sum of the recursion depths of the shaded intersections */
+	private final long depthSum;
+	/** The maximal recursion depth */
+	private final int maxDepth;
+	/** Amount of intersection tests by geometry class name */
+	private final Map<String, Long> intersectionTests;
+	/** Rendering times of the tiles, empty if the tiles are not timed */
+	private final List<TileTime> tileTimes;
+	/** Rendering time in nanoseconds */
+	private final long renderNanos;
+
+	/**
+	 * Constructs the statistics by summing the counters of the rendering threads
+	 *
+	 * @param counters    the counters of the threads
+	 * @param tileTimes   rendering times of the tiles
+	 * @param renderNanos rendering time in nanoseconds
+	 */
+	private RenderStats(List<RayCounters> counters, List<TileTime> tileTimes, long renderNanos) {
+		long primary = 0, shadow = 0, reflection = 0, refraction = 0, voxels = 0, shadings = 0, depthSum = 0;
+		int maxDepth = 0;
+		Map<String, Long> tests = new TreeMap<>();
+		for (RayCounters c : counters) {
+			primary += c.primaryRays;
+			shadow += c.shadowRays;
+			reflection += c.reflectionRays;
+			refraction += c.refractionRays;
+			voxels += c.voxelsVisited;
+			shadings += c.shadings;
+			depthSum += c.depthSum;
+			maxDepth = Math.max(maxDepth, c.maxDepth);
+			for (int i = 0; i < c.intersectionTests.length; ++i)
+				if (c.intersectionTests[i] != 0)
+					tests.merge(RayCounters.geometryClass(i).getSimpleName(), c.intersectionTests[i], Long::sum);
+		}
+		this.primaryRays = primary;
+		this.shadowRays = shadow;
+		this.reflectionRays = reflection;
+		this.refractionRays = refraction;
+		this.voxelsVisited = voxels;
+		this.shadings = shadings;
+		this.depthSum = depthSum;
+		this.maxDepth = maxDepth;
+		this.intersectionTests = Collections.unmodifiableMap(tests);
+		this.tileTimes = Collections.unmodifiableList(tileTimes);
+		this.renderNanos = renderNanos;
+	}
+
+	/**
+	 * Amount of primary (camera) rays
+	 *
+	 * @return the amount
+	 */
+	public long getPrimaryRays() {
+		return primaryRays;
+	}
+
+	/**
+	 * Amount of shadow rays
+	 *
+	 * @return the amount
+	 */
+	public long getShadowRays() {
+		return shadowRays;
+	}
+
+	/**
+	 * Amount of reflection rays
+	 *
+	 * @return the amount
+	 */
+	public long getReflectionRays() {
+		return reflectionRays;
+	}
+
+	/**
+	 * Amount of refraction (transparency) rays
+	 *
+	 * @return the amount
+	 */
+	public long getRefractionRays() {
+		return refractionRays;
+	}
+
+	/**
+	 * Total amount of the traced rays of all kinds
+	 *
+	 * @return the amount
+	 */
+	public long getTotalRays() {
+		return primaryRays + shadowRays + reflectionRays + refractionRays;
+	}
+
+	/**
+	 * Amount of voxels visited by grid traversals
+	 *
+	 * @return the amount
+	 */
+	public long getVoxelsVisited() {
+		return voxelsVisited;
+	}
+
+	/**
+	 * Amount of intersection tests by geometry class (including the tests of
+	 * geometries collections)
+	 *
+	 * @return unmodifiable map from geometry class simple name to the amount of
+	 *         its tests, sorted by the name
+	 */
+	public Map<String, Long> getIntersectionTests() {
+		return intersectionTests;
+	}
+
+	/**
+	 * Total amount of intersection tests
+	 *
+	 * @return the amount
+	 */
+	public long getTotalIntersectionTests() {
+		long total = 0;
+		for (long tests : intersectionTests.values())
+			total += tests;
+		return total;
+	}
+
+	/**
+	 * Average recursion depth of the shaded intersections (1 for an intersection
+	 * of a primary ray)
+	 *
+	 * @return the average depth, 0 if nothing has been shaded
+	 */
+	public double getAverageDepth() {
+		return shadings == 0 ? 0 : (double) depthSum / shadings;
+	}
+
+	/**
+	 * The maximal recursion depth of the shaded intersections
+	 *
+	 * @return the maximal depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Rendering times of the tiles in the order of their completion
+	 *
+	 * @return unmodifiable list of the times, empty if the tiles are not timed
+	 */
+	public List<TileTime> getTileTimes() {
+		return tileTimes;
+	}
+
+	/**
+	 * Rendering time
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getRenderNanos() {
+		return renderNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "Render time:        %.3f s%n", renderNanos / 1e9));
+		sb.append(String.format(Locale.ROOT, "Primary rays:       %d%n", primaryRays));
+		sb.append(String.format(Locale.ROOT, "Shadow rays:        %d%n", shadowRays));
+		sb.append(String.format(Locale.ROOT, "Reflection rays:    %d%n", reflectionRays));
+		sb.append(String.format(Locale.ROOT, "Refraction rays:    %d%n", refractionRays));
+		sb.append(String.format(Locale.ROOT, "Voxels visited:     %d%n", voxelsVisited));
+		sb.append(String.format(Locale.ROOT, "Recursion depth:    %.3f average, %d max%n", getAverageDepth(), maxDepth));
+		sb.append(String.format(Locale.ROOT, "Intersection tests: %d%n", getTotalIntersectionTests()));
+		for (var entry : intersectionTests.entrySet())
+			sb.append(String.format(Locale.ROOT, "  %-18s%d%n", entry.getKey() + ":", entry.getValue()));
+		if (!tileTimes.isEmpty()) {
+			long min = Long.MAX_VALUE, max = 0, sum = 0;
+			for (TileTime time : tileTimes) {
+				min = Math.min(min, time.nanos());
+				max = Math.max(max, time.nanos());
+				sum += time.nanos();
+			}
+			sb.append(String.format(Locale.ROOT, "Tile times:         %.3f ms min, %.3f ms average, %.3f ms max%n",
+					min / 1e6, sum / 1e6 / tileTimes.size(), max / 1e6));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Collector of the statistics of a rendering: it allocates the counters of
+	 * each rendering thread and times the tiles
+	 */
+	static final class Collector {
+		/** The counters of all the rendering threads */
+		private final List<RayCounters> counters = new ArrayList<>();
+		/** The counters of the current thread */
+		private final ThreadLocal<RayCounters> local = ThreadLocal.withInitial(this::newCounters);
+		/** Rendering times of the tiles, null if the tiles are not timed */
+		private final ConcurrentLinkedQueue<TileTime> tileTimes;
+		/** Start time of the rendering */
+		private final long start = System.nanoTime();
+
+		/**
+		 * Start collecting statistics of a rendering
+		 *
+		 * @param tileTiming whether to time the tiles
+		 */
+		Collector(boolean tileTiming) {
+			tileTimes = tileTiming ? new ConcurrentLinkedQueue<>() : null;
+			RayCounters.start();
+		}
+
+		/**
+		 * Allocate counters for the current thread
+		 *
+		 * @return the counters
+		 */
+		private RayCounters newCounters() {
+			RayCounters c = new RayCounters();
+			synchronized (counters) {
+				counters.add(c);
+			}
+			return c;
+		}
+
+		/**
+		 * Start counting by the current thread (before rendering a tile)
+		 *
+		 * @return the start time of the tile if the tiles are timed, otherwise 0
+		 */
+		long bind() {
+			RayCounters.bind(local.get());
+			return tileTimes == null ? 0 : System.nanoTime();
+		}
+
+		/**
+		 * Stop counting by the current thread (after rendering a tile)
+		 *
+		 * @param tile  the rendered tile
+		 * @param start the start time of the tile returned by {@link #bind()}
+		 */
+		void unbind(Tile tile, long start) {
+			if (tileTimes != null)
+				tileTimes.add(new TileTime(tile.x0(), tile.y0(), tile.x1(), tile.y1(), System.nanoTime() - start));
+			RayCounters.bind(null);
+		}
+
+		/**
+		 * Stop collecting and sum the statistics (after all the rendering threads
+		 * are over)
+		 *
+		 * @return the statistics
+		 */
+		RenderStats finish() {
+			RayCounters.finish();
+			synchronized (counters) {
+				return new RenderStats(counters, tileTimes == null ? List.of() : new ArrayList<>(tileTimes),
+						System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package renderer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle of a rendering running in the background (see
+ * {@link Camera#renderImageAsync(double)}). The rendering is cancelled
+ * cooperatively: the camera workers check the cancellation between pixels, so
+ * they stop within a pixel's worth of time, and the image keeps the pixels that
+ * have been rendered so far.<br>
+ * The result of the task is the camera itself, ready for writing the image.
+ */
+public class RenderTask implements Future<Camera> {
+	/** The rendering camera */
+	private final Camera camera;
+	/** The thread running the rendering */
+	private final Thread thread;
+	/** Cancellation flag */
+	private volatile boolean cancelled = false;
+	/** The exception that has terminated the rendering, if any */
+	private volatile Throwable failure = null;
+
+	/**
+	 * Constructs a rendering task (it is not started yet)
+	 * 
+	 * @param camera the rendering camera
+	 * @param render the rendering job
+	 */
+	RenderTask(Camera camera, Runnable render) {
+		this.camera = camera;
+		thread = new Thread(() -> {
+			try {
+				render.run();
+			} catch (Throwable e) {
+				failure = e;
+			}
+		}, "Render");
+	}
+
+	/**
+	 * Starts the rendering
+	 * 
+	 * @return the task itself
+	 */
+	RenderTask start() {
+		thread.start();
+		return this;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (cancelled || !thread.isAlive())
+			return false;
+		cancelled = true;
+		camera.cancelRendering();
+		if (mayInterruptIfRunning)
+			thread.interrupt();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return cancelled || !thread.isAlive();
+	}
+
+	@Override
+	public Camera get() throws InterruptedException, ExecutionException {
+		thread.join();
+		return result();
+	}
+
+	@Override
+	public Camera get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		thread.join(Math.max(1, unit.toMillis(timeout)));
+		if (thread.isAlive())
+			throw new TimeoutException("Rendering has not finished in time");
+		return result();
+	}
+
+	/**
+	 * Waits for the rendering workers to stop (after completion, cancellation or
+	 * time limit) and returns the camera with the pixels rendered so far
+	 * 
+	 * @return the camera
+	 * @throws InterruptedException if the current thread was interrupted while
+	 *                              waiting
+	 */
+	public Camera getPartial() throws InterruptedException {
+		thread.join();
+		return camera;
+	}
+
+	/**
+	 * The progress of the rendering
+	 * 
+	 * @return the part of the work that has been done, between 0 and 1
+	 */
+	public double progress() {
+		return camera.progress();
+	}
+
+	/**
+	 * The result of the completed rendering
+	 * 
+	 * @return the camera
+	 * @throws ExecutionException if the rendering has failed
+	 */
+	private Camera result() throws ExecutionException {
+		if (cancelled)
+			throw new CancellationException("Rendering has been cancelled");
+		if (failure != null)
+			throw new ExecutionException(failure);
+		return camera;
+	}
+
+}
@@ -0,0 +1,85 @@
+package renderer;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import scene.LoaderXml;
+import scene.Scene;
+
+/**
+ * Render farm worker process (see {@link RenderFarm}). The worker connects to
+ * the coordinator, loads the scene and the camera settings it sends, and then
+ * renders the tiles allocated to it one after another and sends their pixels
+ * back, until the coordinator has no more tiles or closes the connection.<br>
+ * Usage: {@code java renderer.RenderWorker <coordinator host> <port>}
+ */
+public class RenderWorker {
+	/** Private constructor to prevent instantiation */
+	private RenderWorker() {
+	}
+
+	/**
+	 * The worker process entry point
+	 *
+	 * @param args the coordinator host name and port
+	 * @throws Exception in case of failure of the worker
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2)
+			throw new IllegalArgumentException("Usage: java renderer.RenderWorker <coordinator host> <port>");
+		try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+			work(socket);
+		}
+	}
+
+	/**
+	 * Render the tiles allocated by the coordinator
+	 *
+	 * @param socket the connection to the coordinator
+	 * @throws Exception in case of failure of loading the scene or of the
+	 *                   connection
+	 */
+	private static void work(Socket socket) throws Exception {
+		var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), RenderFarm.BUFFER_SIZE));
+		var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), RenderFarm.BUFFER_SIZE));
+		if (in.readInt() != RenderFarm.MAGIC)
+			throw new IllegalStateException("The peer is not a render farm coordinator");
+		byte[] xml = new byte[in.readInt()];
+		in.readFully(xml);
+		int threads = in.readInt();
+		Camera camera = Camera.readSettings(in, loadScene(xml), threads);
+
+		try {
+			int x0;
+			while ((x0 = in.readInt()) != RenderFarm.NO_TILE) {
+				int y0 = in.readInt();
+				int x1 = in.readInt();
+				int y1 = in.readInt();
+				for (int rgb : camera.renderRegion(x0, y0, x1, y1))
+					out.writeInt(rgb);
+				out.flush();
+			}
+		} catch (EOFException ignored) {
+			// the coordinator has closed the connection - the rendering is over
+		}
+	}
+
+	/**
+	 * Load the scene from the content of its XML file
+	 *
+	 * @param xml the XML file content
+	 * @return the scene
+	 * @throws Exception in case of failure of loading the scene
+	 */
+	private static Scene loadScene(byte[] xml) throws Exception {
+		Path file = Files.createTempFile("scene", ".xml");
+		try {
+			Files.write(file, xml);
+			return LoaderXml.loadFromXml(file.toString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -3,8 +3,12 @@ package renderer;
 
 import static primitives.Util.alignZero;
 
+import java.util.Collection;
 import java.util.List;
 
+import geometries.Bvh;
+import geometries.Geometries;
+import geometries.Intersectable;
 import geometries.Intersectable.Intersection;
 import lighting.LightSource;
 import primitives.*;
@@ -28,6 +32,19 @@ public class SimpleRayTracer extends RayTracerBase {
 	 */
 	private static final Double3 INITIAL_K = Double3.ONE;
 
+	/**
+	 * The growth of the cost of a refitted bounding volume hierarchy (see
+	 * {@link Bvh#cost(geometries.Intersectable)}) above which it is rebuilt
+	 */
+	private static final double BVH_MAX_DEGRADATION = 1.5;
+
+	/** The split strategy of the bounding volume hierarchy, null if none */
+	private final Bvh.Split bvhSplit;
+	/** The scene geometries the hierarchy is built of */
+	private final Geometries bvhSource;
+	/** The cost of the hierarchy when it was built */
+	private double bvhCost;
+
 	/**
 	 * Constructor - initializes the ray tracer with a given scene.
 	 * 
@@ -35,10 +52,63 @@ public class SimpleRayTracer extends RayTracerBase {
 	 */
 	public SimpleRayTracer(Scene scene) {
 		super(scene);
+		bvhSplit = null;
+		bvhSource = null;
+	}
+
+	/**
+	 * Constructor - initializes the ray tracer with a bounding volume hierarchy
+	 * of the scene geometries (see {@link Bvh#build(Geometries, Bvh.Split)}). The
+	 * tracer traces a copy of the scene (with the same background, ambient light
+	 * and lights) holding the hierarchy, the scene itself is not changed.
+	 * 
+	 * @param scene the scene to be used for ray tracing
+	 * @param split the split strategy of the hierarchy
+	 */
+	public SimpleRayTracer(Scene scene, Bvh.Split split) {
+		super(bvhScene(scene, split));
+		bvhSplit = split;
+		bvhSource = scene.geometries;
+		bvhCost = Bvh.cost(this.scene.geometries);
+	}
+
+	/**
+	 * A copy of a scene (with the same background, ambient light and lights)
+	 * holding a bounding volume hierarchy of the scene geometries
+	 * 
+	 * @param scene the scene
+	 * @param split the split strategy of the hierarchy
+	 * @return the copy of the scene
+	 */
+	static Scene bvhScene(Scene scene, Bvh.Split split) {
+		return new Scene(scene.name) //
+				.setBackground(scene.background) //
+				.setAmbientLight(scene.ambientLight) //
+				.setLights(scene.lights) //
+				.setGeometries(Bvh.build(scene.geometries, split));
+	}
+
+	/**
+	 * Besides dropping the cached boxes, the bounding volume hierarchy (if any) is
+	 * refitted to the moved geometries, and it is rebuilt once its cost has grown
+	 * by half since it was built
+	 */
+	@Override
+	public void refit(Collection<? extends Intersectable> moved) {
+		super.refit(moved);
+		if (bvhSplit == null || moved.isEmpty())
+			return;
+		if (Bvh.cost(scene.geometries) > BVH_MAX_DEGRADATION * bvhCost) {
+			scene.setGeometries(Bvh.build(bvhSource, bvhSplit));
+			bvhCost = Bvh.cost(scene.geometries);
+		}
 	}
 
 	@Override
 	public Color traceRay(Ray ray) {
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			++counters.primaryRays;
 		Intersection intersections = findClosestIntersection(ray);
 		return intersections == null ? scene.background : calcColor(intersections, ray);
 	}
@@ -77,7 +147,8 @@ public class SimpleRayTracer extends RayTracerBase {
 	 */
 	private boolean preprocessIntersection(Intersection intersection, Vector v) {
 		intersection.v = v;
-		intersection.normal = intersection.geometry.getNormal(intersection.point);
+		if (intersection.normal == null)
+			intersection.normal = intersection.geometry.getNormal(intersection.point);
 		intersection.vNormal = alignZero(intersection.v.dotProduct(intersection.normal));
 		return intersection.vNormal != 0;
 	}
@@ -140,9 +211,13 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @return the specular color component
 	 */
 	private Double3 calcSpecular(Intersection intersection) {
-		Vector minusV = intersection.v.scale(-1);
-		Vector r = intersection.l.subtract(intersection.normal.scale(2 * intersection.lNormal));
-		double minusVR = alignZero(minusV.dotProduct(r));
+		// r = l - 2 * (l * n) * n, computed in primitive doubles
+		Vector v = intersection.v, l = intersection.l, n = intersection.normal;
+		double scale = 2 * intersection.lNormal;
+		double rX = l.getX() - n.getX() * scale;
+		double rY = l.getY() - n.getY() * scale;
+		double rZ = l.getZ() - n.getZ() * scale;
+		double minusVR = alignZero(-v.getX() * rX + -v.getY() * rY + -v.getZ() * rZ);
 		return minusVR <= 0 ? Double3.ZERO
 				: intersection.material.kS.scale(Math.pow(minusVR, intersection.material.nShininess));
 	}
@@ -156,6 +231,9 @@ public class SimpleRayTracer extends RayTracerBase {
 	protected Double3 transparency(Intersection intersection) {
 		Double3 ktr = Double3.ONE;
 		Ray shadowRay = new Ray(intersection.point, intersection.l.scale(-1), intersection.normal);
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			++counters.shadowRays;
 		var intersections = calculateIntersections(shadowRay, intersection.light.getDistance(intersection.point));
 		if (intersections == null)
 			return ktr;
@@ -172,18 +250,26 @@ public class SimpleRayTracer extends RayTracerBase {
 	/**
 	 * Calculates the global effects (reflection and transparency) at a given ray.
 	 * 
-	 * @param ray   the ray to be traced
-	 * @param level the current recursion level
-	 * @param k     the color factor for the current level
-	 * @param kx    the color factor for the global effects (reflection and
-	 *              transparency)
+	 * @param ray        the ray to be traced
+	 * @param level      the current recursion level
+	 * @param k          the color factor for the current level
+	 * @param kx         the color factor for the global effects (reflection and
+	 *                   transparency)
+	 * @param reflection whether the ray is a reflection ray (otherwise it is a
+	 *                   refraction ray)
 	 * @return the color resulting from global effects
 	 * 
 	 */
-	private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
+	private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx, boolean reflection) {
 		Double3 kkx = k.product(kx);
 		if (kkx.lowerThan(MIN_CALC_COLOR_K))
 			return Color.BLACK;
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			if (reflection)
+				++counters.reflectionRays;
+			else
+				++counters.refractionRays;
 		Intersection intersection = findClosestIntersection(ray);
 		if (intersection == null)
 			return Color.BLACK.scale(kx);
@@ -203,10 +289,12 @@ public class SimpleRayTracer extends RayTracerBase {
 	private Color calcGlobalEffects(Intersection intersection, int level, Double3 k) {
 		return calcRayBeamColor(level, k, intersection.material.kT, //
 				constructBeamdRays(constructTransparencydRay(intersection), intersection.material.tAngle,
-						intersection.normal)) //
+						intersection.normal),
+				false) //
 				.add(calcRayBeamColor(level, k, intersection.material.kR, //
 						constructBeamdRays(constructReflectedRay(intersection), intersection.material.rAngle,
-								intersection.normal)));
+								intersection.normal),
+						true));
 	}
 
 	/**
@@ -218,6 +306,9 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @return the color at the intersection point
 	 */
 	private Color calcColor(Intersection intersection, int level, Double3 k) {
+		RayCounters counters = RayCounters.current();
+		if (counters != null)
+			counters.shading(MAX_CALC_COLOR_LEVEL - level + 1);
 		Color color = calcColorLocalEffects(intersection, k);
 		return level == 1 ? color : color.add(calcGlobalEffects(intersection, level, k));
 	}
@@ -267,20 +358,22 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * Calculates the color of a ray beam based on the reflection coefficient and
 	 * the normal vector.
 	 * 
-	 * @param level the current recursion level
-	 * @param k     the recursion coefficient
-	 * @param kX    the transparency or reflection coefficient
-	 * @param rays  the list of rays in the beam
+	 * @param level      the current recursion level
+	 * @param k          the recursion coefficient
+	 * @param kX         the transparency or reflection coefficient
+	 * @param rays       the list of rays in the beam
+	 * @param reflection whether the rays are reflection rays (otherwise they are
+	 *                   refraction rays)
 	 * @return the color of the ray beam
 	 */
-	private Color calcRayBeamColor(int level, Double3 k, Double3 kX, List<Ray> rays) {
+	private Color calcRayBeamColor(int level, Double3 k, Double3 kX, List<Ray> rays, boolean reflection) {
 		int size = rays.size();
 		if (size == 1)
-			return calcGlobalEffect(rays.getFirst(), level, k, kX);
+			return calcGlobalEffect(rays.getFirst(), level, k, kX, reflection);
 
 		Color color = Color.BLACK;
 		for (Ray rT : rays)
-			color = color.add(calcGlobalEffect(rT, level, k, kX));
+			color = color.add(calcGlobalEffect(rT, level, k, kX, reflection));
 		return color.reduce(size);
 	}
 
@@ -30,6 +30,8 @@ public class LoaderXml {
 	 * @throws Exception if there is an error during file parsing
 	 */
 	public static Scene loadFromXml(String filePath) throws Exception {
+		SceneLoadEvent event = new SceneLoadEvent();
+		event.begin();
 		// Create a Document object for parsing the XML file
 		File file = new File(filePath);
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -78,7 +80,10 @@ public class LoaderXml {
 
 		scene.setGeometries(geometries);
 
-		NodeList lightsNodes = geometriesElement.getChildNodes();
+		// the lights are in the lights element, or among the geometries if there is
+		// no such element
+		Element lightsElement = (Element) document.getElementsByTagName("lights").item(0);
+		NodeList lightsNodes = (lightsElement != null ? lightsElement : geometriesElement).getChildNodes();
 
 		List<LightSource> lights = new LinkedList<>();
 
@@ -102,6 +107,10 @@ public class LoaderXml {
 
 		scene.setLights(lights);
 
+		event.file = filePath;
+		event.geometries = geometries.getGeometries().size();
+		event.lights = lights.size();
+		event.commit();
 		return scene;
 
 	}
@@ -34,6 +34,12 @@ public class Scene {
 	 */
 	public Geometries geometries = new Geometries();
 
+	/**
+	 * Whether the rays are culled by the bounding boxes of all the geometries
+	 * collections of the scene (see {@link Geometries#setCbr(boolean, boolean)})
+	 */
+	public boolean cbr = false;
+
 	/**
 	 * The list of light sources in the scene. Defaults to an empty collection.
 	 */
@@ -78,6 +84,22 @@ public class Scene {
 	 */
 	public Scene setGeometries(Geometries geometries) {
 		this.geometries = geometries;
+		if (cbr)
+			geometries.setCbr(true, true);
+		return this;
+	}
+
+	/**
+	 * Enable or disable the culling of the rays by the bounding boxes of all the
+	 * geometries collections of the scene - including the collections added later
+	 * (conservative bounding region, see {@link Geometries#setCbr(boolean)})
+	 *
+	 * @param cbr whether to cull the rays
+	 * @return the scene object itself (for method chaining)
+	 */
+	public Scene setCbr(boolean cbr) {
+		this.cbr = cbr;
+		geometries.setCbr(cbr, true);
 		return this;
 	}
 
@@ -0,0 +1,448 @@
+package scene;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+
+/**
+ * Procedural scene generator for benchmarks and scaling studies. It generates
+ * scenes of a controllable size and distribution of primitives:
+ * <ul>
+ * <li>random spheres</li>
+ * <li>tessellated surfaces - triangle meshes of spheres</li>
+ * <li>uniform or clustered layout of the primitives in a cubic region</li>
+ * <li>mixed sizes - a part of the primitives may be large</li>
+ * </ul>
+ * The generation is deterministic by the seed - the same settings produce the
+ * same scene, either as Java objects ({@link #generate(String)}) or as an XML
+ * file ({@link #writeXml(String)}) which is loaded by {@link LoaderXml}.<br>
+ * The scene is lit by ambient light and a point light above the region.
+ */
+public class SceneGenerator {
+	/** Layout of the primitives in the region */
+	private enum Layout {
+		/** The primitives are spread uniformly in the region */
+		UNIFORM,
+		/** The primitives are gathered in clusters around random centers */
+		CLUSTERED
+	}
+
+	/**
+	 * Receiver of the generated scene elements (for building the scene objects or
+	 * for writing the XML)
+	 */
+	private interface Output {
+		/**
+		 * Receive a sphere
+		 *
+		 * @param center   the center
+		 * @param radius   the radius
+		 * @param emission the emission color
+		 */
+		void sphere(double[] center, double radius, double[] emission);
+
+		/**
+		 * Receive a triangle
+		 *
+		 * @param p0       first vertex
+		 * @param p1       second vertex
+		 * @param p2       third vertex
+		 * @param emission the emission color
+		 */
+		void triangle(double[] p0, double[] p1, double[] p2, double[] emission);
+	}
+
+	/** Diffusive attenuation factor of the primitives material */
+	private static final double KD = 0.5;
+	/** Specular attenuation factor of the primitives material */
+	private static final double KS = 0.5;
+	/** Shininess of the primitives material */
+	private static final int SHININESS = 30;
+	/** Ambient light color */
+	private static final double AMBIENT = 30;
+	/** Point light intensity */
+	private static final double LIGHT = 400;
+
+	/** The seed of the generation */
+	private final long seed;
+	/** Amount of spheres */
+	private int spheres = 0;
+	/** Amount of triangles */
+	private int triangles = 0;
+	/** Layout of the primitives */
+	private Layout layout = Layout.UNIFORM;
+	/** Amount of clusters of clustered layout */
+	private int clusters = 8;
+	/** Standard deviation of a cluster relatively to the region half size */
+	private double spread = 0.1;
+	/** The center of the region */
+	private double[] center = { 0, 0, -200 };
+	/** Half of the region size */
+	private double halfSize = 100;
+	/** Minimal primitive size (sphere radius) */
+	private double minSize = 1;
+	/** Maximal primitive size (sphere radius) */
+	private double maxSize = 3;
+	/** The part of the primitives which are large */
+	private double largeFraction = 0;
+	/** Size factor of the large primitives */
+	private double largeScale = 10;
+	/** Amount of stacks (latitude divisions) of a tessellated sphere */
+	private int stacks = 4;
+	/** Amount of slices (longitude divisions) of a tessellated sphere */
+	private int slices = 8;
+	/** Flag of a floor plane under the region */
+	private boolean floor = false;
+
+	/**
+	 * Constructs scene generator
+	 *
+	 * @param seed the seed of the generation
+	 */
+	public SceneGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Set the amount of random spheres
+	 *
+	 * @param count amount of spheres
+	 * @return the generator itself
+	 */
+	public SceneGenerator setSpheres(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Amount of spheres must be non-negative");
+		spheres = count;
+		return this;
+	}
+
+	/**
+	 * Set the amount of triangles of tessellated surfaces (they are generated as
+	 * tessellated spheres, the last one may be partial)
+	 *
+	 * @param count amount of triangles
+	 * @return the generator itself
+	 */
+	public SceneGenerator setTriangles(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Amount of triangles must be non-negative");
+		triangles = count;
+		return this;
+	}
+
+	/**
+	 * Set uniform layout of the primitives
+	 *
+	 * @return the generator itself
+	 */
+	public SceneGenerator setUniform() {
+		layout = Layout.UNIFORM;
+		return this;
+	}
+
+	/**
+	 * Set clustered layout of the primitives: they are spread normally around
+	 * random cluster centers
+	 *
+	 * @param count  amount of clusters
+	 * @param spread standard deviation of a cluster relatively to the region half
+	 *               size
+	 * @return the generator itself
+	 */
+	public SceneGenerator setClustered(int count, double spread) {
+		if (count < 1 || spread <= 0)
+			throw new IllegalArgumentException("Clusters amount and spread must be positive");
+		layout = Layout.CLUSTERED;
+		clusters = count;
+		this.spread = spread;
+		return this;
+	}
+
+	/**
+	 * Set the cubic region of the primitives
+	 *
+	 * @param center   the center of the region
+	 * @param halfSize half of the region size
+	 * @return the generator itself
+	 */
+	public SceneGenerator setRegion(Double3 center, double halfSize) {
+		if (halfSize <= 0)
+			throw new IllegalArgumentException("Region size must be positive");
+		this.center = new double[] { center.d1(), center.d2(), center.d3() };
+		this.halfSize = halfSize;
+		return this;
+	}
+
+	/**
+	 * Set the range of the primitives sizes (sphere radius, or radius of a
+	 * tessellated sphere)
+	 *
+	 * @param min minimal size
+	 * @param max maximal size
+	 * @return the generator itself
+	 */
+	public SceneGenerator setSize(double min, double max) {
+		if (min <= 0 || max < min)
+			throw new IllegalArgumentException("Illegal primitives size range");
+		minSize = min;
+		maxSize = max;
+		return this;
+	}
+
+	/**
+	 * Set mixed sizes of the primitives - a part of them is scaled up
+	 *
+	 * @param fraction the part of the primitives which are large, between 0 and 1
+	 * @param scale    size factor of the large primitives
+	 * @return the generator itself
+	 */
+	public SceneGenerator setLarge(double fraction, double scale) {
+		if (fraction < 0 || fraction > 1 || scale < 1)
+			throw new IllegalArgumentException("Illegal large primitives setting");
+		largeFraction = fraction;
+		largeScale = scale;
+		return this;
+	}
+
+	/**
+	 * Set the tessellation of the tessellated spheres, each of them has
+	 * {@code slices * (2 * stacks - 2)} triangles
+	 *
+	 * @param stacks amount of latitude divisions (at least 2)
+	 * @param slices amount of longitude divisions (at least 3)
+	 * @return the generator itself
+	 */
+	public SceneGenerator setTessellation(int stacks, int slices) {
+		if (stacks < 2 || slices < 3)
+			throw new IllegalArgumentException("Tessellation must have at least 2 stacks and 3 slices");
+		this.stacks = stacks;
+		this.slices = slices;
+		return this;
+	}
+
+	/**
+	 * Set a floor plane under the region (it is an infinite geometry)
+	 *
+	 * @param floor true for a floor
+	 * @return the generator itself
+	 */
+	public SceneGenerator setFloor(boolean floor) {
+		this.floor = floor;
+		return this;
+	}
+
+	/**
+	 * Generate the scene as Java objects
+	 *
+	 * @param name the scene name
+	 * @return the scene
+	 */
+	public Scene generate(String name) {
+		Scene scene = new Scene(name).setAmbientLight(new AmbientLight(new Color(AMBIENT, AMBIENT, AMBIENT)));
+		Material material = new Material().setKD(KD).setKS(KS).setShininess(SHININESS);
+		generate(new Output() {
+			@Override
+			public void sphere(double[] c, double radius, double[] emission) {
+				scene.geometries.add(new Sphere(new Point(c[0], c[1], c[2]), radius) //
+						.setEmission(new Color(emission[0], emission[1], emission[2])).setMaterial(material));
+			}
+
+			@Override
+			public void triangle(double[] p0, double[] p1, double[] p2, double[] emission) {
+				scene.geometries.add(new Triangle(new Point(p0[0], p0[1], p0[2]), new Point(p1[0], p1[1], p1[2]),
+						new Point(p2[0], p2[1], p2[2])) //
+						.setEmission(new Color(emission[0], emission[1], emission[2])).setMaterial(material));
+			}
+		});
+		if (floor)
+			scene.geometries.add(new Plane(new Point(0, floorHeight(), 0), Vector.AXIS_Y) //
+					.setMaterial(material));
+		double[] light = lightPosition();
+		scene.lights.add(new PointLight(new Color(LIGHT, LIGHT, LIGHT), new Point(light[0], light[1], light[2])));
+		return scene;
+	}
+
+	/**
+	 * Generate the scene into an XML file (in {@link LoaderXml} format)
+	 *
+	 * @param fileName the file name
+	 */
+	public void writeXml(String fileName) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(fileName)))) {
+			String materialAttributes = " material=\"true\" kD=\"" + triad(KD, KD, KD) + "\" kS=\""
+					+ triad(KS, KS, KS) + "\" shininess=\"" + SHININESS + "\"";
+			out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			out.println("<scene background-color=\"0 0 0\">");
+			out.println("\t<ambient-light color=\"" + triad(AMBIENT, AMBIENT, AMBIENT) + "\" />");
+			out.println("\t<geometries>");
+			generate(new Output() {
+				@Override
+				public void sphere(double[] c, double radius, double[] emission) {
+					out.println("\t\t<sphere center=\"" + triad(c) + "\" radius=\"" + number(radius)
+							+ "\" emission=\"" + triad(emission) + "\"" + materialAttributes + " />");
+				}
+
+				@Override
+				public void triangle(double[] p0, double[] p1, double[] p2, double[] emission) {
+					out.println("\t\t<triangle p0=\"" + triad(p0) + "\" p1=\"" + triad(p1) + "\" p2=\"" + triad(p2)
+							+ "\" emission=\"" + triad(emission) + "\"" + materialAttributes + " />");
+				}
+			});
+			if (floor)
+				out.println("\t\t<plane p=\"" + triad(0, floorHeight(), 0)
+						+ "\" normal=\"0 1 0\"" + materialAttributes + " />");
+			out.println("\t</geometries>");
+			out.println("\t<lights>");
+			out.println("\t\t<pointLight intensity=\"" + triad(LIGHT, LIGHT, LIGHT) + "\" position=\""
+					+ triad(lightPosition()) + "\" />");
+			out.println("\t</lights>");
+			out.println("</scene>");
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write scene " + fileName, e);
+		}
+	}
+
+	/**
+	 * Generate the primitives
+	 *
+	 * @param output the receiver of the primitives
+	 */
+	private void generate(Output output) {
+		Random random = new Random(seed);
+		double[][] centers = new double[clusters][];
+		for (int i = 0; i < clusters; ++i)
+			centers[i] = uniform(random);
+
+		for (int i = 0; i < spheres; ++i)
+			output.sphere(position(random, centers), size(random), emission(random));
+
+		int left = triangles;
+		while (left > 0) {
+			double[] c = position(random, centers);
+			double radius = size(random);
+			double[] emission = emission(random);
+			double[][][] vertices = new double[stacks + 1][slices][];
+			for (int i = 0; i <= stacks; ++i)
+				for (int j = 0; j < slices; ++j) {
+					double theta = Math.PI * i / stacks;
+					double phi = 2 * Math.PI * j / slices;
+					vertices[i][j] = new double[] { c[0] + radius * Math.sin(theta) * Math.cos(phi),
+							c[1] + radius * Math.cos(theta), c[2] + radius * Math.sin(theta) * Math.sin(phi) };
+				}
+			for (int i = 0; i < stacks && left > 0; ++i)
+				for (int j = 0; j < slices && left > 0; ++j) {
+					int k = (j + 1) % slices;
+					// no degenerate triangles at the poles
+					if (i != stacks - 1) {
+						output.triangle(vertices[i][j], vertices[i + 1][j], vertices[i + 1][k], emission);
+						--left;
+					}
+					if (i != 0 && left > 0) {
+						output.triangle(vertices[i][j], vertices[i + 1][k], vertices[i][k], emission);
+						--left;
+					}
+				}
+		}
+	}
+
+	/**
+	 * Random position in the region according to the layout
+	 *
+	 * @param random  the random numbers generator
+	 * @param centers the clusters centers
+	 * @return the position
+	 */
+	private double[] position(Random random, double[][] centers) {
+		if (layout == Layout.UNIFORM)
+			return uniform(random);
+		double[] cluster = centers[random.nextInt(clusters)];
+		double[] position = new double[3];
+		for (int i = 0; i < 3; ++i)
+			position[i] = Math.clamp(cluster[i] + random.nextGaussian() * spread * halfSize, center[i] - halfSize,
+					center[i] + halfSize);
+		return position;
+	}
+
+	/**
+	 * Random position in the region by uniform distribution
+	 *
+	 * @param random the random numbers generator
+	 * @return the position
+	 */
+	private double[] uniform(Random random) {
+		double[] position = new double[3];
+		for (int i = 0; i < 3; ++i)
+			position[i] = center[i] + (random.nextDouble() * 2 - 1) * halfSize;
+		return position;
+	}
+
+	/**
+	 * Random primitive size
+	 *
+	 * @param random the random numbers generator
+	 * @return the size
+	 */
+	private double size(Random random) {
+		double size = minSize + random.nextDouble() * (maxSize - minSize);
+		return random.nextDouble() < largeFraction ? size * largeScale : size;
+	}
+
+	/**
+	 * Random emission color
+	 *
+	 * @param random the random numbers generator
+	 * @return the color components
+	 */
+	private static double[] emission(Random random) {
+		return new double[] { random.nextInt(100), random.nextInt(100), random.nextInt(100) };
+	}
+
+	/**
+	 * The height of the floor plane - under the lowest possible primitive
+	 *
+	 * @return the height
+	 */
+	private double floorHeight() {
+		return center[1] - halfSize - (largeFraction > 0 ? maxSize * largeScale : maxSize);
+	}
+
+	/**
+	 * The position of the point light - above the region
+	 *
+	 * @return the position
+	 */
+	private double[] lightPosition() {
+		return new double[] { center[0] + halfSize, center[1] + 2 * halfSize, center[2] + 2 * halfSize };
+	}
+
+	/**
+	 * Format a triad of numbers for XML
+	 *
+	 * @param values the numbers
+	 * @return the formatted triad
+	 */
+	private static String triad(double... values) {
+		return number(values[0]) + " " + number(values[1]) + " " + number(values[2]);
+	}
+
+	/**
+	 * Format a number for XML - exactly, without exponent (as {@link LoaderXml}
+	 * requires)
+	 *
+	 * @param value the number
+	 * @return the formatted number
+	 */
+	private static String number(double value) {
+		return BigDecimal.valueOf(value).toPlainString();
+	}
+}
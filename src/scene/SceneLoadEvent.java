@@ -0,0 +1,31 @@
+package scene;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of loading a scene from a file (see
+ * {@link LoaderXml#loadFromXml(String)}) - recorded together with the events of
+ * the other rendering phases (see {@code renderer.RenderEvents}), under the
+ * same category.
+ */
+@Name("raytracer.SceneLoad")
+@Label("Scene Load")
+@Category("Ray Tracer")
+@Description("Loading of a scene from a file")
+@StackTrace(false)
+public final class SceneLoadEvent extends Event {
+	/** The scene file */
+	@Label("File")
+	public String file;
+	/** Amount of the geometries of the scene */
+	@Label("Geometries")
+	public int geometries;
+	/** Amount of the light sources of the scene */
+	@Label("Lights")
+	public int lights;
+}
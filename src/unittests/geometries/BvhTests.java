@@ -0,0 +1,87 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Tests for the bounding volume hierarchy builder {@link geometries.Bvh}
+ */
+class BvhTests {
+	/** Order of points for comparing intersections regardless of their order */
+	private static final Comparator<Point> POINT_ORDER = Comparator.comparingDouble(Point::getX)
+			.thenComparingDouble(Point::getY).thenComparingDouble(Point::getZ);
+
+	/**
+	 * Random scene of spheres and triangles in nested collections, with a plane
+	 *
+	 * @return the geometries
+	 */
+	private static Geometries scene() {
+		Random random = new Random(7);
+		Geometries geometries = new Geometries(new Plane(new Point(0, -60, 0), new Vector(0, 1, 0)));
+		Geometries group = new Geometries();
+		for (int i = 0; i < 150; ++i) {
+			Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+					random.nextDouble() * 100 - 150);
+			if (i % 2 == 0)
+				geometries.add(new Sphere(p, 1 + random.nextDouble() * 3));
+			else
+				group.add(new Triangle(p, p.add(new Vector(5, 0, 1)), p.add(new Vector(0, 5, -1))));
+		}
+		geometries.add(group);
+		return geometries;
+	}
+
+	/**
+	 * Sort intersection points
+	 *
+	 * @param points the points, may be null
+	 * @return sorted points, null for null
+	 */
+	private static List<Point> sorted(List<Point> points) {
+		return points == null ? null : points.stream().sorted(POINT_ORDER).toList();
+	}
+
+	/**
+	 * Test method for {@link geometries.Bvh#build(Geometries, Bvh.Split)}.
+	 */
+	@Test
+	void testBuild() {
+		Geometries flat = scene();
+		Random random = new Random(11);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Hierarchy has the same intersections as the flat collection
+		for (Bvh.Split split : Bvh.Split.values()) {
+			Geometries bvh = Bvh.build(flat, split);
+			for (int i = 0; i < 500; ++i) {
+				Ray ray = new Ray(Point.ZERO, new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+				assertEquals(sorted(flat.findIntersections(ray)), sorted(bvh.findIntersections(ray)),
+						split + " hierarchy intersections differ from the flat ones");
+			}
+			// TC02: Unbounded geometry is kept beside the hierarchy root
+			assertEquals(2, bvh.getGeometries().size(), split + " root must hold the hierarchy and the plane");
+			assertTrue(bvh.getGeometries().stream().anyMatch(g -> g instanceof Plane),
+					split + " plane must be kept at the root");
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Single geometry
+		Sphere sphere = new Sphere(new Point(0, 0, -10), 1d);
+		assertEquals(List.of(sphere), Bvh.build(new Geometries(sphere), Bvh.Split.SAH).getGeometries(),
+				"Single geometry must not be wrapped");
+		// TC11: Empty collection
+		assertTrue(Bvh.build(new Geometries(), Bvh.Split.MEDIAN).getGeometries().isEmpty(),
+				"Empty collection must give empty hierarchy");
+	}
+}
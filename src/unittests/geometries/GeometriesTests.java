@@ -10,6 +10,8 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import geometries.*;
+import geometries.Intersectable.Intersection;
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -94,4 +96,54 @@ class GeometriesTests {
 		assertEquals(4, result.size(), "all geometries are intersected");
 	}
 
+	/**
+	 * Test method for {@link geometries.Geometries#setCbr(boolean)}.
+	 */
+	@Test
+	void testCbr() {
+		int[] tests = { 0 };
+		// a unit cube geometry which counts its intersection tests
+		Intersectable counted = new Intersectable() {
+			@Override
+			protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+				++tests[0];
+				return null;
+			}
+
+			@Override
+			public List<Double3> getEdges() {
+				return List.of(new Double3(0, 0, 0), new Double3(1, 1, 1));
+			}
+		};
+		Geometries bounded = new Geometries(counted, new Sphere(new Point(0.5, 0.5, 0.5), 0.5)).setCbr(true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray misses the box - the geometries are not tested
+		assertNull(bounded.findIntersections(new Ray(new Point(5, 5, -5), new Vector(0, 0, 1))),
+				"Culled ray must have no intersections");
+		assertEquals(0, tests[0], "Culled ray must not be tested against the geometries");
+		// TC02: Ray hits the box - same intersections as without culling
+		Ray ray = new Ray(new Point(0.5, 0.5, -5), new Vector(0, 0, 1));
+		assertEquals(List.of(new Point(0.5, 0.5, 0), new Point(0.5, 0.5, 1)), bounded.findIntersections(ray),
+				"Wrong intersections of a ray through the box");
+		assertEquals(1, tests[0], "Ray through the box must be tested against the geometries");
+		// TC03: Box is beyond the maximal distance
+		assertNull(bounded.calculateIntersections(ray, 4), "Box beyond the maximal distance must be culled");
+		assertEquals(1, tests[0], "Ray culled by distance must not be tested against the geometries");
+		// TC04: Geometry added after the box was cached enlarges the box
+		bounded.add(new Sphere(new Point(5, 5, 0), 1d));
+		assertEquals(2, bounded.findIntersections(new Ray(new Point(5, 5, -5), new Vector(0, 0, 1))).size(),
+				"Added geometry must be inside the box");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Collection with an unbounded geometry (nested) is not culled
+		Geometries unbounded = new Geometries(new Geometries(plane), sphere).setCbr(true, true);
+		assertEquals(1, unbounded.findIntersections(new Ray(new Point(100, 100, 5), new Vector(0, 0, -1))).size(),
+				"Unbounded collection must not be culled");
+		// TC11: Nested collection added later inherits the scene-wide setting
+		Geometries nested = new Geometries();
+		unbounded.add(nested);
+		assertTrue(nested.isCbr(), "Nested collection added later must be culled");
+	}
+
 }
@@ -0,0 +1,53 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Instance;
+import geometries.Intersectable.Intersection;
+import geometries.Sphere;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+/**
+ * Testing Instance Class
+ */
+class InstanceTests {
+	/** Tolerance of the coordinates comparison */
+	private static final double DELTA = 1e-10;
+
+	/**
+	 * Test method for {@link geometries.Instance#calculateIntersections(Ray)}.
+	 */
+	@Test
+	void testCalculateIntersections() {
+		// a unit sphere scaled to an ellipsoid (radii 2, 1, 1) and moved to (10,0,0)
+		Sphere sphere = new Sphere(Point.ZERO, 1d);
+		Instance instance = new Instance(sphere,
+				Transform.scaling(2, 1, 1).then(Transform.translation(new Vector(10, 0, 0))));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray along the long axis hits both ends with the transformed normals
+		Ray ray = new Ray(Point.ZERO, Vector.AXIS_X);
+		var intersections = instance.calculateIntersections(ray);
+		assertEquals(2, intersections.size(), "TC01: Wrong number of intersections");
+		Intersection closest = ray.findClosestIntersection(intersections);
+		assertEquals(0, closest.point.distance(new Point(8, 0, 0)), DELTA, "TC01: Wrong intersection point");
+		assertEquals(sphere, closest.geometry, "TC01: The intersected geometry must be the prototype");
+		assertEquals(0, closest.normal.distance(new Vector(-1, 0, 0)), DELTA, "TC01: Wrong normal");
+		// TC02: Ray missing the instance (but hitting the untransformed prototype)
+		assertNull(instance.calculateIntersections(new Ray(new Point(0, 0, -5), Vector.AXIS_Z)),
+				"TC02: Ray must miss the instance");
+		// TC03: Bounding box of the instance
+		assertEquals(new Double3(8, -1, -1), instance.getEdges().get(0), "TC03: Wrong bounding box");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Distance limit measured in the scene space (not in the prototype space)
+		assertEquals(1, instance.calculateIntersections(ray, 10).size(), "TC10: Wrong limited intersections");
+		assertNull(instance.calculateIntersections(ray, 7.9), "TC10: Intersections beyond the limit");
+	}
+}
@@ -184,4 +184,22 @@ class PlaneTests {
 		Ray ray6 = new Ray(new Point(0, 0, -1), new Vector(0, 0, -1));
 		assertNull(plane.calculateIntersections(ray6, 5.0), "TC6: Expected no intersection (wrong direction)");
 	}
+
+	/**
+	 * Test method for {@link geometries.Plane#intersectsBox}.
+	 */
+	@Test
+	void testIntersectsBox() {
+		Plane plane = new Plane(new Point(0, 0, 0), new Vector(1, 1, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A box crossed by the plane
+		assertTrue(plane.intersectsBox(-1, -1, -1, 1, 1, 1), "TC01: the box is crossed by the plane");
+		// TC02: A box at one side of the plane
+		assertFalse(plane.intersectsBox(1, 1, -1, 2, 2, 1), "TC02: the box is not crossed by the plane");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: A box touching the plane by an edge
+		assertTrue(plane.intersectsBox(0, 0, -1, 1, 1, 1), "TC10: the box touches the plane");
+	}
 }
@@ -129,4 +129,31 @@ class TriangleTests {
 		assertNull(triangle.calculateIntersections(ray6, 1.0),
 				"TC6: Expected no intersection due to very large distance");
 	}
+
+	/**
+	 * Test method for {@link geometries.Polygon#intersectsBox}.
+	 */
+	@Test
+	void testIntersectsBox() {
+		// a long diagonal triangle through the unit cubes along the x=y diagonal
+		Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(4, 4, 0), new Point(4, 4, 1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A box on the diagonal
+		assertTrue(triangle.intersectsBox(1, 1, 0, 2, 2, 1), "TC01: the box on the diagonal is intersected");
+		// TC02: A box inside the bounding box but off the diagonal (separated by an
+		// edge-axis cross product)
+		assertFalse(triangle.intersectsBox(2.5, 0, 0, 3.5, 1, 1), "TC02: the box off the diagonal is not intersected");
+		// TC03: A box on the diagonal but beyond the triangle plane extent
+		assertFalse(triangle.intersectsBox(0.5, 0.5, 2, 1, 1, 3), "TC03: the box above the triangle is not intersected");
+		// TC04: A box containing the whole triangle
+		assertTrue(triangle.intersectsBox(-1, -1, -1, 5, 5, 2), "TC04: the box containing the triangle is intersected");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: A box touching the triangle by a corner
+		assertTrue(triangle.intersectsBox(4, 4, 0, 5, 5, 1), "TC10: the box touching a vertex is intersected");
+		// TC11: A flat triangle against a box parallel to its plane
+		Triangle flat = new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0));
+		assertFalse(flat.intersectsBox(0.6, 0.6, -1, 1, 1, 1), "TC11: the box beyond the hypotenuse is not intersected");
+	}
 }
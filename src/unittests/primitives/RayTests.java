@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -68,4 +69,41 @@ class RayTests {
 		List<Point> pointsLastClosest = List.of(new Point(3, 0, 0), new Point(4, 0, 0), new Point(0.5, 0, 0));
 		assertEquals(result, ray.findClosestPoint(pointsLastClosest), "BVA case - closest point is last");
 	}
+
+	/**
+	 * Test method for {@link primitives.Ray#intersectBox(Double3, Double3, double)}.
+	 */
+	@Test
+	public void testIntersectBox() {
+		Double3 min = new Double3(-1, -1, -1);
+		Double3 max = new Double3(1, 1, 1);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray enters the box
+		assertEquals(2, new Ray(new Point(0, 0, 3), new Vector(0, 0, -1)).intersectBox(min, max, 10), 1e-10,
+				"Wrong entry distance");
+		// TC02: Ray with negative and positive components enters the box
+		assertEquals(Math.sqrt(3), new Ray(new Point(-2, 2, -2), new Vector(1, -1, 1)).intersectBox(min, max, 10),
+				1e-10, "Wrong entry distance of a diagonal ray");
+		// TC03: Head inside the box
+		assertEquals(0, new Ray(new Point(0.5, 0, 0), new Vector(1, 2, 3)).intersectBox(min, max, 10), 1e-10,
+				"Head inside the box must enter at 0");
+		// TC04: Ray misses the box
+		assertTrue(new Ray(new Point(0, 3, 3), new Vector(0, 0, -1)).intersectBox(min, max, 10) < 0,
+				"Ray passes beside the box");
+		// TC05: Box is behind the ray
+		assertTrue(new Ray(new Point(0, 0, 3), new Vector(0, 0, 1)).intersectBox(min, max, 10) < 0,
+				"Box behind the ray");
+		// TC06: Box is beyond the maximal distance
+		assertTrue(new Ray(new Point(0, 0, 3), new Vector(0, 0, -1)).intersectBox(min, max, 1) < 0,
+				"Box beyond the maximal distance");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Ray parallel to a face of the box and starting on its plane
+		assertEquals(2, new Ray(new Point(-3, 1, 0), new Vector(1, 0, 0)).intersectBox(min, max, 10), 1e-10,
+				"Ray along a face plane");
+		// TC11: Ray parallel to an axis outside the slab
+		assertTrue(new Ray(new Point(-3, 2, 0), new Vector(1, 0, 0)).intersectBox(min, max, 10) < 0,
+				"Parallel ray outside the slab");
+	}
 }
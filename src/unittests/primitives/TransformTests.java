@@ -0,0 +1,56 @@
+package unittests.primitives;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Transform;
+import primitives.Vector;
+
+/**
+ * Testing Transform Class
+ */
+class TransformTests {
+	/** Tolerance of the coordinates comparison */
+	private static final double DELTA = 1e-10;
+
+	/**
+	 * Assert two points are equal up to rounding
+	 *
+	 * @param expected the expected point
+	 * @param actual   the actual point
+	 * @param message  the failure message
+	 */
+	private static void assertPoint(Point expected, Point actual, String message) {
+		assertEquals(0, expected.distance(actual), DELTA, message);
+	}
+
+	/**
+	 * Test method for {@link primitives.Transform#then(Transform)}.
+	 */
+	@Test
+	void testThen() {
+		Transform transform = Transform.rotation(90, Vector.AXIS_Z).then(Transform.scaling(2))
+				.then(Transform.translation(new Vector(1, 2, 3)));
+		Point p = new Point(1, 0, 0);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Rotation, then scaling, then translation of a point
+		assertPoint(new Point(1, 4, 3), transform.apply(p), "TC01: Wrong transformed point");
+		// TC02: The inverse transformation restores the point
+		assertPoint(p, transform.applyInverse(transform.apply(p)), "TC02: Wrong inverse transformation");
+		assertPoint(p, transform.inverse().apply(transform.apply(p)), "TC02: Wrong inverse transformation");
+		// TC03: Translation does not apply to directions
+		assertPoint(new Vector(0, 2, 0), transform.applyToDirection(Vector.AXIS_X), "TC03: Wrong direction");
+		// TC04: Normal of a non-uniformly scaled plane stays orthogonal to it
+		Transform scaling = Transform.scaling(1, 2, 1);
+		Vector normal = scaling.applyToNormal(new Vector(1, 1, 0).normalize());
+		Vector inPlane = scaling.applyToDirection(new Vector(1, -1, 0));
+		assertEquals(0, normal.dotProduct(inPlane), DELTA, "TC04: Wrong normal");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Zero scaling
+		assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1), "TC10: Zero scaling");
+	}
+}
@@ -0,0 +1,125 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Instance;
+import geometries.Sphere;
+import primitives.*;
+import renderer.Animation;
+import renderer.Camera;
+import renderer.RayTracerType;
+import scene.Scene;
+
+/**
+ * Testing Animation Class
+ */
+class AnimationTests {
+	/** Assert failure message for a bad ray */
+	private static final String BAD_RAY = "Bad frame ray";
+
+	/** A moving sphere */
+	private final Instance ball = new Instance(new Sphere(Point.ZERO, 1d), Transform.IDENTITY);
+	/** The scene of the tests */
+	private final Scene scene = new Scene("Animation").setBackground(new Color(20, 40, 60));
+	/** The camera of the tests - it looks down the z axis */
+	private final Camera camera;
+
+	/** Constructs the scene and the camera of the tests */
+	AnimationTests() {
+		scene.geometries.add(ball);
+		camera = Camera.getBuilder().setLocation(new Point(0, 0, 10))
+				.setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVpDistance(10).setVpSize(4, 4).setResolution(4, 4) //
+				.setRayTracer(scene, RayTracerType.GRID) //
+				.build();
+	}
+
+	/**
+	 * Test method for {@link renderer.Animation#addKeyframe(int, Camera.Builder)}.
+	 */
+	@Test
+	void testKeyframes() {
+		Point target = Point.ZERO;
+		Animation animation = new Animation(camera, 5) //
+				.addKeyframe(1, new Point(0, 0, 10), target) //
+				.addKeyframe(3, new Point(10, 0, 0), target);
+		Map<Integer, Ray> rays = new ConcurrentHashMap<>();
+		animation.render((frameCamera, frame) -> rays.put(frame, frameCamera.constructRay(4, 4, 0, 0)));
+		Camera last = new Camera.Builder(camera).setLocation(new Point(10, 0, 0)).setDirection(target, Vector.AXIS_Y)
+				.build();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A frame at a keyframe is seen as by a camera built at the keyframe
+		assertEquals(camera.constructRay(4, 4, 0, 0), rays.get(1), BAD_RAY);
+		assertEquals(last.constructRay(4, 4, 0, 0), rays.get(3), BAD_RAY);
+		// TC02: A frame between keyframes is turned by the part of the rotation
+		Map<Integer, Ray> centers = new ConcurrentHashMap<>();
+		animation.render((frameCamera, frame) -> centers.put(frame, frameCamera.constructRay(3, 3, 1, 1)));
+		assertEquals(new Vector(-1, 0, -1).normalize(), centers.get(2).getDir(), BAD_RAY);
+		assertEquals(new Point(5, 0, 5), centers.get(2).getHead(), BAD_RAY);
+		// TC03: Concurrent frames are seen as sequential frames
+		Map<Integer, Ray> concurrent = new ConcurrentHashMap<>();
+		animation.setFrameThreads(3)
+				.render((frameCamera, frame) -> concurrent.put(frame, frameCamera.constructRay(4, 4, 0, 0)));
+		assertEquals(rays, concurrent, BAD_RAY);
+		// TC04: The frames of a multi-threaded camera are rendered by its kept threads
+		Camera threaded = new Camera.Builder(camera).setMultithreading(2).setRenderStats(true, false).build();
+		Map<Integer, Long> primaryRays = new ConcurrentHashMap<>();
+		new Animation(threaded, 3).render(
+				(frameCamera, frame) -> primaryRays.put(frame, frameCamera.getRenderStats().getPrimaryRays()));
+		assertEquals(Map.of(0, 16L, 1, 16L, 2, 16L), primaryRays, "Frames must be fully rendered");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Frames before the first keyframe and after the last one hold the pose
+		assertEquals(rays.get(1), rays.get(0), BAD_RAY);
+		assertEquals(rays.get(3), rays.get(4), BAD_RAY);
+		// TC11: Keyframe out of the animation
+		assertThrows(IllegalArgumentException.class, () -> animation.addKeyframe(5, Point.ZERO, target),
+				"Keyframe out of the animation");
+	}
+
+	/**
+	 * Test method for
+	 * {@link renderer.Animation#addMotion(Instance, java.util.function.IntFunction)}.
+	 */
+	@Test
+	void testMotion() {
+		Animation animation = new Animation(camera, 3)
+				.addMotion(ball, frame -> Transform.translation(new Vector(frame * 0.5, 0, 1)));
+		Map<Integer, Boolean> hits = new ConcurrentHashMap<>();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The instance is moved before each frame
+		animation.render((frameCamera, frame) -> hits.put(frame,
+				scene.geometries.findIntersections(new Ray(new Point(frame * 0.5, 0.9, 10), new Vector(0, 0, -1))) //
+						!= null));
+		assertEquals(Map.of(0, true, 1, true, 2, true), hits, "Wrong instance positions");
+		assertEquals(new Point(1, 0, 1), ball.getTransform().apply(Point.ZERO),
+				"The instance must be at the last frame position");
+		// TC02: Moving instances cannot be rendered concurrently
+		assertThrows(IllegalStateException.class, () -> animation.setFrameThreads(2).render("animation-motion"),
+				"Concurrent frames of moving instances");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: A camera copied without a new ray tracer shares the former one
+		assertDoesNotThrow(() -> new Camera.Builder(camera).setResolution(2, 2).build().renderImage(),
+				"Copied camera without a ray tracer");
+		// TC11: A copied camera with other glossy and diffuse rays leaves the camera
+		// unchanged
+		Scene glossy = new Scene("Glossy").setBackground(new Color(20, 40, 60));
+		glossy.geometries.add(new Sphere(Point.ZERO, 3d).setMaterial(new Material().setKR(0.5).setRAngle(5)));
+		Camera source = new Camera.Builder(camera).setRayTracer(glossy, RayTracerType.SIMPLE)
+				.setRenderStats(true, false).build();
+		long reflections = source.renderImage().getRenderStats().getReflectionRays();
+		Camera copy = new Camera.Builder(source).setGlossyAndDiffuseRays(9).build();
+		assertTrue(copy.renderImage().getRenderStats().getReflectionRays() > reflections,
+				"The copied camera must trace its own glossy rays");
+		assertEquals(reflections, source.renderImage().getRenderStats().getReflectionRays(),
+				"The source camera must not be changed by its copy");
+	}
+}
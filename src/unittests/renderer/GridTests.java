@@ -0,0 +1,138 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+import renderer.Grid;
+
+/**
+ * Testing Grid Class
+ */
+class GridTests {
+	/**
+	 * Long flat scene: a row of unit spheres along x
+	 *
+	 * @param count amount of the spheres
+	 * @return the geometries
+	 */
+	private static Geometries row(int count) {
+		Geometries geometries = new Geometries();
+		for (int i = 0; i < count; ++i)
+			geometries.add(new Sphere(new Point(i * 4, 0, 0), 1d));
+		return geometries;
+	}
+
+	/**
+	 * Test method for {@link renderer.Grid#Grid(Geometries, double, long)}.
+	 */
+	@Test
+	void testResolution() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Long flat scene gets its voxels along the long axis
+		Grid.BuildStats stats = new Grid(row(100), 1, 1000).getBuildStats();
+		assertTrue(stats.cellsX() > 10 * stats.cellsY(), "Long axis must have more voxels");
+		assertEquals(stats.cellsY(), stats.cellsZ(), "Equal axes must have equal voxels");
+		assertEquals((long) stats.cellsX() * stats.cellsY() * stats.cellsZ(), stats.cells(), "Wrong amount of voxels");
+		assertTrue(stats.emptyRatio() >= 0 && stats.emptyRatio() < 1, "Wrong empty ratio");
+		assertTrue(stats.maxOccupancy() >= stats.averageOccupancy(), "Maximal occupancy below the average");
+		// TC02: Memory cap limits the amount of voxels
+		assertTrue(new Grid(row(100), 100, 500).getBuildStats().cells() <= 500, "Too many voxels");
+		// TC03: Traversal finds the same intersections as the geometries
+		Geometries geometries = row(100);
+		Grid grid = new Grid(geometries, 2, 10000);
+		Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+		assertEquals(geometries.findIntersections(ray).size(), grid.traverse(ray, Double.POSITIVE_INFINITY).size(),
+				"Wrong intersections of the grid traversal");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Plane scene (a flat axis) gets a single voxel along the flat axis
+		Geometries plane = new Geometries();
+		for (int i = 0; i < 10; ++i)
+			for (int j = 0; j < 10; ++j)
+				plane.add(new Triangle(new Point(i, j, 0), new Point(i + 1, j, 0), new Point(i, j + 1, 0)));
+		assertEquals(1, new Grid(plane).getBuildStats().cellsZ(), "Flat axis must have a single voxel");
+		// TC11: Wrong resolution settings
+		assertThrows(IllegalArgumentException.class, () -> new Grid(row(1), 0, 100), "Zero density");
+		assertThrows(IllegalArgumentException.class, () -> new Grid(row(1), 1, 0), "Zero voxels");
+	}
+
+	/**
+	 * Test method for {@link renderer.Grid#findClosestIntersection(Ray)}.
+	 */
+	@Test
+	void testPlanes() {
+		// a row of spheres cut by a plane through their centers, and a plane far
+		// below them
+		Geometries geometries = row(20);
+		Plane cut = new Plane(new Point(0, 0, 0), new Vector(1, 0, 1));
+		geometries.add(cut, new Plane(new Point(0, -100, 0), new Vector(0, 1, 0)));
+		Grid grid = new Grid(geometries, 2, 10000);
+		assertEquals(1, grid.getBuildStats().infiniteGeometries(), "The cutting plane must be clipped into the grid");
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray along the row hits all the spheres and the cutting plane
+		Ray ray = new Ray(new Point(-10, 0, 0.5), new Vector(1, 0, 0));
+		assertEquals(geometries.findIntersections(ray).size(), grid.traverse(ray, Double.POSITIVE_INFINITY).size(),
+				"Wrong intersections of the grid traversal");
+		// TC02: The closest intersection is found by a walk stopping early
+		assertEquals(ray.findClosestIntersection(geometries.calculateIntersections(ray)).point,
+				grid.findClosestIntersection(ray).point, "Wrong closest intersection");
+		// TC03: Ray hitting the cutting plane out of the grid bounds
+		ray = new Ray(new Point(-10, 0, 50), new Vector(0, 0, -1));
+		assertEquals(new Point(-10, 0, 10), grid.findClosestIntersection(ray).point, "Wrong hit out of the grid");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Ray missing the grid hits the far plane only
+		ray = new Ray(new Point(2, 50, 5), new Vector(0, -1, 0));
+		assertEquals(new Point(2, -100, 5), grid.findClosestIntersection(ray).point, "Wrong hit of the far plane");
+		// TC11: Ray missing all
+		assertNull(grid.findClosestIntersection(new Ray(new Point(0, 50, 0), new Vector(0, 1, 0))), "No hit expected");
+	}
+
+	/**
+	 * Test method for {@link renderer.Grid#refit(java.util.Collection)}.
+	 */
+	@Test
+	void testRefit() {
+		// a row of spheres and an instance of a sphere moved along the row
+		Geometries geometries = row(20);
+		Instance instance = new Instance(new Sphere(Point.ZERO, 1d), Transform.translation(new Vector(0, 10, 0)));
+		geometries.add(instance);
+		// and an instance of a sphere nested in a collection of the grid, on the ray
+		Instance nested = new Instance(new Sphere(Point.ZERO, 1d), Transform.translation(new Vector(82, 0, 0)));
+		geometries.add(new Geometries(nested));
+		Grid grid = new Grid(geometries, 2, 10000);
+		Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A moved geometry is found at its new place
+		instance.setTransform(Transform.translation(new Vector(-5, 0, 0)));
+		assertTrue(grid.refit(List.of(instance)), "TC01: The grid must be updated in place");
+		assertEquals(new Point(-6, 0, 0), grid.findClosestIntersection(ray).point, "TC01: Wrong closest intersection");
+		assertEquals(44, grid.traverse(ray, Double.POSITIVE_INFINITY).size(), "TC01: Wrong intersections");
+		// TC02: A moved nested geometry is found at its new place once
+		nested.setTransform(Transform.translation(new Vector(82.5, 0, 0)));
+		assertTrue(grid.refit(List.of(nested)), "TC02: The grid must be updated in place");
+		var intersections = grid.traverse(ray, Double.POSITIVE_INFINITY);
+		assertEquals(44, intersections.size(), "TC02: Wrong intersections");
+		assertTrue(intersections.stream().anyMatch(i -> i.point.equals(new Point(81.5, 0, 0))),
+				"TC02: The nested geometry must be found at its new place");
+		// TC03: Too many moved geometries ask for a rebuild
+		assertFalse(grid.refit(geometries.getGeometries()), "TC03: The grid must be rebuilt");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: Nothing moved
+		assertTrue(new Grid(geometries).refit(List.of()), "TC10: Nothing to update");
+		// TC11: A moved geometry out of the grid
+		assertThrows(IllegalArgumentException.class,
+				() -> new Grid(geometries).refit(List.of(new Sphere(Point.ZERO, 1d))), "TC11: Not a grid geometry");
+	}
+}
@@ -0,0 +1,79 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Bvh;
+import geometries.Instance;
+import geometries.Sphere;
+import primitives.*;
+import renderer.Animation;
+import renderer.Camera;
+import renderer.PreparedScene;
+import renderer.RayTracerType;
+import scene.Scene;
+
+/**
+ * Testing PreparedScene Class
+ */
+class PreparedSceneTests {
+	/** A sphere instance of the scene */
+	private final Instance ball = new Instance(new Sphere(Point.ZERO, 1d), Transform.IDENTITY);
+	/** The scene of the tests - a row of spheres */
+	private final Scene scene = new Scene("Prepared").setBackground(new Color(20, 40, 60));
+
+	/** Constructs the scene of the tests */
+	PreparedSceneTests() {
+		scene.geometries.add(ball);
+		for (int i = 1; i < 20; ++i)
+			scene.geometries.add(new Sphere(new Point(i * 3, 0, 0), 1d).setEmission(new Color(100, 0, 0)));
+	}
+
+	/**
+	 * Camera of a viewpoint of the scene
+	 *
+	 * @param location the camera location
+	 * @return the camera builder
+	 */
+	private static Camera.Builder viewpoint(Point location) {
+		return Camera.getBuilder().setLocation(location).setDirection(new Point(30, 0, 0)) //
+				.setVpDistance(10).setVpSize(4, 4).setResolution(8, 8);
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera.Builder#setRayTracer(PreparedScene)}.
+	 */
+	@Test
+	void testSharedGrid() throws Exception {
+		PreparedScene prepared = PreparedScene.grid(scene);
+		List<Camera> cameras = List.of(viewpoint(new Point(30, 0, 50)).setRayTracer(prepared).build(),
+				viewpoint(new Point(30, 50, 1)).setRayTracer(prepared).setMultithreading(2).build(),
+				viewpoint(new Point(-20, 0, 0)).setRayTracer(prepared).build());
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The cameras share the grid built once
+		for (Camera camera : cameras)
+			assertEquals(prepared.getGridStats(), camera.getGridStats(), "The grid must be shared");
+		// TC02: The cameras render concurrently
+		var tasks = cameras.stream().map(Camera::renderImageAsync).toList();
+		for (var task : tasks)
+			assertNotNull(task.get(), "Concurrent rendering failed");
+		// TC03: The shared scene is not refitted
+		assertThrows(IllegalStateException.class, () -> new Animation(cameras.get(0), 1)
+				.addMotion(ball, frame -> Transform.translation(new Vector(0, 0, 1))).render((camera, frame) -> {
+				}), "A prepared scene must not be refitted");
+
+		// =============== Boundary Values Tests ==================
+		// TC10: A scene prepared without a grid has no grid statistics
+		assertNull(PreparedScene.bvh(scene, Bvh.Split.SAH).getGridStats(), "A BVH scene has no grid");
+		assertNull(viewpoint(new Point(0, 0, 10)).setRayTracer(PreparedScene.simple(scene)).build()
+				.getGridStats(), "A simple scene has no grid");
+		// TC11: A scene set again replaces the prepared scene
+		Camera own = viewpoint(new Point(30, 0, 50)).setRayTracer(prepared).setRayTracer(scene, RayTracerType.GRID)
+				.setGridResolution(1, 1000).build();
+		assertFalse(prepared.getGridStats().equals(own.getGridStats()), "The camera must build its own grid");
+	}
+}
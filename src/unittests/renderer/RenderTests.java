@@ -1,6 +1,13 @@
 package unittests.renderer;
 
 import static java.awt.Color.YELLOW;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
 
@@ -9,7 +16,11 @@ import geometries.Triangle;
 import lighting.AmbientLight;
 import primitives.*;
 import renderer.Camera;
+import renderer.Heatmap;
 import renderer.RayTracerType;
+import renderer.RenderFarm;
+import renderer.RenderStats;
+import renderer.RenderTask;
 import scene.LoaderXml;
 import scene.Scene;
 
@@ -65,6 +76,97 @@ public class RenderTests {
 				.writeToImage("Two color render test");
 	}
 
+	/**
+	 * Render a crop window of the two color scene: write the cropped region, and
+	 * composite the region re-rendered into the rest of the image
+	 */
+	@Test
+	void renderTwoColorCropTest() {
+		Scene scene = new Scene("Two color crop").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d).setEmission(new Color(BLUE)));
+
+		camera //
+				.setRayTracer(scene, RayTracerType.SIMPLE) //
+				.setResolution(1000, 1000) //
+				.setCropWindow(400, 400, 200, 100) //
+				.build() //
+				.renderImage() //
+				.writeCropToImage("Two color crop render test") //
+				.writeToImage("Two color crop full render test");
+		scene.geometries.add(new Sphere(new Point(0, 0, -100), 20d).setEmission(new Color(RED)));
+		camera //
+				.setBaseImage("Two color crop full render test") //
+				.setCropWindow(450, 450, 100, 100) //
+				.build() //
+				.renderImage() //
+				.writeToImage("Two color crop composite render test");
+		camera.setBaseImage(null).clearCropWindow();
+	}
+
+	/**
+	 * Render the two color scene with statistics and check the counters: a
+	 * primary ray per pixel, each of them tested against each geometry, and a
+	 * timed tile for each 16x16 pixels
+	 */
+	@Test
+	void renderTwoColorStatsTest() {
+		Scene scene = new Scene("Two color stats").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries //
+				.add(new Sphere(new Point(0, 0, -100), 50d),
+						new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)),
+						new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100)),
+						new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100)));
+
+		for (int threads : new int[] { 0, -1, 2 }) {
+			RenderStats stats = camera //
+					.setRayTracer(scene, RayTracerType.SIMPLE) //
+					.setResolution(100, 100) //
+					.setMultithreading(threads) //
+					.setRenderStats(true, true) //
+					.build() //
+					.renderImage() //
+					.getRenderStats();
+			assertEquals(10000, stats.getPrimaryRays(), "Wrong amount of primary rays");
+			assertEquals(0, stats.getShadowRays() + stats.getReflectionRays() + stats.getRefractionRays(),
+					"Wrong amount of secondary rays");
+			assertEquals(10000, (long) stats.getIntersectionTests().get("Sphere"), "Wrong amount of sphere tests");
+			assertEquals(30000, (long) stats.getIntersectionTests().get("Triangle"),
+					"Wrong amount of triangle tests");
+			assertFalse(stats.getIntersectionTests().containsKey("Plane"),
+					"The planes of the triangles must not be counted");
+			assertEquals(50000, stats.getTotalIntersectionTests(),
+					"Wrong amount of intersection tests (of the geometries and of the scene collection)");
+			assertEquals(1, stats.getAverageDepth(), 0.0, "Wrong recursion depth");
+			assertEquals(49, stats.getTileTimes().size(), "Wrong amount of timed tiles");
+		}
+		camera.setRenderStats(false, false).setMultithreading(0);
+	}
+
+	/**
+	 * Render the two color scene with rays heatmap and write it beside the image:
+	 * without lights and global effects each pixel costs a single primary ray
+	 */
+	@Test
+	void renderTwoColorHeatmapTest() {
+		Scene scene = new Scene("Two color heatmap").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d));
+
+		Camera rendered = camera //
+				.setRayTracer(scene, RayTracerType.SIMPLE) //
+				.setResolution(100, 100) //
+				.setHeatmap(Heatmap.Mode.RAYS) //
+				.build() //
+				.renderImage() //
+				.writeToImage("Two color heatmap render test") //
+				.writeHeatmapToImage("Two color heatmap render test - rays");
+		assertEquals(10000, rendered.getHeatmap().getCost(0, 0, 100, 100), "Wrong amount of rays");
+		assertEquals(1, rendered.getHeatmap().getCost(50, 50), "Wrong amount of pixel rays");
+		camera.setHeatmap(null);
+	}
+
 	// For stage 6 - please disregard in stage 5
 	/**
 	 * Produce a scene with basic 3D model - including individual lights of the
@@ -106,6 +208,22 @@ public class RenderTests {
 				.printGrid(100, new Color(YELLOW)).writeToImage("xml render test");
 	}
 
+	/**
+	 * Render the XML scene by a render farm of two local worker processes
+	 * 
+	 * @throws Exception if loading the scene fails
+	 */
+	@Test
+	void renderXmlFarmTest() throws Exception {
+		Scene scene = LoaderXml.loadFromXml("xml/renderTestTwoColors.xml");
+		new RenderFarm(camera.setRayTracer(scene, RayTracerType.SIMPLE).setResolution(1000, 1000).build(),
+				"xml/renderTestTwoColors.xml") //
+				.setLocalWorkers(2) //
+				.render() //
+				.printGrid(100, new Color(YELLOW)) //
+				.writeToImage("xml render farm test");
+	}
+
 	/** Test for JSON based scene - for bonus */
 
 	/*
@@ -119,6 +237,139 @@ public class RenderTests {
 	 * .writeToImage("xml render test"); }
 	 */
 
+	/**
+	 * Produce the two color scene progressively, writing the preview image after
+	 * each pass, with a time budget of 2 seconds
+	 */
+	@Test
+	void renderTwoColorProgressiveTest() {
+		Scene scene = new Scene("Two color progressive").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries //
+				.add(new Sphere(new Point(0, 0, -100), 50d),
+						new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)),
+						new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100)),
+						new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100)));
+
+		Camera progressive = camera //
+				.setRayTracer(scene, RayTracerType.SIMPLE) //
+				.setResolution(1000, 1000) //
+				.setMultithreading(-1) //
+				.build();
+		progressive //
+				.renderImageProgressive(64, 2, pass -> progressive.writeToImage("Two color progressive preview")) //
+				.writeToImage("Two color progressive render test");
+	}
+
+	/**
+	 * Start rendering the two color scene progressively in the background, cancel
+	 * it when its first pass is done and write the partially rendered image
+	 * 
+	 * @throws InterruptedException if the test thread is interrupted
+	 */
+	@Test
+	void renderTwoColorCancelTest() throws InterruptedException {
+		Scene scene = new Scene("Two color cancel").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d));
+
+		// the rendering is cancelled by its own pass callback, once the handle of
+		// the rendering is known - so it is cancelled in the middle whatever the speed
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicReference<RenderTask> handle = new AtomicReference<>();
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		RenderTask task = camera //
+				.setRayTracer(scene, RayTracerType.SIMPLE) //
+				.setResolution(500, 500) //
+				.setMultithreading(2) //
+				.build() //
+				.renderImageProgressiveAsync(64, 0, pass -> {
+					try {
+						started.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					if (pass == 1)
+						cancelled.set(handle.get().cancel(true));
+				});
+		handle.set(task);
+		started.countDown();
+		Camera partial = task.getPartial();
+		assertTrue(cancelled.get(), "Running rendering must be cancellable");
+		assertTrue(task.isCancelled(), "Rendering must be marked as cancelled");
+		assertThrows(CancellationException.class, task::get, "Cancelled rendering must not have a result");
+		assertTrue(task.progress() < 1, "Cancelled rendering must stop before the end");
+		partial.writeToImage("Two color cancelled render test");
+	}
+
+	/**
+	 * Render the two color scene progressively with a checkpoint: stop the
+	 * rendering after some passes and resume it from the checkpoint. The
+	 * checkpoint is compacted while rendering, so it does not grow by an image
+	 * every pass, and it is not resumed by a rendering with other settings.
+	 * 
+	 * @throws Exception if the rendering fails
+	 */
+	@Test
+	void renderTwoColorCheckpointTest() throws Exception {
+		Scene scene = new Scene("Two color checkpoint").setBackground(new Color(75, 127, 90))
+				.setAmbientLight(new AmbientLight(new Color(255, 191, 191)));
+		scene.geometries.add(new Sphere(new Point(0, 0, -100), 50d));
+		File checkpoint = new File(System.getProperty("java.io.tmpdir"), "twoColorCheckpoint.bin");
+		checkpoint.delete();
+
+		camera //
+				.setRayTracer(scene, RayTracerType.SIMPLE) //
+				.setResolution(200, 200) //
+				.setMultithreading(2) //
+				.setRenderStats(true, false) //
+				.setCheckpoint(checkpoint.getPath(), 0);
+		long[] lengths = renderStopped(camera.build(), checkpoint, 6);
+		assertTrue(checkpoint.exists(), "Stopped rendering must leave a checkpoint");
+		for (long length : lengths)
+			assertTrue(length < 3 * lengths[0], "Checkpoint must be compacted while rendering");
+		// a rendering with other settings renders all the passes
+		assertEquals(8 * 40000, camera.setGlossyAndDiffuseRays(4).build().renderImageProgressive(8, 0, null)
+				.getRenderStats().getPrimaryRays(), "Checkpoint of other settings must not be resumed");
+		// a rendering with the same settings renders only the missing passes
+		renderStopped(camera.build(), checkpoint, 6);
+		assertEquals(2 * 40000, camera.build().renderImageProgressive(8, 0, null)
+				.writeToImage("Two color checkpoint render test").getRenderStats().getPrimaryRays(),
+				"Checkpoint must be resumed");
+		assertFalse(checkpoint.exists(), "Completed rendering must delete the checkpoint");
+		camera.setGlossyAndDiffuseRays(1).setRenderStats(false, false).setCheckpoint(null, 0).setMultithreading(0);
+	}
+
+	/**
+	 * Render progressively 8 passes with a checkpoint, and stop the rendering by
+	 * its own pass callback after some of the passes
+	 * 
+	 * @param camera     the camera
+	 * @param checkpoint the checkpoint file
+	 * @param passes     amount of the passes before the rendering is stopped
+	 * @return the lengths of the checkpoint file after each pass
+	 * @throws Exception if the rendering fails
+	 */
+	private static long[] renderStopped(Camera camera, File checkpoint, int passes) throws Exception {
+		long[] lengths = new long[passes];
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicReference<RenderTask> handle = new AtomicReference<>();
+		RenderTask task = camera.renderImageProgressiveAsync(8, 0, pass -> {
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			lengths[pass - 1] = checkpoint.length();
+			if (pass == lengths.length)
+				handle.get().cancel(false);
+		});
+		handle.set(task);
+		started.countDown();
+		task.getPartial();
+		return lengths;
+	}
+
 	// For stage 6 - please disregard in stage 5
 	/**
 	 * Produce a scene with basic 3D model - including individual lights of the
@@ -64,7 +64,9 @@ class TeapotTest {
 	 * Teapot with CBR
 	 */
 	void teapot2() {
-		prepareTeapot() //
+		Camera.Builder builder = prepareTeapot();
+		scene.setCbr(true);
+		builder //
 				.build() //
 				.renderImage() //
 				.printGrid(50, new Color(YELLOW)) //
@@ -0,0 +1,74 @@
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.LoaderXml;
+import scene.Scene;
+import scene.SceneGenerator;
+
+/**
+ * Testing SceneGenerator Class
+ */
+class SceneGeneratorTests {
+	/** Generator of the tests scene */
+	private final SceneGenerator generator = new SceneGenerator(42) //
+			.setSpheres(50) //
+			.setTriangles(100) //
+			.setClustered(3, 0.2) //
+			.setLarge(0.1, 4) //
+			.setFloor(true);
+
+	/**
+	 * Test method for {@link scene.SceneGenerator#generate(String)}.
+	 */
+	@Test
+	void testGenerate() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: amount of primitives (spheres, triangles and the floor)
+		Scene scene = generator.generate("generated");
+		assertEquals(151, scene.geometries.getGeometries().size(), "Wrong amount of primitives");
+		assertEquals(1, scene.lights.size(), "Wrong amount of lights");
+
+		// TC02: the same seed generates the same scene
+		Ray ray = new Ray(Point.ZERO, new Vector(0.1, 0.05, -1));
+		assertEquals(scene.geometries.findIntersections(ray),
+				generator.generate("again").geometries.findIntersections(ray),
+				"The same seed must generate the same scene");
+	}
+
+	/**
+	 * Test method for {@link scene.SceneGenerator#writeXml(String)}.
+	 * 
+	 * @throws Exception if the XML file cannot be loaded
+	 */
+	@Test
+	void testWriteXml() throws Exception {
+		File file = File.createTempFile("generated", ".xml");
+		file.deleteOnExit();
+		generator.writeXml(file.getPath());
+		Scene loaded = LoaderXml.loadFromXml(file.getPath());
+		Scene scene = generator.generate("generated");
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the loaded scene is the generated one
+		assertEquals(scene.geometries.getGeometries().size(), loaded.geometries.getGeometries().size(),
+				"Wrong amount of primitives");
+		assertEquals(scene.lights.size(), loaded.lights.size(), "Wrong amount of lights");
+		for (double x = -0.5; x <= 0.5; x += 0.25) {
+			Ray ray = new Ray(Point.ZERO, new Vector(x, -0.2, -1));
+			List<Intersection> expected = scene.geometries.calculateIntersections(ray);
+			List<Intersection> actual = loaded.geometries.calculateIntersections(ray);
+			assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+					"Wrong intersections of the loaded scene");
+		}
+	}
+}